@@ -0,0 +1,22 @@
+package com.boot.auth.starter;
+
+import com.boot.auth.starter.support.AuthRuleEndpoint;
+import com.boot.auth.starter.support.AuthRuleSupport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 引入 spring-boot-actuator 时才生效的端点配置
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+public class AuthActuatorConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    AuthRuleEndpoint authRuleEndpoint(AuthRuleSupport authRuleSupport) {
+        return new AuthRuleEndpoint(authRuleSupport);
+    }
+}
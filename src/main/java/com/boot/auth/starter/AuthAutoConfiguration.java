@@ -1,10 +1,23 @@
 package com.boot.auth.starter;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.service.ReactiveCacheService;
+import com.boot.auth.starter.service.impl.DefaultReactiveCacheServiceImpl;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
 @ComponentScan(basePackages = "com.boot.auth.starter")
 @AutoConfiguration
 public class AuthAutoConfiguration {
 
-
+    /**
+     * 默认的 ReactiveCacheService，自行实现 ReactiveCacheService 并注册到容器后不再创建
+     */
+    @Bean
+    @ConditionalOnMissingBean(ReactiveCacheService.class)
+    DefaultReactiveCacheServiceImpl defaultReactiveCacheService(CacheService cacheService, AuthProperties authProperties) {
+        return new DefaultReactiveCacheServiceImpl(cacheService, authProperties);
+    }
 }
@@ -1,20 +1,25 @@
 package com.boot.auth.starter;
 
-import com.boot.auth.starter.annotation.Auth;
-import com.boot.auth.starter.annotation.IgnoreLogin;
-import com.boot.auth.starter.annotation.NoAuthGetSession;
-import com.boot.auth.starter.annotation.OperLog;
+import com.boot.auth.starter.bo.RequestHeaderBO;
 import com.boot.auth.starter.common.AuthConstant;
 import com.boot.auth.starter.common.LogicSession;
+import com.boot.auth.starter.common.RestStatus;
 import com.boot.auth.starter.common.Session;
+import com.boot.auth.starter.model.AuthRule;
 import com.boot.auth.starter.model.OperLogAnnotationEntity;
+import com.boot.auth.starter.common.TokenClaims;
+import com.boot.auth.starter.service.AuthMetrics;
 import com.boot.auth.starter.service.AuthService;
 import com.boot.auth.starter.service.FilterWhiteListService;
-import com.boot.auth.starter.service.LogService;
-import com.boot.auth.starter.utils.IPUtils;
+import com.boot.auth.starter.support.AuthRuleSupport;
+import com.boot.auth.starter.support.OperLogSupport;
+import com.boot.auth.starter.support.RequestHeaderSupport;
+import com.boot.auth.starter.support.RejectResponseSupport;
+import com.boot.auth.starter.support.RoleRegistrySupport;
+import com.boot.auth.starter.support.RouteRuleReloadSupport;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.annotation.Order;
-import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
@@ -25,10 +30,6 @@ import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
 
 @Order(-1)
@@ -37,100 +38,149 @@ public class AuthFilter implements WebFilter {
     private final static org.slf4j.Logger log = LoggerFactory.getLogger(AuthFilter.class);
     final
     SessionResolver sessionResolver;
-    String loginRequired;
-    String tokenInvalid;
-    String authNoInvalid;
     AuthService authService;
-    LogService logService;
     RequestMappingHandlerMapping requestMappingHandlerMapping;
     FilterWhiteListService filterWhiteListService;
+    AuthRuleSupport authRuleSupport;
+    RejectResponseSupport rejectResponseSupport;
+    OperLogSupport operLogSupport;
+    AuthMetrics authMetrics;
+    RouteRuleReloadSupport routeRuleReloadSupport;
+    RequestHeaderSupport requestHeaderSupport;
 
     public AuthFilter(SessionResolver sessionResolver,
-                      String loginRequired,
-                      String tokenInvalid,
-                      String authNoInvalid,
                       AuthService authService,
-                      LogService logService,
                       FilterWhiteListService filterWhiteListService,
-                      RequestMappingHandlerMapping requestMappingHandlerMapping) {
+                      RequestMappingHandlerMapping requestMappingHandlerMapping,
+                      AuthRuleSupport authRuleSupport,
+                      RejectResponseSupport rejectResponseSupport,
+                      OperLogSupport operLogSupport,
+                      ObjectProvider<AuthMetrics> authMetricsProvider,
+                      RouteRuleReloadSupport routeRuleReloadSupport,
+                      RequestHeaderSupport requestHeaderSupport) {
         this.sessionResolver = sessionResolver;
-        this.loginRequired = loginRequired;
-        this.tokenInvalid = tokenInvalid;
-        this.authNoInvalid = authNoInvalid;
         this.authService = authService;
-        this.logService = logService;
         this.filterWhiteListService = filterWhiteListService;
         this.requestMappingHandlerMapping = requestMappingHandlerMapping;
+        this.authRuleSupport = authRuleSupport;
+        this.rejectResponseSupport = rejectResponseSupport;
+        this.operLogSupport = operLogSupport;
+        this.authMetrics = authMetricsProvider.getIfAvailable(() -> AuthMetrics.NOOP);
+        this.routeRuleReloadSupport = routeRuleReloadSupport;
+        this.requestHeaderSupport = requestHeaderSupport;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        return requestMappingHandlerMapping.getHandler(exchange).switchIfEmpty(chain.filter(exchange)).flatMap(handler -> {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+        long start = authMetrics.start();
+        //同一个请求只使用同一组热加载的规则
+        RouteRuleReloadSupport.RouteRules routeRules = routeRuleReloadSupport.current();
+        boolean whiteList = filterWhiteListService.isWhiteList(request.getMethod(), request.getPath())
+                || routeRules.isWhiteList(request.getMethod(), request.getPath());
+        authMetrics.record(AuthMetrics.Stage.WHITELIST, start);
+        if (whiteList) {
+            log.debug("[" + path + "]WhiteList:true");
+            return chain.filter(exchange);
+        }
+        long handlerStart = authMetrics.start();
+        return requestMappingHandlerMapping.getHandler(exchange).switchIfEmpty(Mono.defer(() -> chain.filter(exchange))).flatMap(handler -> {
+            authMetrics.record(AuthMetrics.Stage.HANDLER, handlerStart);
+            //交给 DispatcherHandler 复用，避免再次匹配路由
+            ResolvedHandlerMapping.publish(exchange, handler);
             HandlerMethod handlerMethod;
             if (!(handler instanceof HandlerMethod)) {
                 return chain.filter(exchange);
             }
-            ServerHttpRequest request = exchange.getRequest();
-            String path = request.getPath().value();
-            if (filterWhiteListService.isWhiteList(path)) {
-                log.debug("[" + path + "]WhiteList:true");
-                return chain.filter(exchange);
-            }
             handlerMethod = (HandlerMethod) handler;
-            ServerHttpResponse response = exchange.getResponse();
-            LogicSession logicSession = getSession(response, request);
-            Auth auth = handlerMethod.getMethod().getDeclaringClass().getAnnotation(Auth.class);
-            if (auth == null) auth = handlerMethod.getMethodAnnotation(Auth.class);
-            //没有auth直接认证通过
-            if (auth == null) {
-                requestAttribute(exchange, logicSession);
-                return chain.filter(exchange);
-            }
+            AuthRule rule = routeRules.apply(authRuleSupport.getRule(handlerMethod), request.getMethod(), request.getPath());
+            Mono<LogicSession> resolved = resolveSession(exchange);
+            if (rule.getOperType() == null) return check(exchange, chain, rule, resolved);
+            //操作日志需要的会话在处理请求之前解析，响应提交后只使用已解析的结果；解析失败时按未登录记录
+            return resolved.onErrorResume(e -> Mono.just(new LogicSession()))
+                    .flatMap(session -> check(exchange, chain, rule, resolved)
+                            .doFinally(signal -> saveOperLog(exchange, rule, session)));
+        });
 
-            // 不校验登录信息
-            IgnoreLogin ignoreToken = handlerMethod.getMethod().getDeclaringClass().getAnnotation(IgnoreLogin.class);
-            if (ignoreToken == null) {
-                ignoreToken = handlerMethod.getMethodAnnotation(IgnoreLogin.class);
-            }
-            //不校验登录信息通过
-            if (null != ignoreToken && ignoreToken.ignore()) {
-                requestAttribute(exchange, logicSession);
+
+    }
+
+    /**
+     * 按规则检查请求
+     *
+     * @param rule     路由权限规则
+     * @param resolved 只解析一次的会话，见 resolveSession
+     */
+    private Mono<Void> check(ServerWebExchange exchange, WebFilterChain chain, AuthRule rule, Mono<LogicSession> resolved) {
+        switch (rule.getType()) {
+            //没有auth直接认证通过、不校验登录信息通过，session 在参数解析需要时才解析
+            case PUBLIC, IGNORE_LOGIN -> {
+                exchange.getAttributes().put(AuthConstant.ATTR_LOGIC_SESSION, lazySession(exchange, resolved));
+                authMetrics.decision(rule, AuthMetrics.Outcome.PASS);
                 return chain.filter(exchange);
             }
-            //不强制校验权限
-            NoAuthGetSession noAuthGetSession = handlerMethod.getMethod().getDeclaringClass().getAnnotation(NoAuthGetSession.class);
-            if (noAuthGetSession == null) noAuthGetSession = handlerMethod.getMethodAnnotation(NoAuthGetSession.class);
             //不强制校验权限通过
-            if (noAuthGetSession != null) {
-                if (noAuthGetSession.loginRequired()) {
-                    requestAttribute(exchange, logicSession);
+            case SESSION_OPTIONAL -> {
+                if (rule.isLoginRequired()) {
+                    exchange.getAttributes().put(AuthConstant.ATTR_LOGIC_SESSION, lazySession(exchange, resolved));
                 }
+                authMetrics.decision(rule, AuthMetrics.Outcome.PASS);
                 return chain.filter(exchange);
             }
-            if (logicSession == null || !logicSession.getValidLogin()) {
-                //未登录
-                log.warn("用户未登录,拒绝访问[" + request + "]");
-                return send(response, loginRequired);
-            }
-            if (!logicSession.getValidToken()) {
-                //token失效
-                log.warn("用户token失效,拒绝访问[" + request.getURI() + "]");
-                return send(response, tokenInvalid);
-            }
-            //开始校验权限
-            List<String> roles = logicSession.getSessionOptional()
-                    .map(session -> Arrays.asList(session.getRoles().split(",")))
-                    .orElse(new ArrayList<>());
-            Optional<String> optionalRole = Arrays.stream(auth.roles()).filter(roles::contains).findFirst();
-            if (optionalRole.isEmpty()) {
-                log.warn("用户不具备访问权限,拒绝访问[" + request.getURI() + "]");
-                return send(response, authNoInvalid);
-            }
-            requestAttribute(exchange, logicSession);
-            return chain.filter(exchange);
-        });
+        }
+        Mono<LogicSession> logicSession = lazySession(exchange, resolved);
+        exchange.getAttributes().put(AuthConstant.ATTR_LOGIC_SESSION, logicSession);
+        return logicSession.flatMap(session -> authorize(exchange, chain, rule, session));
+    }
 
+    /**
+     * 按规则校验会话，仅用于需要登录的路由
+     *
+     * @param rule         路由权限规则
+     * @param logicSession 逻辑session
+     */
+    private Mono<Void> authorize(ServerWebExchange exchange, WebFilterChain chain, AuthRule rule, LogicSession logicSession) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        if (!logicSession.getValidLogin()) {
+            //未登录
+            log.warn("用户未登录,拒绝访问[" + request + "]");
+            authMetrics.decision(rule, AuthMetrics.Outcome.NO_LOGIN);
+            return rejectResponseSupport.write(response, RestStatus.USER_NOLOGIIN);
+        }
+        if (!logicSession.getValidToken()) {
+            //token失效
+            log.warn("用户token失效,拒绝访问[" + request.getURI() + "]");
+            authMetrics.decision(rule, AuthMetrics.Outcome.TOKEN_INVALID);
+            return rejectResponseSupport.write(response, RestStatus.USER_TOKEN_INVALID);
+        }
+        //开始校验权限
+        long start = authMetrics.start();
+        boolean permitted = RoleRegistrySupport.intersects(logicSession.getRoleBits(), rule.getRoleMask());
+        authMetrics.record(AuthMetrics.Stage.ROLE, start);
+        if (!permitted) {
+            log.warn("用户不具备访问权限,拒绝访问[" + request.getURI() + "]");
+            authMetrics.decision(rule, AuthMetrics.Outcome.FORBIDDEN);
+            return rejectResponseSupport.write(response, RestStatus.AUTH_NO);
+        }
+        authMetrics.decision(rule, AuthMetrics.Outcome.PASS);
+        return chain.filter(exchange);
+    }
 
+    /**
+     * 延迟解析的session，第一次订阅时才解析 token 和读取缓存，之后复用同一个结果；解析失败时删除当前 auth 并返回未登录的空会话
+     *
+     * @param exchange 会话
+     * @param resolved 只解析一次的会话，见 resolveSession
+     * @return 逻辑session
+     */
+    private Mono<LogicSession> lazySession(ServerWebExchange exchange, Mono<LogicSession> resolved) {
+        return resolved
+                .doOnNext(logicSession -> requestAttribute(exchange, logicSession))
+                .onErrorResume(e -> authService.deleteAuthAsync(exchange.getResponse(), exchange.getRequest())
+                        .thenReturn(new LogicSession()))
+                .cache();
     }
 
     /**
@@ -146,80 +196,48 @@ public class AuthFilter implements WebFilter {
     }
 
     /**
-     * 往客户端回写消息
+     * 获得session，第一次订阅时解析，之后复用同一个结果（包括解析失败）
      *
-     * @param response 返回
-     * @param json     输出的json信息
-     * @throws Exception
-     */
-    private Mono<Void> send(ServerHttpResponse response, String json) {
-        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
-        return response.writeWith(Mono.just(response.bufferFactory().wrap(json.getBytes(StandardCharsets.UTF_8))));
-    }
-
-    /**
-     * 获得session
-     *
-     * @param request ServerHttpRequest
+     * @param exchange 会话
      * @return 返回逻辑session对象
      */
-    private LogicSession getSession(ServerHttpResponse response, ServerHttpRequest request) {
-        try {
-            return sessionResolver.resolve(authService.analysisToken(request),
-                    getHeaderValue(request, AuthConstant.HEADER_KEY_PLATFORM),
-                    getHeaderValue(request, AuthConstant.HEADER_KEY_VERSION),
-                    IPUtils.getClientIP(request));
-        } catch (Exception e) {
-            authService.deleteAuth(response, request);
-            return null;
-        }
+    private Mono<LogicSession> resolveSession(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        return Mono.defer(() -> {
+                    long start = authMetrics.start();
+                    TokenClaims claims = authService.analysisTokenClaims(request);
+                    authMetrics.record(AuthMetrics.Stage.DECODE, start);
+                    RequestHeaderBO header = requestHeaderSupport.get(exchange);
+                    return sessionResolver.resolve(claims, header.getPlatform(), header.getVersion(), header.getIp());
+                })
+                .cache();
     }
 
     /**
-     * 记录用户操作日志
-     */
-    private void saveOperLog(ServerHttpRequest request, ServerHttpResponse response, Object handler) throws Exception {
-        if (handler instanceof HandlerMethod handlerMethod) {
-            OperLog operLog = handlerMethod.getMethod().getDeclaringClass().getAnnotation(OperLog.class);
-            if (operLog == null) operLog = handlerMethod.getMethodAnnotation(OperLog.class);
-            if (operLog != null && operLog.flag()) {
-                OperLogAnnotationEntity logEntity = new OperLogAnnotationEntity();
-                logEntity.setOperType(operLog.operType());
-                logEntity.setChannel(getHeaderValue(request, AuthConstant.HEADER_KEY_CHANNEL));
-                logEntity.setDeviceId(getHeaderValue(request, AuthConstant.HEADER_KEY_DEVICEID));
-                LogicSession logicSession = getSession(response, request);
-                Optional<Session> sessionOptional = null;
-                if (logicSession != null) {
-                    sessionOptional = logicSession.getSessionOptional();
-                }
-                if (sessionOptional != null && sessionOptional.isPresent()) {//当前访问者信息
-                    Session session = sessionOptional.get();
-                    logEntity.setUserNo(session.getUserNo());
-                    logEntity.setUsername(session.getUsername());
-                    logEntity.setRoles(session.getRoles());
-                    logEntity.setObj(session.getObj());
-                    logEntity.setVersion(session.getVersion());
-                    logEntity.setPlatform(session.getPlatform());
-                }
-                logService.addLog(logEntity);
-            }
-        }
-    }
-
-    /**
-     * 获取 header的内容
+     * 记录用户操作日志，放入操作日志队列后由后台线程批量写出
      *
-     * @param request ServerHttpRequest
-     * @param key     key
-     * @return 返回对应的值
+     * @param rule         路由权限规则
+     * @param logicSession 处理请求之前已解析的会话
      */
-    private String getHeaderValue(ServerHttpRequest request, String key) {
-        String value = "";
-        try {
-            value = request.getHeaders().getFirst(key);
-        } catch (Exception e) {
-            log.warn("header key is null", e);
+    private void saveOperLog(ServerWebExchange exchange, AuthRule rule, LogicSession logicSession) {
+        RequestHeaderBO header = requestHeaderSupport.get(exchange);
+        OperLogAnnotationEntity logEntity = new OperLogAnnotationEntity();
+        logEntity.setOperType(rule.getOperType());
+        logEntity.setChannel(header.getChannel());
+        logEntity.setDeviceId(header.getDeviceId());
+        Optional<Session> sessionOptional = logicSession.getSessionOptional();
+        if (sessionOptional.isPresent()) {//当前访问者信息
+            Session session = sessionOptional.get();
+            logEntity.setUserNo(session.getUserNo());
+            logEntity.setUsername(session.getUsername());
+            logEntity.setRoles(session.getRoles());
+            logEntity.setObj(session.getObj());
+            logEntity.setVersion(session.getVersion());
+            logEntity.setPlatform(session.getPlatform());
+            logEntity.setIp(session.getIp());
+        } else {
+            logEntity.setIp(header.getIp());
         }
-        return value;
+        operLogSupport.offer(logEntity);
     }
-}
\ No newline at end of file
+}
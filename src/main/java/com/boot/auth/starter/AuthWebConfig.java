@@ -2,11 +2,17 @@ package com.boot.auth.starter;
 
 import com.boot.auth.starter.common.AuthProperties;
 import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.service.AuthMetrics;
 import com.boot.auth.starter.service.AuthService;
 import com.boot.auth.starter.service.CacheService;
 import com.boot.auth.starter.service.LogService;
-import com.boot.auth.starter.service.OutJsonService;
+import com.boot.auth.starter.service.ReactiveCacheService;
+import com.boot.auth.starter.support.RejectResponseSupport;
+import com.boot.auth.starter.support.RequestHeaderSupport;
+import com.boot.auth.starter.support.RoleRegistrySupport;
+import com.boot.auth.starter.support.TokenDenyListSupport;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
@@ -17,44 +23,72 @@ public class AuthWebConfig implements WebFluxConfigurer {
 
     final
     CacheService cacheService;
+    ReactiveCacheService reactiveCacheService;
     ObjectMapper objectMapper;
     AuthProperties authProperties;
     AuthService authService;
     LogService logService;
-    OutJsonService outJsonService;
+    TokenDenyListSupport tokenDenyListSupport;
+    RoleRegistrySupport roleRegistrySupport;
+    RequestHeaderSupport requestHeaderSupport;
 
-    public AuthWebConfig(CacheService cacheService, ObjectMapper objectMapper, AuthProperties authProperties,
-                         AuthService authService, LogService logService, OutJsonService outJsonService) {
+    public AuthWebConfig(CacheService cacheService, ReactiveCacheService reactiveCacheService, ObjectMapper objectMapper,
+                         AuthProperties authProperties, AuthService authService, LogService logService,
+                         TokenDenyListSupport tokenDenyListSupport, RoleRegistrySupport roleRegistrySupport,
+                         RequestHeaderSupport requestHeaderSupport) {
         this.cacheService = cacheService;
+        this.reactiveCacheService = reactiveCacheService;
         this.objectMapper = objectMapper;
         this.authProperties = authProperties;
         this.authService = authService;
         this.logService = logService;
-        this.outJsonService = outJsonService;
+        this.tokenDenyListSupport = tokenDenyListSupport;
+        this.roleRegistrySupport = roleRegistrySupport;
+        this.requestHeaderSupport = requestHeaderSupport;
     }
 
     @Override
     public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
         configurer.addCustomResolver(new SessionArgumentResolver());
+        configurer.addCustomResolver(new RequestHeaderArgumentResolver(requestHeaderSupport));
     }
 
     @Bean
-    SessionResolver sessionResolver() {
-        return new SessionResolver(cacheService, objectMapper, authProperties.getTokenPrefix());
+    SessionResolver sessionResolver(ObjectProvider<AuthMetrics> authMetricsProvider) {
+        return new SessionResolver(reactiveCacheService, objectMapper, authProperties.getTokenPrefix(), tokenDenyListSupport,
+                roleRegistrySupport, authMetricsProvider.getIfAvailable(() -> AuthMetrics.NOOP));
     }
 
+    /**
+     * 未登录时的响应内容
+     *
+     * @deprecated 拒绝访问的响应由 RejectResponseSupport 预先编码写出，请使用 RejectResponseSupport#body
+     */
+    @Deprecated
     @Bean
-    String loginRequired() {
-        return outJsonService.errorOutJson(RestStatus.USER_NOLOGIIN.getMsg(), String.valueOf(RestStatus.USER_NOLOGIIN.value()));
+    String loginRequired(RejectResponseSupport rejectResponseSupport) {
+        return rejectResponseSupport.body(RestStatus.USER_NOLOGIIN);
     }
 
+    /**
+     * token失效时的响应内容
+     *
+     * @deprecated 拒绝访问的响应由 RejectResponseSupport 预先编码写出，请使用 RejectResponseSupport#body
+     */
+    @Deprecated
     @Bean
-    String tokenInvalid() {
-        return outJsonService.errorOutJson(RestStatus.USER_TOKEN_INVALID.getMsg(), String.valueOf(RestStatus.USER_TOKEN_INVALID.value()));
+    String tokenInvalid(RejectResponseSupport rejectResponseSupport) {
+        return rejectResponseSupport.body(RestStatus.USER_TOKEN_INVALID);
     }
 
+    /**
+     * 无权访问时的响应内容
+     *
+     * @deprecated 拒绝访问的响应由 RejectResponseSupport 预先编码写出，请使用 RejectResponseSupport#body
+     */
+    @Deprecated
     @Bean
-    String authNoInvalid() {
-        return outJsonService.errorOutJson(RestStatus.AUTH_NO.getMsg(), String.valueOf(RestStatus.AUTH_NO.value()));
+    String authNoInvalid(RejectResponseSupport rejectResponseSupport) {
+        return rejectResponseSupport.body(RestStatus.AUTH_NO);
     }
 }
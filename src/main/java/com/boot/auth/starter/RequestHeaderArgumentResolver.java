@@ -0,0 +1,32 @@
+package com.boot.auth.starter;
+
+import com.boot.auth.starter.bo.RequestHeaderBO;
+import com.boot.auth.starter.support.RequestHeaderSupport;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * RequestHeaderBO 参数解析
+ * 复用 AuthFilter 已提取的请求头信息，没有提取过时（例如白名单路由）在这里提取一次
+ */
+public class RequestHeaderArgumentResolver implements HandlerMethodArgumentResolver {
+    final
+    RequestHeaderSupport requestHeaderSupport;
+
+    public RequestHeaderArgumentResolver(RequestHeaderSupport requestHeaderSupport) {
+        this.requestHeaderSupport = requestHeaderSupport;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return RequestHeaderBO.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+        return Mono.just(requestHeaderSupport.get(exchange));
+    }
+}
@@ -0,0 +1,79 @@
+package com.boot.auth.starter;
+
+import com.boot.auth.starter.common.AuthConstant;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 复用 AuthFilter 已经匹配到的 handler
+ * AuthFilter 匹配 handler 后写入 exchange 属性，DispatcherHandler 按顺序调用 HandlerMapping 时优先从这里取出，
+ * 避免同一个请求做两次路由匹配。请求路径在之后被修改时不复用，交给原有的 HandlerMapping 重新匹配。
+ * 顺序固定为 RequestMappingHandlerMapping 的顺序减 1，总是排在它前面；优先级更高的 HandlerMapping 都没有匹配时才会用到这里。
+ * 与本类顺序相同的 HandlerMapping（默认为 RouterFunctionMapping）排序结果不确定，复用 handler 之前先交给它们匹配，
+ * 它们匹配到时使用它们的结果，路由结果与没有本类时一致
+ */
+@Component
+public class ResolvedHandlerMapping implements HandlerMapping, Ordered, SmartInitializingSingleton {
+    final
+    RequestMappingHandlerMapping requestMappingHandlerMapping;
+    ObjectProvider<HandlerMapping> handlerMappingProvider;
+    /**
+     * 与本类顺序相同的其他 HandlerMapping
+     */
+    private volatile List<HandlerMapping> tied = List.of();
+
+    public ResolvedHandlerMapping(RequestMappingHandlerMapping requestMappingHandlerMapping,
+                                  ObjectProvider<HandlerMapping> handlerMappingProvider) {
+        this.requestMappingHandlerMapping = requestMappingHandlerMapping;
+        this.handlerMappingProvider = handlerMappingProvider;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int order = getOrder();
+        tied = handlerMappingProvider.orderedStream()
+                .filter(mapping -> mapping != this && mapping != requestMappingHandlerMapping)
+                .filter(mapping -> (mapping instanceof Ordered ordered ? ordered.getOrder() : Ordered.LOWEST_PRECEDENCE) == order)
+                .toList();
+    }
+
+    /**
+     * 写入已匹配到的 handler
+     *
+     * @param exchange 会话
+     * @param handler  handler
+     */
+    static void publish(ServerWebExchange exchange, Object handler) {
+        exchange.getAttributes().put(AuthConstant.ATTR_HANDLER, new ResolvedHandler(exchange.getRequest().getPath(), handler));
+    }
+
+    @Override
+    public Mono<Object> getHandler(ServerWebExchange exchange) {
+        ResolvedHandler resolved = exchange.getAttribute(AuthConstant.ATTR_HANDLER);
+        if (resolved == null || resolved.path() != exchange.getRequest().getPath()) return Mono.empty();
+        List<HandlerMapping> current = tied;
+        if (current.isEmpty()) return Mono.just(resolved.handler());
+        return Flux.fromIterable(current)
+                .concatMap(mapping -> mapping.getHandler(exchange))
+                .next()
+                .switchIfEmpty(Mono.fromSupplier(resolved::handler));
+    }
+
+    @Override
+    public int getOrder() {
+        return requestMappingHandlerMapping.getOrder() - 1;
+    }
+
+    private record ResolvedHandler(RequestPath path, Object handler) {
+    }
+}
@@ -1,24 +1,55 @@
 package com.boot.auth.starter;
 
 import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.LogicSession;
+import com.boot.auth.starter.common.RestStatus;
 import com.boot.auth.starter.common.Session;
+import com.boot.auth.starter.exception.AuthException;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
 import org.springframework.web.reactive.BindingContext;
 import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.Objects;
+import java.util.Optional;
 
+/**
+ * Session 参数解析
+ * 支持 Session、Mono&lt;Session&gt;、Optional&lt;Session&gt; 三种参数类型，
+ * 只有参数中声明了 Session 时才会触发 AuthFilter 中延迟的 session 解析
+ */
 public class SessionArgumentResolver implements HandlerMethodArgumentResolver {
 
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
-        return Session.class.isAssignableFrom(parameter.getParameterType());
+        Class<?> type = parameter.getParameterType();
+        if (Session.class.isAssignableFrom(type)) return true;
+        if (type != Mono.class && type != Optional.class) return false;
+        Class<?> generic = ResolvableType.forMethodParameter(parameter).getGeneric(0).resolve();
+        return generic != null && Session.class.isAssignableFrom(generic);
     }
 
     @Override
     public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
-        return Mono.just(Objects.requireNonNull(exchange.getAttribute(AuthConstant.ATTR_SESSION)));
+        Class<?> type = parameter.getParameterType();
+        if (type == Mono.class) return Mono.just(session(exchange));
+        if (type == Optional.class) return session(exchange).<Object>map(Optional::of).defaultIfEmpty(Optional.empty());
+        return session(exchange).cast(Object.class)
+                .switchIfEmpty(Mono.error(() -> new AuthException(RestStatus.USER_NOLOGIIN)));
+    }
+
+    /**
+     * 获取当前请求的 session
+     *
+     * @param exchange 会话
+     * @return session，未登录时为空
+     */
+    private Mono<Session> session(ServerWebExchange exchange) {
+        Session session = exchange.getAttribute(AuthConstant.ATTR_SESSION);
+        if (session != null) return Mono.just(session);
+        Mono<LogicSession> logicSession = exchange.getAttribute(AuthConstant.ATTR_LOGIC_SESSION);
+        if (logicSession == null) return Mono.empty();
+        return logicSession.flatMap(s -> Mono.justOrEmpty(s.getSessionOptional()));
     }
 }
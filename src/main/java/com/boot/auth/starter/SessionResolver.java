@@ -4,31 +4,70 @@ import com.boot.auth.starter.common.AuthConstant;
 import com.boot.auth.starter.common.LogicSession;
 import com.boot.auth.starter.common.RestStatus;
 import com.boot.auth.starter.common.Session;
+import com.boot.auth.starter.common.TokenClaims;
 import com.boot.auth.starter.exception.AuthException;
-import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.service.AuthMetrics;
+import com.boot.auth.starter.service.ReactiveCacheService;
+import com.boot.auth.starter.support.RoleRegistrySupport;
+import com.boot.auth.starter.support.TokenDenyListSupport;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.util.Map;
 import java.util.Optional;
 
 public class SessionResolver {
-    private final CacheService cacheService;
+    private final ReactiveCacheService reactiveCacheService;
     private final ObjectMapper objectMapper;
     private final String tokenPrefix;
+    private final TokenDenyListSupport tokenDenyListSupport;
+    private final RoleRegistrySupport roleRegistrySupport;
+    private final AuthMetrics authMetrics;
 
-    public SessionResolver(CacheService cacheService, ObjectMapper objectMapper, String tokenPrefix) {
-        this.cacheService = cacheService;
+    public SessionResolver(ReactiveCacheService reactiveCacheService, ObjectMapper objectMapper, String tokenPrefix,
+                           TokenDenyListSupport tokenDenyListSupport, RoleRegistrySupport roleRegistrySupport,
+                           AuthMetrics authMetrics) {
+        this.reactiveCacheService = reactiveCacheService;
         this.objectMapper = objectMapper;
         this.tokenPrefix = tokenPrefix;
+        this.tokenDenyListSupport = tokenDenyListSupport;
+        this.roleRegistrySupport = roleRegistrySupport;
+        this.authMetrics = authMetrics;
     }
 
-    LogicSession resolve(Map<String, String> tokenMap, String platform, String version, String ip) {
+    /**
+     * 解析会话，缓存读取不会阻塞调用线程
+     *
+     * @return 逻辑session，未登录时为 validLogin=false 的空会话
+     */
+    Mono<LogicSession> resolve(TokenClaims claims, String platform, String version, String ip) {
+        if (claims == null) return Mono.just(new LogicSession());
+        if (claims.isStateless()) return Mono.just(resolveStateless(new LogicSession(), claims, platform, version, ip));
+        Mono<String> user = reactiveCacheService.get(tokenPrefix + claims.getKey());
+        if (authMetrics.enabled()) user = timed(user);
+        return user.map(u -> {
+                    long start = authMetrics.start();
+                    LogicSession logicSession = parse(u, platform, version, ip);
+                    authMetrics.record(AuthMetrics.Stage.PARSE, start);
+                    return logicSession;
+                })
+                .defaultIfEmpty(new LogicSession());
+    }
+
+    /**
+     * 记录缓存读取耗时，只在开启指标时使用
+     */
+    private Mono<String> timed(Mono<String> user) {
+        return Mono.defer(() -> {
+            long start = authMetrics.start();
+            return user.doFinally(signal -> authMetrics.record(AuthMetrics.Stage.CACHE, start));
+        });
+    }
+
+    private LogicSession parse(String user, String platform, String version, String ip) {
         LogicSession logicSession = new LogicSession();
-        if (tokenMap.isEmpty() || !tokenMap.containsKey(AuthConstant.MAP_KEY_KEY)) return logicSession;
-        String user = cacheService.get(tokenPrefix + tokenMap.get(AuthConstant.MAP_KEY_KEY));
-        if (user == null || user.trim().isEmpty()) return logicSession;
+        if (user.trim().isEmpty()) return logicSession;
         try {
             JsonNode node = objectMapper.readTree(user);
             String nickName = node.path(AuthConstant.SESSION_NICK_NAME).asText();
@@ -54,9 +93,38 @@ public class SessionResolver {
             logicSession.setValidLogin(true);
             logicSession.setValidToken(true);
             logicSession.setSessionOptional(Optional.of(session));
+            logicSession.setRoleBits(roleRegistrySupport.decode(roleBits(node.path(AuthConstant.SESSION_ROLE_BITS)), roles));
             return logicSession;
         } catch (IOException e) {
             throw new AuthException(RestStatus.SYSTEM_ERROR);
         }
     }
+
+    /**
+     * 无状态令牌直接使用令牌中携带的信息，不访问缓存
+     */
+    private LogicSession resolveStateless(LogicSession logicSession, TokenClaims claims, String platform, String version, String ip) {
+        if (tokenDenyListSupport.isDenied(claims)) return logicSession;
+        Session session = new Session();
+        session.setUserNo(claims.getUserNo());
+        session.setRoles(claims.getRoles());
+        session.setPlatform(platform);
+        session.setVersion(version);
+        session.setIp(ip);
+        logicSession.setValidLogin(true);
+        logicSession.setValidToken(true);
+        logicSession.setSessionOptional(Optional.of(session));
+        logicSession.setRoleBits(roleRegistrySupport.decode(claims.getRoleBits(), claims.getRoles()));
+        return logicSession;
+    }
+
+    /**
+     * 读取保存会话时编译的角色位图，没有时返回 null
+     */
+    private static long[] roleBits(JsonNode node) {
+        if (!node.isArray()) return null;
+        long[] encoded = new long[node.size()];
+        for (int i = 0; i < encoded.length; i++) encoded[i] = node.get(i).asLong();
+        return encoded;
+    }
 }
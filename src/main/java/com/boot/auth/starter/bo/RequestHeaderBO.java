@@ -19,6 +19,10 @@ public class RequestHeaderBO implements Serializable {
      * 设备id
      */
     String deviceId;
+    /**
+     * 客户端ip
+     */
+    String ip;
 
     public String getPlatform() {
         return platform;
@@ -51,4 +55,12 @@ public class RequestHeaderBO implements Serializable {
     public void setDeviceId(String deviceId) {
         this.deviceId = deviceId;
     }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
 }
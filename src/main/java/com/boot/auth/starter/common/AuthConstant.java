@@ -13,6 +13,18 @@ public interface AuthConstant {
      * session key
      */
     String ATTR_SESSION = "ATTR_SESSION";
+    /**
+     * 延迟解析的逻辑session key，值为 Mono&lt;LogicSession&gt;，同一个请求只解析一次
+     */
+    String ATTR_LOGIC_SESSION = "ATTR_LOGIC_SESSION";
+    /**
+     * 已匹配到的 handler key
+     */
+    String ATTR_HANDLER = "ATTR_HANDLER";
+    /**
+     * 请求头信息 key，值为 RequestHeaderBO，同一个请求只提取一次
+     */
+    String ATTR_REQUEST_HEADER = "ATTR_REQUEST_HEADER";
     /**
      * session-用户昵称
      */
@@ -45,6 +57,10 @@ public interface AuthConstant {
      * session-自定义 Object类
      */
     String SESSION_OBJECT = "obj";
+    /**
+     * session-保存会话时编译的权限位图
+     */
+    String SESSION_ROLE_BITS = "roleBits";
 
     /**
      * token解析 key- token
@@ -66,6 +82,10 @@ public interface AuthConstant {
      * token解析 key- key
      */
     String MAP_KEY_KEY = "key";
+    /**
+     * 会话查询 key- 剩余过期时间，单位秒
+     */
+    String MAP_KEY_EXPIRE = "expire";
 
     /**
      * header-平台 key
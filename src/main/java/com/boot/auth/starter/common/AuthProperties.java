@@ -1,8 +1,14 @@
 package com.boot.auth.starter.common;
 
+import com.boot.auth.starter.utils.IPUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 @ConfigurationProperties(prefix = "info.auth")
 public class AuthProperties {
@@ -27,10 +33,618 @@ public class AuthProperties {
     private Boolean enableExclude;
 
     /**
-     * （非必须）Guava 缓存设置
+     * （非必须）生成 token 使用的格式版本
+     * 1：AES 加密后的16进制字符串（默认）
+     * 2：二进制格式，AES 加密后使用 base64url 编码，长度更短、解析更快
+     * 无论设置哪个版本，两种格式的 token 都可以被解析，便于平滑迁移
+     */
+    private Integer tokenVersion;
+
+    /**
+     * （非必须）缓存类型，guava、caffeine 或 offheap，默认 guava
+     */
+    private String cacheType;
+
+    /**
+     * （非必须）Guava 缓存设置，cache-type=caffeine 时同样使用这里的设置
      */
     private GuavaCache guavaCache;
 
+    /**
+     * （非必须）无状态令牌设置
+     */
+    private Stateless stateless;
+
+    /**
+     * （非必须）预先注册的角色，Auth 注解中使用的角色会自动注册
+     */
+    private List<String> roles;
+
+    /**
+     * （非必须）token 解析结果缓存设置
+     */
+    private ClaimsCache claimsCache;
+
+    /**
+     * （非必须）阻塞缓存的执行线程池设置
+     */
+    private CacheScheduler cacheScheduler;
+
+    /**
+     * （非必须）近端缓存设置
+     */
+    private NearCache nearCache;
+
+    public static class NearCache {
+        /**
+         * （非必须）开启近端缓存，默认关闭
+         */
+        private Boolean enable;
+
+        /**
+         * （非必须）近端缓存最大条目数，默认 10000
+         */
+        private Long maximumSize;
+
+        /**
+         * （非必须）近端缓存条目的最长存活时间，即允许读取到过期数据的最长时间，单位秒，默认 5
+         */
+        private Long ttl;
+
+        /**
+         * （开启时必须）作为 L2 的 CacheService 的 bean 名称，例如 redisCacheService
+         */
+        private String remote;
+
+        public Boolean getEnable() {
+            if (enable == null) enable = false;
+            return enable;
+        }
+
+        public void setEnable(Boolean enable) {
+            this.enable = enable;
+        }
+
+        public Long getMaximumSize() {
+            if (maximumSize == null) maximumSize = 10000L;
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Long getTtl() {
+            if (ttl == null) ttl = 5L;
+            return ttl;
+        }
+
+        public void setTtl(Long ttl) {
+            this.ttl = ttl;
+        }
+
+        public String getRemote() {
+            return remote;
+        }
+
+        public void setRemote(String remote) {
+            this.remote = remote;
+        }
+    }
+
+    /**
+     * （非必须）堆外缓存设置，cache-type=offheap 时生效
+     */
+    private OffHeap offHeap;
+
+    public static class OffHeap {
+        /**
+         * （非必须）堆外内存总容量，单位字节，默认 256MB
+         */
+        private Long capacity;
+
+        /**
+         * （非必须）最大条目数，默认 1000000
+         */
+        private Long maximumSize;
+
+        /**
+         * （非必须）段数，会向上取整为 2 的幂，默认 cpu 核数的 4 倍
+         */
+        private Integer segments;
+
+        public Long getCapacity() {
+            if (capacity == null) capacity = 256L * 1024 * 1024;
+            return capacity;
+        }
+
+        public void setCapacity(Long capacity) {
+            this.capacity = capacity;
+        }
+
+        public Long getMaximumSize() {
+            if (maximumSize == null) maximumSize = 1000000L;
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Integer getSegments() {
+            if (segments == null) segments = Runtime.getRuntime().availableProcessors() * 4;
+            return segments;
+        }
+
+        public void setSegments(Integer segments) {
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * （非必须）缓存快照设置
+     */
+    private Snapshot snapshot;
+
+    public static class Snapshot {
+        /**
+         * （非必须）开启缓存快照，默认关闭
+         */
+        private Boolean enable;
+
+        /**
+         * （开启时必须）快照文件路径，快照中的会话没有加密，请指定只有当前用户可以访问的目录；未配置时不写出也不加载快照
+         */
+        private String path;
+
+        /**
+         * （非必须）定时写出快照的间隔，单位秒，默认 0 表示只在停止时写出
+         */
+        private Long interval;
+
+        public Boolean getEnable() {
+            if (enable == null) enable = false;
+            return enable;
+        }
+
+        public void setEnable(Boolean enable) {
+            this.enable = enable;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Long getInterval() {
+            if (interval == null) interval = 0L;
+            return interval;
+        }
+
+        public void setInterval(Long interval) {
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * （非必须）白名单设置
+     */
+    private WhiteList whiteList;
+
+    public static class WhiteList {
+        /**
+         * （非必须）白名单匹配结果缓存的最大条目数，默认 10000，0 表示不缓存
+         */
+        private Long memoMaximumSize;
+
+        /**
+         * （非必须）白名单，格式与 addWhiteList 相同，例如 /public/** 或 GET /api/{id}/info
+         */
+        private List<String> paths;
+
+        /**
+         * （非必须）按路由覆盖需要的角色，key 为 PathPattern 规则（可以以请求方法加空格开头），value 为角色，多个用英文逗号隔开
+         */
+        private Map<String, String> roleOverrides;
+
+        /**
+         * （非必须）规则文件，每行一条规则，修改后自动重新加载
+         */
+        private String file;
+
+        public Long getMemoMaximumSize() {
+            if (memoMaximumSize == null) memoMaximumSize = 10000L;
+            return memoMaximumSize;
+        }
+
+        public void setMemoMaximumSize(Long memoMaximumSize) {
+            this.memoMaximumSize = memoMaximumSize;
+        }
+
+        public List<String> getPaths() {
+            if (paths == null) paths = new ArrayList<>();
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public Map<String, String> getRoleOverrides() {
+            if (roleOverrides == null) roleOverrides = new LinkedHashMap<>();
+            return roleOverrides;
+        }
+
+        public void setRoleOverrides(Map<String, String> roleOverrides) {
+            this.roleOverrides = roleOverrides;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * （非必须）过滤器指标设置
+     */
+    private Metrics metrics;
+
+    public static class Metrics {
+        /**
+         * （非必须）开启过滤器指标，引入 micrometer 时生效，默认开启
+         */
+        private Boolean enable;
+
+        /**
+         * （非必须）route 标签最多的取值个数，超出的路由记为 OTHER，默认 200
+         */
+        private Integer maxRoutes;
+
+        public Boolean getEnable() {
+            if (enable == null) enable = true;
+            return enable;
+        }
+
+        public void setEnable(Boolean enable) {
+            this.enable = enable;
+        }
+
+        public Integer getMaxRoutes() {
+            if (maxRoutes == null) maxRoutes = 200;
+            return maxRoutes;
+        }
+
+        public void setMaxRoutes(Integer maxRoutes) {
+            this.maxRoutes = maxRoutes;
+        }
+    }
+
+    /**
+     * （非必须）请求头名称设置
+     */
+    private RequestHeader requestHeader;
+
+    public static class RequestHeader {
+        /**
+         * （非必须）平台，默认 platform
+         */
+        private String platform;
+
+        /**
+         * （非必须）渠道，默认 channel
+         */
+        private String channel;
+
+        /**
+         * （非必须）版本，默认 version
+         */
+        private String version;
+
+        /**
+         * （非必须）设备id，默认 deviceId
+         */
+        private String deviceId;
+
+        /**
+         * （非必须）按顺序查找客户端 ip 的请求头，都没有时使用连接的地址，默认与 IPUtils 相同
+         */
+        private List<String> ip;
+
+        /**
+         * （非必须）可信代理的地址段，例如 10.0.0.0/8、fd00::/8、127.0.0.1；
+         * 配置后只有连接来自可信代理时才读取 forwardedFor，并从右向左取第一个不可信的地址作为客户端 ip
+         */
+        private List<String> trustedProxies;
+
+        /**
+         * （非必须）代理转发链请求头，仅配置了可信代理时使用，默认 X-Forwarded-For
+         */
+        private String forwardedFor;
+
+        public String getPlatform() {
+            if (platform == null) platform = AuthConstant.HEADER_KEY_PLATFORM;
+            return platform;
+        }
+
+        public void setPlatform(String platform) {
+            this.platform = platform;
+        }
+
+        public String getChannel() {
+            if (channel == null) channel = AuthConstant.HEADER_KEY_CHANNEL;
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        public String getVersion() {
+            if (version == null) version = AuthConstant.HEADER_KEY_VERSION;
+            return version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+        public String getDeviceId() {
+            if (deviceId == null) deviceId = AuthConstant.HEADER_KEY_DEVICEID;
+            return deviceId;
+        }
+
+        public void setDeviceId(String deviceId) {
+            this.deviceId = deviceId;
+        }
+
+        public List<String> getIp() {
+            if (ip == null) ip = new ArrayList<>(IPUtils.IP_HEADERS);
+            return ip;
+        }
+
+        public void setIp(List<String> ip) {
+            this.ip = ip;
+        }
+
+        public List<String> getTrustedProxies() {
+            if (trustedProxies == null) trustedProxies = new ArrayList<>();
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(List<String> trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public String getForwardedFor() {
+            if (forwardedFor == null) forwardedFor = "X-Forwarded-For";
+            return forwardedFor;
+        }
+
+        public void setForwardedFor(String forwardedFor) {
+            this.forwardedFor = forwardedFor;
+        }
+    }
+
+    /**
+     * （非必须）操作日志队列设置
+     */
+    private OperLogQueue operLogQueue;
+
+    public static class OperLogQueue {
+        public enum OverflowPolicy {
+            /**
+             * 队列满时丢弃新的日志
+             */
+            DROP,
+            /**
+             * 队列超过四分之三时按 sampleRate 抽样写入，满时丢弃
+             */
+            SAMPLE,
+            /**
+             * 队列满时阻塞调用线程，最多等待 blockTimeout 毫秒，超时后丢弃；调用线程为事件循环等非阻塞线程时按 DROP 处理
+             */
+            BLOCK
+        }
+
+        /**
+         * （非必须）队列容量，会向上取整为 2 的幂，默认 8192
+         */
+        private Integer capacity;
+
+        /**
+         * （非必须）每批写入的最大条数，默认 100
+         */
+        private Integer batchSize;
+
+        /**
+         * （非必须）不足一批时最长等待的时间，单位毫秒，默认 1000
+         */
+        private Long flushInterval;
+
+        /**
+         * （非必须）队列满时的处理策略，默认 DROP
+         */
+        private OverflowPolicy overflowPolicy;
+
+        /**
+         * （非必须）SAMPLE 策略下每多少条写入一条，默认 10
+         */
+        private Integer sampleRate;
+
+        /**
+         * （非必须）BLOCK 策略下最长等待的时间，单位毫秒，默认 100
+         */
+        private Long blockTimeout;
+
+        public Integer getCapacity() {
+            if (capacity == null) capacity = 8192;
+            return capacity;
+        }
+
+        public void setCapacity(Integer capacity) {
+            this.capacity = capacity;
+        }
+
+        public Integer getBatchSize() {
+            if (batchSize == null) batchSize = 100;
+            return batchSize;
+        }
+
+        public void setBatchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Long getFlushInterval() {
+            if (flushInterval == null) flushInterval = 1000L;
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Long flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            if (overflowPolicy == null) overflowPolicy = OverflowPolicy.DROP;
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public Integer getSampleRate() {
+            if (sampleRate == null) sampleRate = 10;
+            return sampleRate;
+        }
+
+        public void setSampleRate(Integer sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public Long getBlockTimeout() {
+            if (blockTimeout == null) blockTimeout = 100L;
+            return blockTimeout;
+        }
+
+        public void setBlockTimeout(Long blockTimeout) {
+            this.blockTimeout = blockTimeout;
+        }
+    }
+
+    public static class CacheScheduler {
+        /**
+         * （非必须）最大线程数，默认 CPU 核数的 10 倍
+         */
+        private Integer threadCap;
+
+        /**
+         * （非必须）线程全部繁忙时最多排队的任务数，默认 100000
+         */
+        private Integer queuedTaskCap;
+
+        public Integer getThreadCap() {
+            if (threadCap == null) threadCap = Runtime.getRuntime().availableProcessors() * 10;
+            return threadCap;
+        }
+
+        public void setThreadCap(Integer threadCap) {
+            this.threadCap = threadCap;
+        }
+
+        public Integer getQueuedTaskCap() {
+            if (queuedTaskCap == null) queuedTaskCap = 100000;
+            return queuedTaskCap;
+        }
+
+        public void setQueuedTaskCap(Integer queuedTaskCap) {
+            this.queuedTaskCap = queuedTaskCap;
+        }
+    }
+
+    public static class ClaimsCache {
+        /**
+         * （非必须）开启 token 解析结果缓存，默认开启
+         */
+        private Boolean enable;
+
+        /**
+         * （非必须）最大缓存条目数，默认 10000
+         */
+        private Long maximumSize;
+
+        public Boolean getEnable() {
+            if (enable == null) enable = true;
+            return enable;
+        }
+
+        public void setEnable(Boolean enable) {
+            this.enable = enable;
+        }
+
+        public Long getMaximumSize() {
+            if (maximumSize == null) maximumSize = 10000L;
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
+    public static class Stateless {
+        /**
+         * （非必须）开启无状态令牌
+         * 开启后令牌中直接携带 userNo、roles 和过期时间（AES-GCM 加密并认证），校验时不再访问缓存；
+         * auth 传入的其他 parameters 不会保存，排他授权不生效；
+         * 注销的令牌记录在拒绝列表中，直到令牌过期
+         */
+        private Boolean enable;
+
+        /**
+         * （非必须）令牌秘钥，默认使用 domain
+         */
+        private String secret;
+
+        /**
+         * （非必须）拒绝列表最大容量，默认 0 表示不限制；
+         * 已满时生成时间不晚于被拒绝令牌的无状态令牌在其过期之前全部拒绝
+         */
+        private Long denyListMaximumSize;
+
+        public Boolean getEnable() {
+            if (enable == null) enable = false;
+            return enable;
+        }
+
+        public void setEnable(Boolean enable) {
+            this.enable = enable;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public Long getDenyListMaximumSize() {
+            if (denyListMaximumSize == null) denyListMaximumSize = 0L;
+            return denyListMaximumSize;
+        }
+
+        public void setDenyListMaximumSize(Long denyListMaximumSize) {
+            this.denyListMaximumSize = denyListMaximumSize;
+        }
+    }
+
     public static class GuavaCache {
         /**
          * （非必须）设置缓存容器的初始容量
@@ -98,6 +712,24 @@ public class AuthProperties {
         this.enableExclude = enableExclude;
     }
 
+    public String getCacheType() {
+        if (cacheType == null) cacheType = "guava";
+        return cacheType;
+    }
+
+    public void setCacheType(String cacheType) {
+        this.cacheType = cacheType;
+    }
+
+    public Integer getTokenVersion() {
+        if (tokenVersion == null) tokenVersion = 1;
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public String getTokenPrefix() {
         return tokenPrefix;
     }
@@ -122,6 +754,105 @@ public class AuthProperties {
         this.domain = domain;
     }
 
+    public List<String> getRoles() {
+        if (roles == null) roles = new ArrayList<>();
+        return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+    }
+
+    public NearCache getNearCache() {
+        if (nearCache == null) nearCache = new NearCache();
+        return nearCache;
+    }
+
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    public OffHeap getOffHeap() {
+        if (offHeap == null) offHeap = new OffHeap();
+        return offHeap;
+    }
+
+    public void setOffHeap(OffHeap offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    public Snapshot getSnapshot() {
+        if (snapshot == null) snapshot = new Snapshot();
+        return snapshot;
+    }
+
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public WhiteList getWhiteList() {
+        if (whiteList == null) whiteList = new WhiteList();
+        return whiteList;
+    }
+
+    public void setWhiteList(WhiteList whiteList) {
+        this.whiteList = whiteList;
+    }
+
+    public Metrics getMetrics() {
+        if (metrics == null) metrics = new Metrics();
+        return metrics;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public RequestHeader getRequestHeader() {
+        if (requestHeader == null) requestHeader = new RequestHeader();
+        return requestHeader;
+    }
+
+    public void setRequestHeader(RequestHeader requestHeader) {
+        this.requestHeader = requestHeader;
+    }
+
+    public OperLogQueue getOperLogQueue() {
+        if (operLogQueue == null) operLogQueue = new OperLogQueue();
+        return operLogQueue;
+    }
+
+    public void setOperLogQueue(OperLogQueue operLogQueue) {
+        this.operLogQueue = operLogQueue;
+    }
+
+    public CacheScheduler getCacheScheduler() {
+        if (cacheScheduler == null) cacheScheduler = new CacheScheduler();
+        return cacheScheduler;
+    }
+
+    public void setCacheScheduler(CacheScheduler cacheScheduler) {
+        this.cacheScheduler = cacheScheduler;
+    }
+
+    public ClaimsCache getClaimsCache() {
+        if (claimsCache == null) claimsCache = new ClaimsCache();
+        return claimsCache;
+    }
+
+    public void setClaimsCache(ClaimsCache claimsCache) {
+        this.claimsCache = claimsCache;
+    }
+
+    public Stateless getStateless() {
+        if (stateless == null) stateless = new Stateless();
+        return stateless;
+    }
+
+    public void setStateless(Stateless stateless) {
+        this.stateless = stateless;
+    }
+
     public GuavaCache getGuavaCache() {
         if (guavaCache == null) guavaCache = new GuavaCache();
         return guavaCache;
@@ -15,6 +15,10 @@ public class LogicSession {
      * session
      */
     private Optional<Session> sessionOptional = Optional.empty();
+    /**
+     * 角色位图，创建 session 时根据 roles 编译
+     */
+    private long[] roleBits = new long[0];
 
     public Boolean getValidLogin() {
         return validLogin;
@@ -39,4 +43,12 @@ public class LogicSession {
     public void setSessionOptional(Optional<Session> sessionOptional) {
         this.sessionOptional = sessionOptional;
     }
+
+    public long[] getRoleBits() {
+        return roleBits;
+    }
+
+    public void setRoleBits(long[] roleBits) {
+        this.roleBits = roleBits;
+    }
 }
@@ -0,0 +1,129 @@
+package com.boot.auth.starter.common;
+
+/**
+ * token 解析后的内容（不可变）
+ */
+public final class TokenClaims {
+    /**
+     * token 格式版本
+     */
+    private final int version;
+    /**
+     * 原始 token
+     */
+    private final String token;
+    /**
+     * 用户编号
+     */
+    private final String userNo;
+    /**
+     * 权限组
+     */
+    private final String group;
+    /**
+     * token 生成时间，单位毫秒
+     */
+    private final long time;
+    /**
+     * 排他序号，0 表示没有
+     */
+    private final long excludeSerial;
+    /**
+     * 缓存 key（不含 tokenPrefix）
+     */
+    private final String key;
+    /**
+     * 权限角色，仅无状态令牌携带
+     */
+    private final String roles;
+    /**
+     * 过期时间，单位毫秒，仅无状态令牌携带，其他令牌为 0
+     */
+    private final long expireAt;
+    /**
+     * 编译后的权限角色，仅无状态令牌携带，见 RoleRegistrySupport.encode
+     */
+    private final long[] roleBits;
+
+    public TokenClaims(int version, String token, String userNo, String group, long time, long excludeSerial, String key) {
+        this(version, token, userNo, group, time, excludeSerial, key, null, 0L);
+    }
+
+    public TokenClaims(int version, String token, String userNo, String group, long time, long excludeSerial, String key,
+                       String roles, long expireAt) {
+        this(version, token, userNo, group, time, excludeSerial, key, roles, expireAt, null);
+    }
+
+    private TokenClaims(int version, String token, String userNo, String group, long time, long excludeSerial, String key,
+                        String roles, long expireAt, long[] roleBits) {
+        this.version = version;
+        this.token = token;
+        this.userNo = userNo;
+        this.group = group;
+        this.time = time;
+        this.excludeSerial = excludeSerial;
+        this.key = key;
+        this.roles = roles;
+        this.expireAt = expireAt;
+        this.roleBits = roleBits;
+    }
+
+    /**
+     * 附带编译后的权限角色
+     *
+     * @param roleBits RoleRegistrySupport.encode 的结果
+     * @return 新的 TokenClaims
+     */
+    public TokenClaims withRoleBits(long[] roleBits) {
+        return new TokenClaims(version, token, userNo, group, time, excludeSerial, key, roles, expireAt, roleBits);
+    }
+
+    /**
+     * 是否为无状态令牌
+     *
+     * @return true 表示令牌自身携带了会话信息，不需要查询缓存
+     */
+    public boolean isStateless() {
+        return roles != null;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getUserNo() {
+        return userNo;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getExcludeSerial() {
+        return excludeSerial;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getRoles() {
+        return roles;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public long[] getRoleBits() {
+        return roleBits;
+    }
+}
@@ -0,0 +1,110 @@
+package com.boot.auth.starter.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 预编译的路由权限规则（不可变）
+ * 启动时根据 Auth、IgnoreLogin、NoAuthGetSession 注解生成，请求时不再反射读取注解
+ */
+public final class AuthRule {
+    public enum Type {
+        /**
+         * 没有 Auth 注解，直接通过
+         */
+        PUBLIC,
+        /**
+         * IgnoreLogin 注解，不校验登录信息
+         */
+        IGNORE_LOGIN,
+        /**
+         * NoAuthGetSession 注解，不强制校验权限
+         */
+        SESSION_OPTIONAL,
+        /**
+         * Auth 注解，需要具备其中一个角色
+         */
+        ROLES_REQUIRED
+    }
+
+    /**
+     * 规则类型
+     */
+    private final Type type;
+    /**
+     * 是否需要写入 Session，仅 SESSION_OPTIONAL 使用
+     */
+    private final boolean loginRequired;
+    /**
+     * 需要的角色，仅 ROLES_REQUIRED 使用
+     */
+    private final Set<String> roles;
+    /**
+     * 需要的角色位图，仅 ROLES_REQUIRED 使用
+     */
+    private final long[] roleMask;
+    /**
+     * 操作日志记录类型，没有 OperLog 注解或未开启时为 null
+     */
+    private final String operType;
+    /**
+     * 路由，例如 [GET] /user/{id}
+     */
+    private final String route;
+    /**
+     * 处理方法，例如 UserController#get
+     */
+    private final String handler;
+
+    public AuthRule(Type type, boolean loginRequired, String[] roles, long[] roleMask, String operType,
+                    String route, String handler) {
+        this.type = type;
+        this.loginRequired = loginRequired;
+        this.roles = roles == null || roles.length == 0 ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(roles)));
+        this.roleMask = roleMask == null ? new long[0] : roleMask.clone();
+        this.operType = operType;
+        this.route = route;
+        this.handler = handler;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isLoginRequired() {
+        return loginRequired;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * 需要的角色位图
+     *
+     * @return 位图，调用方不可修改
+     */
+    public long[] getRoleMask() {
+        return roleMask;
+    }
+
+    /**
+     * 操作日志记录类型
+     *
+     * @return 不需要记录操作日志时返回 null
+     */
+    public String getOperType() {
+        return operType;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+}
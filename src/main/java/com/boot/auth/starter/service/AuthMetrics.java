@@ -0,0 +1,105 @@
+package com.boot.auth.starter.service;
+
+import com.boot.auth.starter.model.AuthRule;
+
+/**
+ * 过滤器指标
+ * 没有引入 micrometer 或没有 MeterRegistry 时使用 NOOP，所有方法都是空操作，不会产生任何对象分配
+ */
+public interface AuthMetrics {
+    /**
+     * 空实现
+     */
+    AuthMetrics NOOP = new AuthMetrics() {
+    };
+
+    enum Stage {
+        /**
+         * 白名单匹配
+         */
+        WHITELIST("whitelist"),
+        /**
+         * 路由匹配
+         */
+        HANDLER("handler"),
+        /**
+         * token 解码解密
+         */
+        DECODE("decode"),
+        /**
+         * 缓存读取
+         */
+        CACHE("cache"),
+        /**
+         * 会话 json 解析
+         */
+        PARSE("parse"),
+        /**
+         * 角色校验
+         */
+        ROLE("role");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    enum Outcome {
+        PASS("pass"),
+        NO_LOGIN("no-login"),
+        TOKEN_INVALID("token-invalid"),
+        FORBIDDEN("forbidden");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    /**
+     * 是否记录指标
+     *
+     * @return true 表示记录
+     */
+    default boolean enabled() {
+        return false;
+    }
+
+    /**
+     * 阶段开始
+     *
+     * @return 开始时间，单位纳秒，不记录指标时返回 0
+     */
+    default long start() {
+        return enabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 阶段结束
+     *
+     * @param stage 阶段
+     * @param start start 方法返回的开始时间
+     */
+    default void record(Stage stage, long start) {
+    }
+
+    /**
+     * 记录一次鉴权结果
+     *
+     * @param rule    路由权限规则
+     * @param outcome 结果
+     */
+    default void decision(AuthRule rule, Outcome outcome) {
+    }
+}
@@ -1,8 +1,11 @@
 package com.boot.auth.starter.service;
 
+import com.boot.auth.starter.common.TokenClaims;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Map;
 
 public interface AuthService {
@@ -22,6 +25,13 @@ public interface AuthService {
      */
     String auth(String group, String userNo, String roles, Map<String, Object> parameters, ServerHttpResponse response, ServerHttpRequest request) throws Exception;
 
+    /**
+     * 生成token，缓存写入不阻塞调用线程，参数同 auth
+     *
+     * @return 返回生成的token
+     */
+    Mono<String> authAsync(String group, String userNo, String roles, Map<String, Object> parameters, ServerHttpResponse response, ServerHttpRequest request);
+
     /**
      * 检测token是否有效
      *
@@ -30,6 +40,14 @@ public interface AuthService {
      */
     Boolean checkToken(ServerHttpRequest request);
 
+    /**
+     * 检测token是否有效，缓存读取不阻塞调用线程
+     *
+     * @param request HttpServletRequest
+     * @return true 有效
+     */
+    Mono<Boolean> checkTokenAsync(ServerHttpRequest request);
+
     /**
      * 解析 token
      *
@@ -46,6 +64,22 @@ public interface AuthService {
      */
     Map<String, String> analysisToken(String token);
 
+    /**
+     * 解析 token
+     *
+     * @param request HttpServletRequest
+     * @return token内容，没有 token 时返回 null
+     */
+    TokenClaims analysisTokenClaims(ServerHttpRequest request);
+
+    /**
+     * 解析 token
+     *
+     * @param token token
+     * @return token内容，没有 token 时返回 null
+     */
+    TokenClaims analysisTokenClaims(String token);
+
     /**
      * 删除当前请求者的auth
      *
@@ -53,4 +87,37 @@ public interface AuthService {
      * @param request  http request
      */
     Boolean deleteAuth(ServerHttpResponse response, ServerHttpRequest request);
+
+    /**
+     * 删除当前请求者的auth，缓存删除不阻塞调用线程
+     *
+     * @param response http response
+     * @param request  http request
+     */
+    Mono<Boolean> deleteAuthAsync(ServerHttpResponse response, ServerHttpRequest request);
+
+    /**
+     * 查询用户的全部会话，开销只与该用户的会话数有关
+     * 无状态令牌不写入缓存，不会出现在结果中；会话索引只在当前节点内存中，CacheService.isShared 为 true 时不可用
+     *
+     * @param userNo 用户唯一标识
+     * @return 会话内容，key 参考 AuthConstant 中的 MAP_KEY_USER_NO、MAP_KEY_GROUP、MAP_KEY_TIME、MAP_KEY_KEY、MAP_KEY_EXPIRE
+     */
+    List<Map<String, String>> listSessions(String userNo);
+
+    /**
+     * 注销用户的全部会话，用于修改密码、封禁等场景；只对当前节点的会话索引生效，CacheService.isShared 为 true 时不可用
+     *
+     * @param userNo 用户唯一标识
+     * @return 注销的会话数
+     */
+    Integer revokeAll(String userNo);
+
+    /**
+     * 注销用户的全部会话，缓存删除不阻塞调用线程
+     *
+     * @param userNo 用户唯一标识
+     * @return 注销的会话数
+     */
+    Mono<Integer> revokeAllAsync(String userNo);
 }
@@ -34,7 +34,7 @@ public interface CacheService {
      *
      * @param key         要存储的key
      * @param data        存储的数据json
-     * @param overdueTime 过期时间，单位秒
+     * @param overdueTime 过期时间，单位秒，按条目生效，小于等于 0 表示永不过期
      */
     void put(String key, String data, Long overdueTime);
 
@@ -77,7 +77,7 @@ public interface CacheService {
      * 查询过期时间
      *
      * @param key 要查询的key
-     * @return 过期时间，单位秒
+     * @return 剩余的过期时间，单位秒，不存在时返回 0，永不过期时返回 Long.MAX_VALUE
      */
     Long getExpire(String key);
 
@@ -107,4 +107,48 @@ public interface CacheService {
      * 执行loader可能导致的异常
      */
     boolean exclude(String key, Callable<Object> loader) throws ExecutionException;
+
+    /**
+     * 是否为阻塞实现
+     * 远程缓存等会阻塞调用线程的实现应返回 true（默认），非阻塞适配器会把调用放到独立线程池中执行；
+     * 进程内缓存可以返回 false，直接在当前线程执行
+     *
+     * @return true 表示调用会阻塞
+     */
+    default boolean isBlocking() {
+        return true;
+    }
+
+    /**
+     * 条目是否在多个节点之间共享
+     * 远程缓存等共享实现应返回 true（默认）；进程内缓存可以返回 false。
+     * 共享时 UserSessionIndexSupport 只能看到当前节点登录的会话，AuthService 的 listSessions、revokeAll 不可用
+     *
+     * @return true 表示多个节点共享
+     */
+    default boolean isShared() {
+        return true;
+    }
+
+    /**
+     * 遍历全部未过期的条目，用于快照等场景
+     * 远程缓存自身负责持久化，默认不遍历任何条目；进程内缓存应复写本方法
+     *
+     * @param consumer 条目处理
+     */
+    default void forEach(EntryConsumer consumer) {
+    }
+
+    /**
+     * 条目处理
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        /**
+         * @param key      key
+         * @param data     存储的数据
+         * @param expireAt 过期时间，单位毫秒，永不过期时为 Long.MAX_VALUE
+         */
+        void accept(String key, String data, long expireAt);
+    }
 }
@@ -1,5 +1,10 @@
 package com.boot.auth.starter.service;
 
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.RequestPath;
+
+import java.util.Arrays;
+
 public interface FilterWhiteListService {
 
     /**
@@ -19,11 +24,42 @@ public interface FilterWhiteListService {
      */
     boolean isWhiteList(String path);
 
+    /**
+     * 按请求方法匹配白名单
+     * 先匹配 addWhiteList(HttpMethod, String...) 增加的规则，没有匹配时再按 isWhiteList(String) 匹配；
+     * 区分请求方法的规则使用去掉 contextPath 后的路由匹配，普通规则与之前相同，使用完整的请求路由匹配
+     *
+     * @param method 请求方法
+     * @param path   请求路由
+     * @return true表示在白名单中
+     */
+    default boolean isWhiteList(HttpMethod method, RequestPath path) {
+        return isWhiteList(path.value());
+    }
+
     /**
      * 增加白名单路由
+     * 以请求方法开头、与路由之间用空格隔开的规则（例如 GET /public/**）等同于 addWhiteList(HttpMethod, String...)
      *
      * @param paths 要增加的白名单路由
      */
     void addWhiteList(String... paths);
+
+    /**
+     * 增加区分请求方法的白名单规则，使用 spring PathPattern 语法，例如 /public/**、/users/{id}、/**&#47;*.css
+     * 默认转换为 "GET /public/**" 格式后交给 addWhiteList(String...)，method 为 null 时为每个标准请求方法各增加一条
+     *
+     * @param method   请求方法，null 表示全部方法
+     * @param patterns 要增加的白名单规则
+     */
+    default void addWhiteList(HttpMethod method, String... patterns) {
+        if (patterns == null) return;
+        HttpMethod[] methods = method == null ? HttpMethod.values() : new HttpMethod[]{method};
+        addWhiteList(Arrays.stream(methods)
+                .flatMap(m -> Arrays.stream(patterns)
+                        .filter(pattern -> pattern != null && !pattern.isBlank())
+                        .map(pattern -> m.name() + " " + pattern.trim()))
+                .toArray(String[]::new));
+    }
 }
 
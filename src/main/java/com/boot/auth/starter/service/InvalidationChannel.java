@@ -0,0 +1,25 @@
+package com.boot.auth.starter.service;
+
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效广播通道
+ * 近端缓存在 remove、deleteAuth、排他登录时通过本通道通知其他节点丢弃本地副本。
+ * 多节点部署时请基于 redis pub/sub、消息队列等实现本接口并注册为 spring bean；
+ * 没有注册时使用只在当前 JVM 内广播的 LoopbackInvalidationChannelImpl
+ */
+public interface InvalidationChannel {
+    /**
+     * 广播失效的 key
+     *
+     * @param key 失效的key
+     */
+    void publish(String key);
+
+    /**
+     * 订阅失效通知，收到其他节点（包括当前节点）发布的 key 时回调
+     *
+     * @param listener 回调
+     */
+    void subscribe(Consumer<String> listener);
+}
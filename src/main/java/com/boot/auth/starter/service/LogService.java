@@ -2,6 +2,8 @@ package com.boot.auth.starter.service;
 
 import com.boot.auth.starter.model.OperLogAnnotationEntity;
 
+import java.util.List;
+
 public interface LogService {
 
     /**
@@ -10,4 +12,14 @@ public interface LogService {
      * @param logEntity 要增加的内容
      */
     void addLog(OperLogAnnotationEntity logEntity);
+
+    /**
+     * 批量增加Log日志，由操作日志队列的后台线程调用
+     * 默认逐条调用 addLog，支持批量写入的实现请复写本方法
+     *
+     * @param logEntities 要增加的内容
+     */
+    default void addLogs(List<OperLogAnnotationEntity> logEntities) {
+        logEntities.forEach(this::addLog);
+    }
 }
@@ -1,5 +1,10 @@
 package com.boot.auth.starter.service;
 
+import com.boot.auth.starter.common.RestStatus;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+
 public interface OutJsonService {
 
     /**
@@ -10,4 +15,28 @@ public interface OutJsonService {
      * @return 返回json内容
      */
     String errorOutJson(String msg, String code);
+
+    /**
+     * 拒绝访问时输出的内容，启动时每个状态只调用一次，结果会被缓存复用
+     *
+     * @param restStatus 状态
+     * @return 返回 UTF-8 编码的json内容
+     */
+    default byte[] errorOutBytes(RestStatus restStatus) {
+        return errorOutJson(restStatus.getMsg(), String.valueOf(restStatus.value())).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 拒绝访问时的 http 状态码，启动时每个状态只调用一次，结果会被缓存复用
+     *
+     * @param restStatus 状态
+     * @return 未登录、token失效返回 401，无权访问返回 403，其他返回 500
+     */
+    default HttpStatus errorHttpStatus(RestStatus restStatus) {
+        return switch (restStatus) {
+            case USER_NOLOGIIN, USER_TOKEN_INVALID -> HttpStatus.UNAUTHORIZED;
+            case AUTH_NO -> HttpStatus.FORBIDDEN;
+            default -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+    }
 }
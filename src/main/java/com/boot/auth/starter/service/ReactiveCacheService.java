@@ -0,0 +1,44 @@
+package com.boot.auth.starter.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 非阻塞缓存业务
+ * AuthFilter、SessionResolver 和 AuthService 的异步方法通过本接口访问缓存，不会阻塞 Netty 事件循环线程。
+ * 默认实现会把同步的 CacheService 适配为本接口；使用原生响应式客户端的缓存可以直接实现本接口并注册为 spring bean
+ */
+public interface ReactiveCacheService {
+    /**
+     * 存储
+     *
+     * @param key         要存储的key
+     * @param data        存储的数据json
+     * @param overdueTime 过期时间，单位秒
+     * @return 存储完成
+     */
+    Mono<Void> put(String key, String data, Long overdueTime);
+
+    /**
+     * 获取
+     *
+     * @param key 要获取的key
+     * @return 获取内容，不存在时为空
+     */
+    Mono<String> get(String key);
+
+    /**
+     * 查询过期时间
+     *
+     * @param key 要查询的key
+     * @return 过期时间，单位秒
+     */
+    Mono<Long> getExpire(String key);
+
+    /**
+     * 移除
+     *
+     * @param key 要移除的key
+     * @return 移除完成
+     */
+    Mono<Void> remove(String key);
+}
@@ -3,10 +3,16 @@ package com.boot.auth.starter.service.impl;
 import com.boot.auth.starter.common.AuthConstant;
 import com.boot.auth.starter.common.AuthProperties;
 import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.common.TokenClaims;
 import com.boot.auth.starter.exception.AuthException;
 import com.boot.auth.starter.service.AuthService;
 import com.boot.auth.starter.service.CacheService;
-import com.boot.auth.starter.utils.AESUtil;
+import com.boot.auth.starter.service.ReactiveCacheService;
+import com.boot.auth.starter.support.RoleRegistrySupport;
+import com.boot.auth.starter.support.TokenClaimsCacheSupport;
+import com.boot.auth.starter.support.TokenCodecSupport;
+import com.boot.auth.starter.support.TokenDenyListSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
 import com.boot.auth.starter.utils.CookieUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -15,89 +21,201 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class AuthServiceImpl implements AuthService {
     private final static Logger log = LoggerFactory.getLogger(AuthServiceImpl.class);
     final
     CacheService cacheService;
+    ReactiveCacheService reactiveCacheService;
     ObjectMapper objectMapper;
     AuthProperties authProperties;
+    TokenCodecSupport tokenCodecSupport;
+    TokenDenyListSupport tokenDenyListSupport;
+    TokenClaimsCacheSupport tokenClaimsCacheSupport;
+    UserSessionIndexSupport userSessionIndexSupport;
+    RoleRegistrySupport roleRegistrySupport;
     final static String TOKEN_NAME = AuthConstant.HEAD_TOKEN_NAME;
 
-    public AuthServiceImpl(CacheService cacheService, ObjectMapper objectMapper, AuthProperties authProperties) {
+    public AuthServiceImpl(CacheService cacheService, ReactiveCacheService reactiveCacheService,
+                           ObjectMapper objectMapper, AuthProperties authProperties, TokenCodecSupport tokenCodecSupport, TokenDenyListSupport tokenDenyListSupport,
+                           TokenClaimsCacheSupport tokenClaimsCacheSupport, UserSessionIndexSupport userSessionIndexSupport,
+                           RoleRegistrySupport roleRegistrySupport) {
         this.cacheService = cacheService;
+        this.reactiveCacheService = reactiveCacheService;
         this.objectMapper = objectMapper;
         this.authProperties = authProperties;
+        this.tokenCodecSupport = tokenCodecSupport;
+        this.tokenDenyListSupport = tokenDenyListSupport;
+        this.tokenClaimsCacheSupport = tokenClaimsCacheSupport;
+        this.userSessionIndexSupport = userSessionIndexSupport;
+        this.roleRegistrySupport = roleRegistrySupport;
     }
 
     @Override
     public String auth(String group, String userNo, String roles, Map<String, Object> parameters,
                        ServerHttpResponse response, ServerHttpRequest request) throws Exception {
         try {
-            Map<String, String> oldTokenMap = analysisToken(request);
+            TokenClaims oldClaims = analysisTokenClaims(request);
             //删除原有的token
-            delToken(oldTokenMap, response, request);
+            delToken(oldClaims, response, request);
         } catch (Exception e) {
             delToken(response, request);
         }
-        String key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, userNo, group, System.currentTimeMillis() + "");
-        if (authProperties.getEnableExclude()) {
-            key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, key, "E" + System.currentTimeMillis());
+        IssuedToken issued = issue(group, userNo, roles, parameters);
+        if (issued.cacheKey() != null) {
+            cacheService.put(issued.cacheKey(), issued.data(), authProperties.getOverdueTime());
+            indexSession(issued.cacheKey());
         }
+        return writeToken(issued, response, request);
+    }
+
+    @Override
+    public Mono<String> authAsync(String group, String userNo, String roles, Map<String, Object> parameters,
+                                  ServerHttpResponse response, ServerHttpRequest request) {
+        return deleteAuthAsync(response, request)
+                .then(Mono.fromCallable(() -> issue(group, userNo, roles, parameters)))
+                .flatMap(issued -> {
+                    Mono<Void> put = issued.cacheKey() == null ? Mono.empty()
+                            : reactiveCacheService.put(issued.cacheKey(), issued.data(), authProperties.getOverdueTime())
+                            .doOnSuccess(v -> indexSession(issued.cacheKey()));
+                    return put.then(Mono.fromCallable(() -> writeToken(issued, response, request)));
+                });
+    }
+
+    /**
+     * 登记到用户会话索引，共享缓存时索引只能看到当前节点的会话，不登记
+     */
+    private void indexSession(String cacheKey) {
+        if (cacheService.isShared()) return;
+        long overdueTime = authProperties.getOverdueTime();
+        userSessionIndexSupport.add(cacheKey, overdueTime > 0 ? System.currentTimeMillis() + overdueTime * 1000L : Long.MAX_VALUE);
+    }
+
+    /**
+     * 共享缓存时 listSessions、revokeAll 不可用
+     */
+    private UnsupportedOperationException sharedSessionIndex() {
+        return new UnsupportedOperationException("CacheService 为共享缓存时用户会话索引只包含当前节点的会话,不支持 listSessions、revokeAll");
+    }
+
+    /**
+     * 生成的 token
+     *
+     * @param cacheKey 缓存 key，无状态令牌为 null
+     * @param data     要写入缓存的用户信息
+     * @param token    token
+     */
+    private record IssuedToken(String cacheKey, String data, String token) {
+    }
+
+    /**
+     * 生成token以及要写入缓存的内容，不做任何 IO
+     */
+    private IssuedToken issue(String group, String userNo, String roles, Map<String, Object> parameters) throws Exception {
+        long time = System.currentTimeMillis();
+        if (authProperties.getStateless().getEnable()) {
+            //无状态令牌，会话信息由令牌自身携带，不写入缓存
+            String token = tokenCodecSupport.encodeStateless(userNo, group, roles, time,
+                    time + authProperties.getOverdueTime() * 1000L);
+            return new IssuedToken(null, null, token);
+        }
+        long excludeSerial = authProperties.getEnableExclude() ? System.currentTimeMillis() : 0L;
+        String key = tokenCodecSupport.key(userNo, group, time, excludeSerial);
         //生成token
-        String token = AESUtil.encrypt(key, authProperties.getDomain());
+        String token = tokenCodecSupport.encode(userNo, group, time, excludeSerial);
         if (parameters == null) parameters = new HashMap<>();
         parameters.put(AuthConstant.SESSION_USER_NO, userNo);
         parameters.put(AuthConstant.SESSION_ROLES, roles);
-        cacheService.put(authProperties.getTokenPrefix() + key, objectMapper.writeValueAsString(parameters),
-                authProperties.getOverdueTime());
-        CookieUtils.setCookie(request, response, TOKEN_NAME, token, authProperties.getOverdueTime().intValue());
-        response.getHeaders().set(TOKEN_NAME, token);
-        return token;
+        parameters.put(AuthConstant.SESSION_ROLE_BITS, roleRegistrySupport.encode(roles));
+        return new IssuedToken(authProperties.getTokenPrefix() + key, objectMapper.writeValueAsString(parameters), token);
+    }
+
+    private String writeToken(IssuedToken issued, ServerHttpResponse response, ServerHttpRequest request) {
+        CookieUtils.setCookie(request, response, TOKEN_NAME, issued.token(), authProperties.getOverdueTime().intValue());
+        response.getHeaders().set(TOKEN_NAME, issued.token());
+        return issued.token();
     }
 
-    private void delToken(Map<String, String> oldTokenMap, ServerHttpResponse response, ServerHttpRequest request) {
-        if (oldTokenMap.isEmpty() || !oldTokenMap.containsKey(AuthConstant.MAP_KEY_KEY)) return;
-        cacheService.remove(authProperties.getTokenPrefix() + oldTokenMap.get(AuthConstant.MAP_KEY_KEY));
+    private void delToken(TokenClaims oldClaims, ServerHttpResponse response, ServerHttpRequest request) {
+        if (oldClaims == null) return;
+        tokenClaimsCacheSupport.invalidate(oldClaims.getToken());
+        if (oldClaims.isStateless()) {
+            tokenDenyListSupport.deny(oldClaims);
+        } else {
+            cacheService.remove(authProperties.getTokenPrefix() + oldClaims.getKey());
+            userSessionIndexSupport.remove(authProperties.getTokenPrefix() + oldClaims.getKey());
+        }
         delToken(response, request);
     }
 
+    private Mono<Void> delTokenAsync(TokenClaims oldClaims, ServerHttpResponse response, ServerHttpRequest request) {
+        if (oldClaims == null) return Mono.empty();
+        tokenClaimsCacheSupport.invalidate(oldClaims.getToken());
+        Mono<Void> remove;
+        if (oldClaims.isStateless()) {
+            tokenDenyListSupport.deny(oldClaims);
+            remove = Mono.empty();
+        } else {
+            String cacheKey = authProperties.getTokenPrefix() + oldClaims.getKey();
+            remove = reactiveCacheService.remove(cacheKey)
+                    .doOnSuccess(v -> userSessionIndexSupport.remove(cacheKey));
+        }
+        return remove.then(Mono.fromRunnable(() -> delToken(response, request)));
+    }
+
     @Override
     public Map<String, String> analysisToken(ServerHttpRequest request) {
+        return toMap(analysisTokenClaims(request));
+    }
+
+    @Override
+    public Map<String, String> analysisToken(String token) {
+        return toMap(analysisTokenClaims(token));
+    }
+
+    @Override
+    public TokenClaims analysisTokenClaims(ServerHttpRequest request) {
         String token = request.getHeaders().getFirst(TOKEN_NAME);
         if (StringUtils.isEmpty(token)) token = CookieUtils.getCookieValue(request, TOKEN_NAME);
-        return analysisToken(token);
+        return analysisTokenClaims(token);
     }
 
     @Override
-    public Map<String, String> analysisToken(String token) {
-        Map<String, String> map = new HashMap<>();
-        if (StringUtils.isEmpty(token)) return map;
-        String decryptToken = AESUtil.decrypt(token, authProperties.getDomain());
-        if (!StringUtils.hasText(decryptToken)) {
-            throw new AuthException(RestStatus.USER_TOKEN_INVALID);
-        }
-        String[] keys = decryptToken.split(AuthConstant.HEAD_TOKEN_SEPARATOR);
-        map.put(AuthConstant.MAP_KEY_TOKEN, token);
-        map.put(AuthConstant.MAP_KEY_USER_NO, keys[0]);
-        map.put(AuthConstant.MAP_KEY_GROUP, keys[1]);
-        map.put(AuthConstant.MAP_KEY_TIME, keys[2]);
-        checkOverdueTime(Long.parseLong(keys[2]));
-        String key = "";
-        if (authProperties.getEnableExclude() != null && authProperties.getEnableExclude()) {
-            if (keys.length != 4) throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
-            key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, keys[0], keys[1], keys[2], keys[3]);
+    public TokenClaims analysisTokenClaims(String token) {
+        if (StringUtils.isEmpty(token)) return null;
+        TokenClaims claims = tokenClaimsCacheSupport.get(token);
+        if (claims != null) return claims;
+        long start = System.nanoTime();
+        claims = tokenCodecSupport.decode(token);
+        if (claims == null) return null;
+        if (claims.isStateless()) {
+            if (System.currentTimeMillis() > claims.getExpireAt()) throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+            //无状态令牌的会话只保存在令牌缓存中，在这里编译一次角色位图
+            claims = claims.withRoleBits(roleRegistrySupport.encode(claims.getRoles()));
         } else {
-            key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, keys[0], keys[1], keys[2]);
+            checkOverdueTime(claims.getTime());
         }
-        map.put(AuthConstant.MAP_KEY_KEY, key);
+        tokenClaimsCacheSupport.put(claims, System.nanoTime() - start);
+        return claims;
+    }
+
+    private Map<String, String> toMap(TokenClaims claims) {
+        Map<String, String> map = new HashMap<>();
+        if (claims == null) return map;
+        map.put(AuthConstant.MAP_KEY_TOKEN, claims.getToken());
+        map.put(AuthConstant.MAP_KEY_USER_NO, claims.getUserNo());
+        map.put(AuthConstant.MAP_KEY_GROUP, claims.getGroup());
+        map.put(AuthConstant.MAP_KEY_TIME, String.valueOf(claims.getTime()));
+        map.put(AuthConstant.MAP_KEY_KEY, claims.getKey());
         return map;
     }
 
@@ -106,10 +224,8 @@ public class AuthServiceImpl implements AuthService {
      *
      * @param time token中记录的生成时间
      */
-    private void checkOverdueTime(Long time) {
-        LocalDateTime tokenTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
-        LocalDateTime overdueTime = tokenTime.plusSeconds(authProperties.getOverdueTime());
-        if (LocalDateTime.now().compareTo(overdueTime) > 0) {
+    private void checkOverdueTime(long time) {
+        if (System.currentTimeMillis() > time + authProperties.getOverdueTime() * 1000L) {
             throw new AuthException(RestStatus.USER_TOKEN_INVALID);
         }
     }
@@ -117,7 +233,7 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public Boolean deleteAuth(ServerHttpResponse response, ServerHttpRequest request) {
         try {
-            delToken(analysisToken(request), response, request);
+            delToken(analysisTokenClaims(request), response, request);
             return true;
         } catch (Exception e) {
             delToken(response, request);
@@ -125,6 +241,17 @@ public class AuthServiceImpl implements AuthService {
         }
     }
 
+    @Override
+    public Mono<Boolean> deleteAuthAsync(ServerHttpResponse response, ServerHttpRequest request) {
+        return Mono.fromCallable(() -> Optional.ofNullable(analysisTokenClaims(request)))
+                .flatMap(claims -> delTokenAsync(claims.orElse(null), response, request))
+                .thenReturn(true)
+                .onErrorResume(e -> {
+                    delToken(response, request);
+                    return Mono.just(false);
+                });
+    }
+
     private void delToken(ServerHttpResponse response, ServerHttpRequest request) {
         response.getHeaders().remove(TOKEN_NAME);
         CookieUtils.deleteCookie(request, response, TOKEN_NAME);
@@ -132,20 +259,77 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public Boolean checkToken(ServerHttpRequest request) {
-        Map<String, String> tokenMap;
+        TokenClaims claims;
         try {
-            tokenMap = analysisToken(request);
+            claims = analysisTokenClaims(request);
         } catch (Exception e) {
             return false;
         }
-        if (tokenMap.isEmpty() || !tokenMap.containsKey(AuthConstant.MAP_KEY_KEY)) return false;
+        if (claims == null) return false;
+        if (claims.isStateless()) return !tokenDenyListSupport.isDenied(claims);
         try {
-            Long expire = cacheService.getExpire(authProperties.getTokenPrefix() +
-                    tokenMap.get(AuthConstant.MAP_KEY_KEY));
+            Long expire = cacheService.getExpire(authProperties.getTokenPrefix() + claims.getKey());
             if (expire <= 0) return false;
         } catch (Exception e) {
             throw new AuthException(RestStatus.SYSTEM_ERROR);
         }
         return true;
     }
+
+    @Override
+    public Mono<Boolean> checkTokenAsync(ServerHttpRequest request) {
+        TokenClaims claims;
+        try {
+            claims = analysisTokenClaims(request);
+        } catch (Exception e) {
+            return Mono.just(false);
+        }
+        if (claims == null) return Mono.just(false);
+        if (claims.isStateless()) return Mono.just(!tokenDenyListSupport.isDenied(claims));
+        return reactiveCacheService.getExpire(authProperties.getTokenPrefix() + claims.getKey())
+                .map(expire -> expire > 0)
+                .defaultIfEmpty(false)
+                .onErrorMap(e -> new AuthException(RestStatus.SYSTEM_ERROR));
+    }
+
+    @Override
+    public List<Map<String, String>> listSessions(String userNo) {
+        if (cacheService.isShared()) throw sharedSessionIndex();
+        List<Map<String, String>> sessions = new ArrayList<>();
+        for (String cacheKey : userSessionIndexSupport.keys(userNo)) {
+            Long expire = cacheService.getExpire(cacheKey);
+            if (expire == null || expire <= 0) {
+                //已过期或被排他的会话，顺带从索引中移除
+                userSessionIndexSupport.remove(cacheKey);
+                continue;
+            }
+            String key = cacheKey.substring(authProperties.getTokenPrefix().length());
+            String[] array = key.split(AuthConstant.HEAD_TOKEN_SEPARATOR);
+            Map<String, String> session = new HashMap<>();
+            session.put(AuthConstant.MAP_KEY_USER_NO, array[0]);
+            session.put(AuthConstant.MAP_KEY_GROUP, array.length > 1 ? array[1] : null);
+            session.put(AuthConstant.MAP_KEY_TIME, array.length > 2 ? array[2] : null);
+            session.put(AuthConstant.MAP_KEY_KEY, key);
+            session.put(AuthConstant.MAP_KEY_EXPIRE, String.valueOf(expire));
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    @Override
+    public Integer revokeAll(String userNo) {
+        if (cacheService.isShared()) throw sharedSessionIndex();
+        List<String> cacheKeys = userSessionIndexSupport.removeAll(userNo);
+        cacheKeys.forEach(cacheService::remove);
+        return cacheKeys.size();
+    }
+
+    @Override
+    public Mono<Integer> revokeAllAsync(String userNo) {
+        if (cacheService.isShared()) return Mono.error(sharedSessionIndex());
+        List<String> cacheKeys = userSessionIndexSupport.removeAll(userNo);
+        return Flux.fromIterable(cacheKeys)
+                .concatMap(reactiveCacheService::remove)
+                .then(Mono.just(cacheKeys.size()));
+    }
 }
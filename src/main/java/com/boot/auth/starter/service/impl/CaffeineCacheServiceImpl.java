@@ -0,0 +1,217 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.CaffeineCacheSupport;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 caffeine 的缓存业务，info.auth.cache-type=caffeine 时代替 DefaultCacheServiceImpl
+ * 使用方式与 DefaultCacheServiceImpl 相同，使用 loadingCache 时需要先在 CaffeineCacheSupport 中调用 setCacheLoader
+ */
+@Component
+@ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
+@ConditionalOnProperty(prefix = "info.auth", name = "cache-type", havingValue = "caffeine")
+public class CaffeineCacheServiceImpl implements CacheService {
+    private final static Logger log = LoggerFactory.getLogger(CaffeineCacheServiceImpl.class);
+    final
+    CaffeineCacheSupport caffeineCacheSupport;
+    AuthProperties authProperties;
+    ExcludeIndexSupport excludeIndexSupport;
+    UserSessionIndexSupport userSessionIndexSupport;
+
+    public CaffeineCacheServiceImpl(CaffeineCacheSupport caffeineCacheSupport,
+                                    AuthProperties authProperties,
+                                    ExcludeIndexSupport excludeIndexSupport,
+                                    UserSessionIndexSupport userSessionIndexSupport) {
+        this.caffeineCacheSupport = caffeineCacheSupport;
+        this.authProperties = authProperties;
+        this.excludeIndexSupport = excludeIndexSupport;
+        this.userSessionIndexSupport = userSessionIndexSupport;
+        //缓存过期、淘汰、删除时维护用户会话索引，覆盖写入不影响索引
+        caffeineCacheSupport.addRemovalListener((key, value, cause) -> {
+            if (cause != RemovalCause.REPLACED) userSessionIndexSupport.remove(String.valueOf(key));
+        });
+    }
+
+    @Override
+    public Long getOverdueTime() {
+        return authProperties.getOverdueTime();
+    }
+
+    @Override
+    public Boolean getExclude() {
+        return authProperties.getEnableExclude();
+    }
+
+    /**
+     * 开启 loadingCache 时 get 可能需要等待加载器执行完成
+     */
+    @Override
+    public boolean isBlocking() {
+        return authProperties.getGuavaCache().getEnableLoadingCache();
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public void put(String key, String data) {
+        if (authProperties.getGuavaCache().getEnableLoadingCache()) {
+            caffeineCacheSupport.getLoadingCache().put(key, CompletableFuture.completedFuture(data));
+        } else {
+            caffeineCacheSupport.getCache().put(key, data);
+        }
+        register(key, authProperties.getOverdueTime());
+    }
+
+    @Override
+    public void put(String key, String data, Long overdueTime) {
+        if (overdueTime == null) {
+            this.put(key, data);
+            return;
+        }
+        long nanos = overdueTime > 0 ? TimeUnit.SECONDS.toNanos(overdueTime) : Long.MAX_VALUE;
+        caffeineCacheSupport.varExpiration().put(key, data, nanos, TimeUnit.NANOSECONDS);
+        register(key, overdueTime);
+    }
+
+    /**
+     * 开启排他时登记会话的排他序号
+     */
+    private void register(String key, long overdueTime) {
+        if (!authProperties.getEnableExclude()) return;
+        excludeIndexSupport.register(key, overdueTime > 0
+                ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(overdueTime) : Long.MAX_VALUE);
+    }
+
+    @Override
+    public String get(String key) {
+        try {
+            return get(key, null);
+        } catch (ExecutionException e) {
+            log.error("LoadingCache error key:{}", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    public String get(String key, Callable<Object> loader) throws ExecutionException {
+        if (authProperties.getEnableExclude()
+                && !this.exclude(key)) {
+            return null;
+        }
+        Object obj;
+        try {
+            if (authProperties.getGuavaCache().getEnableLoadingCache()) {
+                obj = loader == null ? caffeineCacheSupport.getLoadingCache().get(key).join()
+                        : caffeineCacheSupport.getLoadingCache().get(key, (k, executor) ->
+                        CompletableFuture.supplyAsync(() -> call(loader), executor)).join();
+            } else {
+                obj = loader == null ? caffeineCacheSupport.getCache().getIfPresent(key)
+                        : caffeineCacheSupport.getCache().get(key, k -> call(loader));
+            }
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+        if (obj == null) return null;
+        return obj.toString();
+    }
+
+    private Object call(Callable<Object> loader) {
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public Object excludeGet(String keyExclude) {
+        return get(keyExclude);
+    }
+
+    @Override
+    public Object excludeGet(String keyExclude, Callable<Object> loader) {
+        try {
+            return get(keyExclude, loader);
+        } catch (ExecutionException e) {
+            log.error("excludeGet [" + keyExclude + "]", e);
+        }
+        return null;
+    }
+
+    @Override
+    public Long getExpire(String key) {
+        if (this.get(key) == null) return 0L;
+        OptionalLong nanos = caffeineCacheSupport.varExpiration().getExpiresAfter(key, TimeUnit.NANOSECONDS);
+        if (nanos.isEmpty()) return 0L;
+        //caffeine 把永不过期限制为约 146 年
+        if (nanos.getAsLong() >= Long.MAX_VALUE >> 2) return Long.MAX_VALUE;
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(nanos.getAsLong() + 999_999_999L));
+    }
+
+    @Override
+    public void remove(String key) {
+        if (authProperties.getGuavaCache().getEnableLoadingCache()) {
+            caffeineCacheSupport.getLoadingCache().synchronous().invalidate(key);
+        } else {
+            caffeineCacheSupport.getCache().invalidate(key);
+        }
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        long now = System.currentTimeMillis();
+        Policy.VarExpiration<Object, Object> varExpiration = caffeineCacheSupport.varExpiration();
+        Map<Object, Object> map = authProperties.getGuavaCache().getEnableLoadingCache()
+                ? caffeineCacheSupport.getLoadingCache().synchronous().asMap() : caffeineCacheSupport.getCache().asMap();
+        map.forEach((key, value) -> {
+            OptionalLong nanos = varExpiration.getExpiresAfter(key, TimeUnit.NANOSECONDS);
+            if (nanos.isEmpty() || nanos.getAsLong() <= 0) return;
+            long expireAt = nanos.getAsLong() >= Long.MAX_VALUE >> 2
+                    ? Long.MAX_VALUE : now + TimeUnit.NANOSECONDS.toMillis(nanos.getAsLong());
+            consumer.accept(key.toString(), value.toString(), expireAt);
+        });
+    }
+
+    @Override
+    public boolean exclude(String key) {
+        return excludeIndexSupport.check(key);
+    }
+
+    @Override
+    public boolean exclude(String key, Callable<Object> loader) throws ExecutionException {
+        if (loader == null) return excludeIndexSupport.check(key);
+        try {
+            return excludeIndexSupport.check(key, () -> {
+                try {
+                    Object serial = loader.call();
+                    return serial == null || serial.toString().isEmpty() ? 0L : Long.parseLong(serial.toString());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package com.boot.auth.starter.service.impl;
 
-import com.boot.auth.starter.common.AuthConstant;
 import com.boot.auth.starter.common.AuthProperties;
-import com.boot.auth.starter.common.RestStatus;
-import com.boot.auth.starter.exception.AuthException;
 import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.ExpiryTimerWheel;
 import com.boot.auth.starter.support.GuavaCacheSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import com.google.common.cache.RemovalCause;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -19,21 +22,37 @@ import java.util.concurrent.ExecutionException;
  * 1、若使用 Cache 而非 LoadingCache ，可以直接使用本类，无需任何改动
  * 2、使用 LoadingCache 时，需要自行在 GuavaCacheSupport 中调用 setCacheLoader 后才能使用该类其他方法
  * 3、GuavaCacheSupport 中的 setRemovalListener 是可选的
- * 4、在 Guava 中没有直接实现 expire ，只是判断了是否存在，请自行实现
- * 5、exclude 选项不是必须的
+ * 4、Guava 不支持按条目过期，本类通过 GuavaCacheSupport 中的 ExpiryTimerWheel 记录每个 key 的过期时间，
+ *    put 时传入的 overdueTime 按条目生效，未传入时使用 info.auth.overdue-time
+ * 5、exclude 选项不是必须的，开启后 put 时由 ExcludeIndexSupport 登记每个用户最新的排他序号，不再写入 exclude- 开头的缓存
  * 6、若本类中有任何方法不适用，请自行复写它。若先使用其他缓存，请直接复写全部方法
+ * 7、本类是进程内缓存，isBlocking 返回 false；改为远程缓存时请复写 isBlocking 返回 true
+ * 8、info.auth.cache-type=caffeine 时使用 CaffeineCacheServiceImpl 代替本类
  */
 @Component
+@ConditionalOnProperty(prefix = "info.auth", name = "cache-type", havingValue = "guava", matchIfMissing = true)
 public class DefaultCacheServiceImpl implements CacheService {
     private final static Logger log = LoggerFactory.getLogger(DefaultCacheServiceImpl.class);
     final
     GuavaCacheSupport guavaCacheSupport;
     AuthProperties authProperties;
+    ExcludeIndexSupport excludeIndexSupport;
+    UserSessionIndexSupport userSessionIndexSupport;
 
     public DefaultCacheServiceImpl(GuavaCacheSupport guavaCacheSupport,
-                                   AuthProperties authProperties) {
+                                   AuthProperties authProperties,
+                                   ExcludeIndexSupport excludeIndexSupport,
+                                   UserSessionIndexSupport userSessionIndexSupport) {
         this.guavaCacheSupport = guavaCacheSupport;
         this.authProperties = authProperties;
+        this.excludeIndexSupport = excludeIndexSupport;
+        this.userSessionIndexSupport = userSessionIndexSupport;
+        //缓存过期、淘汰、删除时同步维护用户会话索引，覆盖写入不影响索引
+        guavaCacheSupport.addRemovalListener(notification -> {
+            if (notification.getCause() != RemovalCause.REPLACED) {
+                userSessionIndexSupport.remove(String.valueOf(notification.getKey()));
+            }
+        });
     }
 
     @Override
@@ -46,18 +65,70 @@ public class DefaultCacheServiceImpl implements CacheService {
         return authProperties.getEnableExclude();
     }
 
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
     @Override
     public void put(String key, String data) {
+        this.put(key, data, authProperties.getOverdueTime());
+    }
+
+    @Override
+    public void put(String key, String data, Long overdueTime) {
+        long now = System.currentTimeMillis();
         if (authProperties.getGuavaCache().getEnableLoadingCache()) {
             guavaCacheSupport.getLoadingCache().put(key, data);
         } else {
             guavaCacheSupport.getCache().put(key, data);
         }
+        long expireAt = expireAt(now, overdueTime);
+        ExpiryTimerWheel expiryTimerWheel = guavaCacheSupport.getExpiryTimerWheel();
+        expiryTimerWheel.schedule(key, expireAt);
+        expiryTimerWheel.advance(now, this::evict);
+        if (authProperties.getEnableExclude()) excludeIndexSupport.register(key, expireAt);
     }
 
-    @Override
-    public void put(String key, String data, Long overdueTime) {
-        this.put(key, data);
+    /**
+     * key 已过期时移除，随后的读取不会再命中（LoadingCache 会重新加载）
+     *
+     * @param key key
+     */
+    private void removeIfExpired(String key) {
+        long now = System.currentTimeMillis();
+        ExpiryTimerWheel expiryTimerWheel = guavaCacheSupport.getExpiryTimerWheel();
+        expiryTimerWheel.advance(now, this::evict);
+        long expireAt = expiryTimerWheel.expireAt(key);
+        if (expireAt != 0L && expireAt <= now) remove(key);
+    }
+
+    /**
+     * 由加载器加载的条目没有登记过期时间，使用默认过期时间
+     */
+    private void adopt(String key) {
+        ExpiryTimerWheel expiryTimerWheel = guavaCacheSupport.getExpiryTimerWheel();
+        if (expiryTimerWheel.expireAt(key) == 0L) {
+            expiryTimerWheel.schedule(key, expireAt(System.currentTimeMillis(), authProperties.getOverdueTime()));
+        }
+    }
+
+    private void evict(Object key) {
+        if (authProperties.getGuavaCache().getEnableLoadingCache()) {
+            guavaCacheSupport.getLoadingCache().invalidate(key);
+        } else {
+            guavaCacheSupport.getCache().invalidate(key);
+        }
+    }
+
+    private long expireAt(long now, Long overdueTime) {
+        if (overdueTime == null || overdueTime <= 0) return ExpiryTimerWheel.NEVER;
+        return now + overdueTime * 1000L;
     }
 
     @Override
@@ -66,6 +137,7 @@ public class DefaultCacheServiceImpl implements CacheService {
                 && !this.exclude(key)) {
             return null;
         }
+        removeIfExpired(key);
         Object obj = null;
         if (authProperties.getGuavaCache().getEnableLoadingCache()) {
             try {
@@ -77,6 +149,7 @@ public class DefaultCacheServiceImpl implements CacheService {
             obj = guavaCacheSupport.getCache().getIfPresent(key);
         }
         if (obj == null) return null;
+        adopt(key);
         return obj.toString();
     }
 
@@ -86,6 +159,7 @@ public class DefaultCacheServiceImpl implements CacheService {
                 && !this.exclude(key)) {
             return null;
         }
+        removeIfExpired(key);
         Object obj = null;
         if (authProperties.getGuavaCache().getEnableLoadingCache()) {
             try {
@@ -105,6 +179,7 @@ public class DefaultCacheServiceImpl implements CacheService {
             }
         }
         if (obj == null) return null;
+        adopt(key);
         return obj.toString();
 
     }
@@ -126,54 +201,53 @@ public class DefaultCacheServiceImpl implements CacheService {
 
     @Override
     public Long getExpire(String key) {
-        if (this.get(key) != null) return 1L;
-        return 0L;
+        if (this.get(key) == null) return 0L;
+        long expireAt = guavaCacheSupport.getExpiryTimerWheel().expireAt(key);
+        if (expireAt == ExpiryTimerWheel.NEVER) return Long.MAX_VALUE;
+        return Math.max(1L, (expireAt - System.currentTimeMillis() + 999L) / 1000L);
     }
 
     @Override
     public void remove(String key) {
-        if (authProperties.getGuavaCache().getEnableLoadingCache()) {
-            guavaCacheSupport.getLoadingCache().invalidate(key);
-        } else {
-            guavaCacheSupport.getCache().invalidate(key);
-        }
+        guavaCacheSupport.getExpiryTimerWheel().cancel(key);
+        evict(key);
+    }
+
+    /**
+     * 由加载器加载、还没有登记过期时间的条目按默认过期时间计算
+     */
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        long now = System.currentTimeMillis();
+        ExpiryTimerWheel expiryTimerWheel = guavaCacheSupport.getExpiryTimerWheel();
+        Map<Object, Object> map = authProperties.getGuavaCache().getEnableLoadingCache()
+                ? guavaCacheSupport.getLoadingCache().asMap() : guavaCacheSupport.getCache().asMap();
+        map.forEach((key, value) -> {
+            long expireAt = expiryTimerWheel.expireAt(key);
+            if (expireAt == 0L) expireAt = expireAt(now, authProperties.getOverdueTime());
+            if (expireAt > now) consumer.accept(key.toString(), value.toString(), expireAt);
+        });
     }
 
     @Override
     public boolean exclude(String key) {
-        try {
-            return this.exclude(key, null);
-        } catch (ExecutionException e) {
-            log.error("exclude error:", e);
-        }
-        return false;
+        return excludeIndexSupport.check(key);
     }
 
     @Override
     public boolean exclude(String key, Callable<Object> loader) throws ExecutionException {
-        String[] array = key.split(AuthConstant.HEAD_TOKEN_SEPARATOR);
-        if (array.length != 4) throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
-        String userNo = array[0];
-        String excludeSerial = array[3].substring(1);
-        String keyExclude = "exclude-" + userNo;
-        String excludeSerialLast = "";
-        if (loader != null) {
-            Object groupLastObj = excludeGet(keyExclude, loader);
-            excludeSerialLast = groupLastObj.toString();
-        } else {
-            Object groupLastObj = excludeGet(keyExclude);
-            if (groupLastObj != null) {
-                excludeSerialLast = groupLastObj.toString();
-            }
-        }
-        if (StringUtils.isEmpty(excludeSerialLast)) {
-            this.put(keyExclude, excludeSerial);
-            return true;
-        }
-        if (Long.parseLong(excludeSerial) >= Long.parseLong(excludeSerialLast)) {
-            this.put(keyExclude, excludeSerial);
-            return true;
+        if (loader == null) return excludeIndexSupport.check(key);
+        try {
+            return excludeIndexSupport.check(key, () -> {
+                try {
+                    Object serial = loader.call();
+                    return serial == null || serial.toString().isEmpty() ? 0L : Long.parseLong(serial.toString());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
         }
-        return false;
     }
 }
@@ -0,0 +1,68 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.service.ReactiveCacheService;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 把同步的 CacheService 适配为 ReactiveCacheService
+ * CacheService.isBlocking 为 true 时，调用会被放到有界的 auth-cache 线程池中执行，避免阻塞事件循环线程；
+ * 为 false（进程内缓存）时直接在当前线程执行，没有线程切换的开销。
+ * 由 AuthAutoConfiguration 注册，容器中已有 ReactiveCacheService 时不会创建
+ */
+public class DefaultReactiveCacheServiceImpl implements ReactiveCacheService, DisposableBean {
+    final
+    CacheService cacheService;
+    private final Scheduler scheduler;
+
+    public DefaultReactiveCacheServiceImpl(CacheService cacheService, AuthProperties authProperties) {
+        this.cacheService = cacheService;
+        AuthProperties.CacheScheduler config = authProperties.getCacheScheduler();
+        this.scheduler = cacheService.isBlocking()
+                ? Schedulers.newBoundedElastic(config.getThreadCap(), config.getQueuedTaskCap(), "auth-cache", 60, true)
+                : Schedulers.immediate();
+    }
+
+    @Override
+    public Mono<Void> put(String key, String data, Long overdueTime) {
+        return call(() -> {
+            cacheService.put(key, data, overdueTime);
+            return null;
+        });
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return call(() -> cacheService.get(key));
+    }
+
+    @Override
+    public Mono<Long> getExpire(String key) {
+        return call(() -> cacheService.getExpire(key));
+    }
+
+    @Override
+    public Mono<Void> remove(String key) {
+        return call(() -> {
+            cacheService.remove(key);
+            return null;
+        });
+    }
+
+    private <T> Mono<T> call(Callable<T> callable) {
+        Mono<T> mono = Mono.fromCallable(callable);
+        if (!cacheService.isBlocking()) return mono;
+        return mono.subscribeOn(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
@@ -1,84 +1,167 @@
 package com.boot.auth.starter.service.impl;
 
+import com.boot.auth.starter.common.AuthProperties;
 import com.boot.auth.starter.service.FilterWhiteListService;
+import com.boot.auth.starter.support.WhiteListMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.RequestPath;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 白名单规则在 addWhiteList 时编译为不可变的 WhiteListMatcher 后整体替换，匹配过程不加锁。
+ * 匹配结果（包括不匹配）缓存在有容量上限的缓存中，规则变化时随规则一起替换；
+ * 含有数字编号、UUID 等取值很多的路由段时不缓存，避免缓存被大量只访问一次的路由占满。
+ */
 @Scope
 @Component
 public class FilterWhiteListServiceImpl implements FilterWhiteListService {
+    private final static Logger log = LoggerFactory.getLogger(FilterWhiteListServiceImpl.class);
+    final
+    AuthProperties authProperties;
     /**
-     * 白名单路由规则
+     * 编译后的白名单规则
      */
-    private final static HashSet<String> root = new HashSet<>();
-    /**
-     * 匹配命中缓存
-     */
-    private final static HashSet<String> cache = new HashSet<>();
+    private volatile Rules rules;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder bypassCount = new LongAdder();
 
+    public FilterWhiteListServiceImpl(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+        this.rules = new Rules(WhiteListMatcher.EMPTY, memo());
+    }
 
     @PostConstruct
     private void init() {
         addWhiteList("/actuator","/static/**","/public/**", "/webjars/**", "/v3/api-docs/**", "**.css", "**.js", "**.jpg", "**.ico", "**.png");
     }
 
+    @Override
+    public boolean isWhiteList(HttpMethod method, RequestPath path) {
+        if (rules.matcher.matchesMethod(method, path.pathWithinApplication())) return true;
+        return isWhiteList(path.value());
+    }
+
     @Override
     public boolean isWhiteList(String path) {
-        if (cache.contains(path)) return true;
-        boolean fag = false;
-        int index = path.lastIndexOf(".");
-        // 处理文件后缀
-        if (index > 0) {
-            String suffix = path.substring(index);
-            String routeKey = "/**" + suffix;
-            fag = root.contains(routeKey);
-        } else {
-            StringBuilder route = new StringBuilder();
-            String[] nodes = path.split("/");
-            for (String node : nodes) {
-                if (!StringUtils.hasText(node)) continue;
-                // 匹配 ** 成功 直接成功
-                String routeKey = route + "/" + "**";
-                if (root.contains(routeKey)) {
-                    cache.add(path);
-                    return true;
-                }
-                // 匹配 * 成功 本轮 node 成功
-                routeKey = route + "/" + "*";
-                if (root.contains(routeKey)) {
-                    fag = true;
-                    route.append("/").append("*");
-                } else {
-                    // 匹配 实际的node地址
-                    routeKey = route + "/" + node;
-                    fag = root.contains(routeKey);
-                    if (!fag) return false;
-                    route.append("/").append(node);
+        Rules current = rules;
+        if (current.memo == null || highCardinality(path)) {
+            bypassCount.increment();
+            return current.matcher.matches(path);
+        }
+        Boolean memo = current.memo.getIfPresent(path);
+        if (memo != null) {
+            hitCount.increment();
+            return memo;
+        }
+        missCount.increment();
+        boolean fag = current.matcher.matches(path);
+        current.memo.put(path, fag);
+        return fag;
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 未使用缓存的次数
+     *
+     * @return 次数
+     */
+    public long bypassCount() {
+        return bypassCount.sum();
+    }
+
+    /**
+     * 缓存命中率，不包括未使用缓存的访问
+     *
+     * @return 0~1 之间的命中率，没有访问时为 0
+     */
+    public double hitRate() {
+        long hit = hitCount.sum();
+        long total = hit + missCount.sum();
+        return total == 0 ? 0D : (double) hit / total;
+    }
+
+    public void stats() {
+        Cache<String, Boolean> memo = rules.memo;
+        log.info("白名单缓存状态查看=> [条目数:{}] [命中次数:{}] [未命中次数:{}] [未使用缓存次数:{}] [命中率:{}]",
+                memo == null ? 0 : memo.size(), hitCount(), missCount(), bypassCount(), hitRate());
+    }
+
+    private Cache<String, Boolean> memo() {
+        long maximumSize = authProperties.getWhiteList().getMemoMaximumSize();
+        if (maximumSize <= 0) return null;
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * 路由中是否有取值很多的路由段：去掉后缀后全部为数字，或长度不小于 16 且全部为十六进制字符和 -
+     *
+     * @param path 路由
+     * @return true 表示不缓存匹配结果
+     */
+    private static boolean highCardinality(String path) {
+        int length = path.length();
+        int start = 0;
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) end = length;
+            int stemEnd = start;
+            int digits = 0;
+            int hex = 0;
+            for (; stemEnd < end; stemEnd++) {
+                char c = path.charAt(stemEnd);
+                if (c == '.') break;
+                if (c >= '0' && c <= '9') {
+                    digits++;
+                    hex++;
+                } else if ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-') {
+                    hex++;
                 }
             }
+            int stem = stemEnd - start;
+            if (stem > 0 && (digits == stem || (stem >= 16 && hex == stem))) return true;
+            start = end + 1;
         }
-        if (fag) cache.add(path);
-        return fag;
+        return false;
     }
 
     @Override
-    public void addWhiteList(String... paths) {
+    public synchronized void addWhiteList(String... paths) {
         if (paths == null) return;
-        Arrays.stream(paths)
-                .filter(StringUtils::hasText)
-                .forEach(path -> {
-                    StringBuffer routeKeyBuffer = new StringBuffer();
-                    Arrays.stream(path.split("/")).filter(StringUtils::hasText).forEach(node -> {
-                        routeKeyBuffer.append("/").append(node);
-                        String routeKey = routeKeyBuffer.toString();
-                        root.add(routeKey);
-                    });
-                });
+        rules = new Rules(rules.matcher.with(paths), memo());
+    }
+
+    @Override
+    public synchronized void addWhiteList(HttpMethod method, String... patterns) {
+        if (patterns == null) return;
+        Rules current = rules;
+        rules = new Rules(current.matcher.with(method, patterns), current.memo);
     }
-}
 
+    /**
+     * 编译后的白名单规则和对应的匹配结果缓存，一起替换
+     *
+     * @param matcher 编译后的规则
+     * @param memo    本组规则的匹配结果缓存，不缓存时为 null
+     */
+    private record Rules(WhiteListMatcher matcher, Cache<String, Boolean> memo) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.service.InvalidationChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 只在当前 JVM 内广播的失效通道，适用于单节点部署和测试
+ */
+public class LoopbackInvalidationChannelImpl implements InvalidationChannel {
+    private final static Logger log = LoggerFactory.getLogger(LoopbackInvalidationChannelImpl.class);
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String key) {
+        for (Consumer<String> listener : listeners) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                log.error("invalidation listener error key:{}", key, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+}
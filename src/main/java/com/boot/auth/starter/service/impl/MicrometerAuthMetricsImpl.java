@@ -0,0 +1,99 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.AuthRule;
+import com.boot.auth.starter.service.AuthMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 micrometer 的过滤器指标
+ * auth.filter.stage 记录各阶段耗时，标签 stage；auth.filter.decision 记录鉴权结果，标签 outcome、route。
+ * 计数器按 route 缓存，请求时不再创建 Meter；规则热加载后生成的新规则对象与原规则共用同一组计数器，
+ * route 取值超过 maxRoutes 后统一记为 OTHER
+ */
+@Component
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+public class MicrometerAuthMetricsImpl implements AuthMetrics {
+    final static String OTHER_ROUTE = "OTHER";
+    private final MeterRegistry meterRegistry;
+    private final int maxRoutes;
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final Counter[] otherCounters;
+
+    public MicrometerAuthMetricsImpl(ObjectProvider<MeterRegistry> meterRegistryProvider, AuthProperties authProperties) {
+        this.meterRegistry = authProperties.getMetrics().getEnable() ? meterRegistryProvider.getIfAvailable() : null;
+        this.maxRoutes = authProperties.getMetrics().getMaxRoutes();
+        if (meterRegistry == null) {
+            otherCounters = null;
+            return;
+        }
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("auth.filter.stage")
+                    .description("auth filter stage latency")
+                    .tag("stage", stage.getTag())
+                    .register(meterRegistry));
+        }
+        otherCounters = register(OTHER_ROUTE);
+    }
+
+    @Override
+    public boolean enabled() {
+        return meterRegistry != null;
+    }
+
+    @Override
+    public void record(Stage stage, long start) {
+        if (meterRegistry == null) return;
+        timers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void decision(AuthRule rule, Outcome outcome) {
+        if (meterRegistry == null) return;
+        String route = route(rule);
+        Counter[] ruleCounters = counters.get(route);
+        if (ruleCounters == null) {
+            ruleCounters = counters.size() >= maxRoutes ? otherCounters
+                    : counters.computeIfAbsent(route, this::register);
+        }
+        ruleCounters[outcome.ordinal()].increment();
+    }
+
+    private Counter[] register(String route) {
+        Outcome[] outcomes = Outcome.values();
+        Counter[] ruleCounters = new Counter[outcomes.length];
+        for (Outcome outcome : outcomes) {
+            ruleCounters[outcome.ordinal()] = Counter.builder("auth.filter.decision")
+                    .description("auth filter decisions")
+                    .tag("outcome", outcome.getTag())
+                    .tag("route", route)
+                    .register(meterRegistry);
+        }
+        return ruleCounters;
+    }
+
+    /**
+     * 已登记计数器的 route 数量，不包括 OTHER
+     *
+     * @return 数量
+     */
+    public int routeCount() {
+        return counters.size();
+    }
+
+    private String route(AuthRule rule) {
+        if (rule.getRoute() != null) return rule.getRoute();
+        return rule.getHandler() == null ? OTHER_ROUTE : rule.getHandler();
+    }
+}
@@ -0,0 +1,302 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.service.InvalidationChannel;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存，info.auth.near-cache.enable=true 时启用
+ * L1 是进程内的小容量短时缓存，L2 是 near-cache.remote 指定名称的 CacheService（例如基于 redis 的实现）。
+ * 写入和删除先作用于 L2，再通过 InvalidationChannel 通知所有节点丢弃 L1 中的副本；
+ * 开启排他时 L1 中带排他序号的 key 按用户建立二级索引，失效时只检查同一用户的条目。
+ * 任何节点最多读取到 near-cache.ttl 秒之前的数据
+ */
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "info.auth", name = "near-cache.enable", havingValue = "true")
+public class NearCacheServiceImpl implements CacheService {
+    private final static Logger log = LoggerFactory.getLogger(NearCacheServiceImpl.class);
+    final
+    BeanFactory beanFactory;
+    AuthProperties authProperties;
+    InvalidationChannel invalidationChannel;
+    private final String remoteName;
+    private final Cache<String, String> nearCache;
+    /**
+     * 用户前缀 -> L1 中该用户带排他序号的 key，只在开启排他时使用；集合只在 compute 中读写
+     */
+    private final Map<String, Set<String>> userKeys = new ConcurrentHashMap<>();
+    private final LongAdder l1HitCount = new LongAdder();
+    private final LongAdder l2HitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private volatile CacheService remoteCache;
+
+    public NearCacheServiceImpl(BeanFactory beanFactory,
+                                ObjectProvider<InvalidationChannel> invalidationChannelProvider,
+                                AuthProperties authProperties) {
+        this.beanFactory = beanFactory;
+        this.authProperties = authProperties;
+        AuthProperties.NearCache config = authProperties.getNearCache();
+        if (!StringUtils.hasText(config.getRemote())) {
+            throw new IllegalArgumentException("开启 near-cache 时需要通过 near-cache.remote 指定作为 L2 的 CacheService 名称");
+        }
+        this.remoteName = config.getRemote().trim();
+        this.invalidationChannel = invalidationChannelProvider.getIfAvailable(LoopbackInvalidationChannelImpl::new);
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl(), TimeUnit.SECONDS);
+        this.nearCache = authProperties.getEnableExclude()
+                ? builder.removalListener(this::onRemoval).build()
+                : builder.build();
+        this.invalidationChannel.subscribe(this::onInvalidate);
+    }
+
+    /**
+     * L2 缓存，near-cache.remote 指定名称的 CacheService
+     */
+    private CacheService remote() {
+        CacheService current = remoteCache;
+        if (current == null) {
+            current = beanFactory.getBean(remoteName, CacheService.class);
+            if (current == this) throw new IllegalStateException("near-cache.remote 不能指向 NearCacheServiceImpl 自身");
+            remoteCache = current;
+        }
+        return current;
+    }
+
+    /**
+     * 写入 L1，开启排他时同时登记到用户索引
+     */
+    private void putNear(String key, String data) {
+        if (authProperties.getEnableExclude() && excludeSerial(key) >= 0) {
+            userKeys.compute(userPrefix(key), (prefix, keys) -> {
+                if (keys == null) keys = new HashSet<>();
+                keys.add(key);
+                return keys;
+            });
+        }
+        nearCache.put(key, data);
+    }
+
+    /**
+     * L1 条目被移除（过期、淘汰或失效）时从用户索引中删除，覆盖写入时保留
+     */
+    private void onRemoval(RemovalNotification<String, String> notification) {
+        String key = notification.getKey();
+        if (key == null || notification.getCause() == RemovalCause.REPLACED) return;
+        userKeys.computeIfPresent(userPrefix(key), (prefix, keys) -> {
+            //并发写入了相同的 key 时保留索引
+            if (!nearCache.asMap().containsKey(key)) keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * 收到失效通知，丢弃 L1 中的副本
+     * 开启排他时，通过用户索引同时丢弃同一用户排他序号更小的会话
+     *
+     * @param key 失效的key
+     */
+    private void onInvalidate(String key) {
+        nearCache.invalidate(key);
+        if (!authProperties.getEnableExclude()) return;
+        long excludeSerial = excludeSerial(key);
+        if (excludeSerial < 0) return;
+        List<String> replaced = new ArrayList<>();
+        userKeys.computeIfPresent(userPrefix(key), (prefix, keys) -> {
+            for (String cached : keys) {
+                if (excludeSerial(cached) < excludeSerial) replaced.add(cached);
+            }
+            return keys;
+        });
+        //在 compute 之外失效，移除回调会更新索引
+        if (!replaced.isEmpty()) nearCache.invalidateAll(replaced);
+    }
+
+    private static String userPrefix(String key) {
+        return key.substring(0, key.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR) + 1);
+    }
+
+    /**
+     * 从会话 key 中取出排他序号，key 格式为 userNo,group,time,E序号
+     *
+     * @param key 会话key
+     * @return 排他序号，不是带排他序号的会话 key 时返回 -1
+     */
+    private long excludeSerial(String key) {
+        String[] array = key.split(AuthConstant.HEAD_TOKEN_SEPARATOR);
+        if (array.length != 4 || array[3].length() < 2) return -1L;
+        try {
+            return Long.parseLong(array[3].substring(1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public Long getOverdueTime() {
+        return remote().getOverdueTime();
+    }
+
+    @Override
+    public Boolean getExclude() {
+        return remote().getExclude();
+    }
+
+    /**
+     * L1 命中时不会阻塞，未命中时取决于 L2
+     */
+    @Override
+    public boolean isBlocking() {
+        return remote().isBlocking();
+    }
+
+    @Override
+    public boolean isShared() {
+        return remote().isShared();
+    }
+
+    @Override
+    public void put(String key, String data) {
+        remote().put(key, data);
+        invalidationChannel.publish(key);
+    }
+
+    @Override
+    public void put(String key, String data, Long overdueTime) {
+        remote().put(key, data, overdueTime);
+        invalidationChannel.publish(key);
+    }
+
+    @Override
+    public String get(String key) {
+        String data = nearCache.getIfPresent(key);
+        if (data != null) {
+            l1HitCount.increment();
+            return data;
+        }
+        data = remote().get(key);
+        if (data == null) {
+            missCount.increment();
+            return null;
+        }
+        l2HitCount.increment();
+        putNear(key, data);
+        return data;
+    }
+
+    @Override
+    public String get(String key, Callable<Object> loader) throws ExecutionException {
+        String data = nearCache.getIfPresent(key);
+        if (data != null) {
+            l1HitCount.increment();
+            return data;
+        }
+        data = remote().get(key, loader);
+        if (data != null) putNear(key, data);
+        return data;
+    }
+
+    @Override
+    public Object excludeGet(String keyExclude) {
+        return remote().excludeGet(keyExclude);
+    }
+
+    @Override
+    public Object excludeGet(String keyExclude, Callable<Object> loader) {
+        return remote().excludeGet(keyExclude, loader);
+    }
+
+    @Override
+    public Long getExpire(String key) {
+        return remote().getExpire(key);
+    }
+
+    @Override
+    public void remove(String key) {
+        remote().remove(key);
+        invalidationChannel.publish(key);
+    }
+
+    /**
+     * 只遍历 L2，L1 中的条目都是 L2 的副本
+     */
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        remote().forEach(consumer);
+    }
+
+    @Override
+    public boolean exclude(String key) {
+        return remote().exclude(key);
+    }
+
+    @Override
+    public boolean exclude(String key, Callable<Object> loader) throws ExecutionException {
+        return remote().exclude(key, loader);
+    }
+
+    public long l1HitCount() {
+        return l1HitCount.sum();
+    }
+
+    public long l2HitCount() {
+        return l2HitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * L1 命中率
+     *
+     * @return 0~1 之间的命中率，没有访问时为 0
+     */
+    public double l1HitRate() {
+        long l1 = l1HitCount.sum();
+        long total = l1 + l2HitCount.sum() + missCount.sum();
+        return total == 0 ? 0D : (double) l1 / total;
+    }
+
+    /**
+     * L2 命中率，只统计 L1 未命中的访问
+     *
+     * @return 0~1 之间的命中率，没有访问时为 0
+     */
+    public double l2HitRate() {
+        long l2 = l2HitCount.sum();
+        long total = l2 + missCount.sum();
+        return total == 0 ? 0D : (double) l2 / total;
+    }
+
+    public void stats() {
+        log.info("近端缓存状态查看=> [L1条目数:{}] [L1命中次数:{}] [L2命中次数:{}] [未命中次数:{}] [L1命中率:{}] [L2命中率:{}]",
+                nearCache.size(), l1HitCount(), l2HitCount(), missCount(), l1HitRate(), l2HitRate());
+    }
+}
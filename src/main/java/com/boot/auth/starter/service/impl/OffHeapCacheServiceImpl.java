@@ -0,0 +1,175 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.OffHeapCacheSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于堆外内存的缓存业务，info.auth.cache-type=offheap 时代替 DefaultCacheServiceImpl
+ * 会话数据不占用堆内存，不受 GC 影响；容量或条目数达到上限时淘汰最早写入的会话。
+ * 不支持 loadingCache，get 传入 loader 时在未命中后调用 loader 并写入缓存
+ */
+@Component
+@ConditionalOnProperty(prefix = "info.auth", name = "cache-type", havingValue = "offheap")
+public class OffHeapCacheServiceImpl implements CacheService {
+    private final static Logger log = LoggerFactory.getLogger(OffHeapCacheServiceImpl.class);
+    final
+    OffHeapCacheSupport offHeapCacheSupport;
+    AuthProperties authProperties;
+    ExcludeIndexSupport excludeIndexSupport;
+    UserSessionIndexSupport userSessionIndexSupport;
+
+    public OffHeapCacheServiceImpl(OffHeapCacheSupport offHeapCacheSupport,
+                                   AuthProperties authProperties,
+                                   ExcludeIndexSupport excludeIndexSupport,
+                                   UserSessionIndexSupport userSessionIndexSupport) {
+        this.offHeapCacheSupport = offHeapCacheSupport;
+        this.authProperties = authProperties;
+        this.excludeIndexSupport = excludeIndexSupport;
+        this.userSessionIndexSupport = userSessionIndexSupport;
+        //缓存淘汰、过期时维护用户会话索引
+        offHeapCacheSupport.addRemovalListener(userSessionIndexSupport::remove);
+    }
+
+    @Override
+    public Long getOverdueTime() {
+        return authProperties.getOverdueTime();
+    }
+
+    @Override
+    public Boolean getExclude() {
+        return authProperties.getEnableExclude();
+    }
+
+    /**
+     * 只在段锁内拷贝字节，不会阻塞
+     */
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    public void put(String key, String data) {
+        this.put(key, data, getOverdueTime());
+    }
+
+    @Override
+    public void put(String key, String data, Long overdueTime) {
+        if (overdueTime == null) overdueTime = getOverdueTime();
+        long expireAt = overdueTime > 0
+                ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(overdueTime) : OffHeapCacheSupport.NEVER;
+        if (!offHeapCacheSupport.put(key, data, expireAt)) {
+            log.warn("OffHeapCache 条目超过单个段的容量,未存储 key:{}", key);
+            return;
+        }
+        if (authProperties.getEnableExclude()) excludeIndexSupport.register(key, expireAt);
+    }
+
+    @Override
+    public String get(String key) {
+        try {
+            return get(key, null);
+        } catch (ExecutionException e) {
+            log.error("OffHeapCache error key:{}", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    public String get(String key, Callable<Object> loader) throws ExecutionException {
+        if (authProperties.getEnableExclude()
+                && !this.exclude(key)) {
+            return null;
+        }
+        String data = offHeapCacheSupport.get(key);
+        if (data != null || loader == null) return data;
+        Object obj;
+        try {
+            obj = loader.call();
+        } catch (Exception e) {
+            throw new ExecutionException(e);
+        }
+        if (obj == null) return null;
+        data = obj.toString();
+        this.put(key, data);
+        return data;
+    }
+
+    @Override
+    public Object excludeGet(String keyExclude) {
+        return offHeapCacheSupport.get(keyExclude);
+    }
+
+    @Override
+    public Object excludeGet(String keyExclude, Callable<Object> loader) {
+        Object obj = offHeapCacheSupport.get(keyExclude);
+        if (obj != null || loader == null) return obj;
+        try {
+            obj = loader.call();
+        } catch (Exception e) {
+            log.error("excludeGet [" + keyExclude + "]", e);
+            return null;
+        }
+        if (obj != null) this.put(keyExclude, obj.toString());
+        return obj;
+    }
+
+    @Override
+    public Long getExpire(String key) {
+        //与 get 一致，被排他的会话视为不存在
+        if (authProperties.getEnableExclude() && !this.exclude(key)) return 0L;
+        long expireAt = offHeapCacheSupport.expireAt(key);
+        if (expireAt == 0L) return 0L;
+        if (expireAt == OffHeapCacheSupport.NEVER) return Long.MAX_VALUE;
+        return Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(expireAt - System.currentTimeMillis() + 999L));
+    }
+
+    @Override
+    public void remove(String key) {
+        offHeapCacheSupport.remove(key);
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        offHeapCacheSupport.forEach(consumer);
+    }
+
+    @Override
+    public boolean exclude(String key) {
+        return excludeIndexSupport.check(key);
+    }
+
+    @Override
+    public boolean exclude(String key, Callable<Object> loader) throws ExecutionException {
+        if (loader == null) return excludeIndexSupport.check(key);
+        try {
+            return excludeIndexSupport.check(key, () -> {
+                try {
+                    Object serial = loader.call();
+                    return serial == null || serial.toString().isEmpty() ? 0L : Long.parseLong(serial.toString());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+    }
+}
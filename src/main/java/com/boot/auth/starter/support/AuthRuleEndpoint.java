@@ -0,0 +1,42 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.model.AuthRule;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路由权限规则端点，用于审计各路由的保护情况
+ * 访问地址 /actuator/authrules ，需要在 management.endpoints.web.exposure.include 中开启
+ */
+@Endpoint(id = "authrules")
+public class AuthRuleEndpoint {
+    private final AuthRuleSupport authRuleSupport;
+
+    public AuthRuleEndpoint(AuthRuleSupport authRuleSupport) {
+        this.authRuleSupport = authRuleSupport;
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> rules() {
+        return authRuleSupport.getRules().stream()
+                .sorted(Comparator.comparing(rule -> String.valueOf(rule.getRoute())))
+                .map(this::describe)
+                .toList();
+    }
+
+    private Map<String, Object> describe(AuthRule rule) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("route", rule.getRoute());
+        map.put("handler", rule.getHandler());
+        map.put("type", rule.getType());
+        map.put("loginRequired", rule.isLoginRequired());
+        map.put("roles", rule.getRoles());
+        map.put("operLog", rule.getOperType() != null);
+        return map;
+    }
+}
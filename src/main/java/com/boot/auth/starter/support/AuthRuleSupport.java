@@ -0,0 +1,138 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.annotation.Auth;
+import com.boot.auth.starter.annotation.IgnoreLogin;
+import com.boot.auth.starter.annotation.NoAuthGetSession;
+import com.boot.auth.starter.annotation.OperLog;
+import com.boot.auth.starter.model.AuthRule;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 路由权限规则
+ * 启动时扫描 RequestMappingHandlerMapping 中的全部 HandlerMethod，预编译为 AuthRule，
+ * 请求时只需要按 Method 做一次查找
+ */
+@Component
+public class AuthRuleSupport {
+    private final static Logger log = LoggerFactory.getLogger(AuthRuleSupport.class);
+    final
+    RequestMappingHandlerMapping requestMappingHandlerMapping;
+    RoleRegistrySupport roleRegistrySupport;
+    /**
+     * 启动时编译的规则，只读
+     */
+    private Map<Method, AuthRule> rules = Collections.emptyMap();
+    /**
+     * 启动后才注册的 HandlerMethod 规则
+     */
+    private final Map<Method, AuthRule> lateRules = new ConcurrentHashMap<>();
+
+    public AuthRuleSupport(RequestMappingHandlerMapping requestMappingHandlerMapping,
+                           RoleRegistrySupport roleRegistrySupport) {
+        this.requestMappingHandlerMapping = requestMappingHandlerMapping;
+        this.roleRegistrySupport = roleRegistrySupport;
+    }
+
+    @PostConstruct
+    private void init() {
+        Map<Method, AuthRule> compiled = new IdentityHashMap<>();
+        requestMappingHandlerMapping.getHandlerMethods().forEach((info, handlerMethod) ->
+                compiled.putIfAbsent(handlerMethod.getMethod(), compile(handlerMethod, route(info))));
+        rules = Collections.unmodifiableMap(compiled);
+        log.info("AuthRule [编译完成] 共{}条,角色{}个", compiled.size(), roleRegistrySupport.size());
+    }
+
+    /**
+     * 获取 HandlerMethod 对应的规则
+     *
+     * @param handlerMethod HandlerMethod
+     * @return 规则
+     */
+    public AuthRule getRule(HandlerMethod handlerMethod) {
+        Method method = handlerMethod.getMethod();
+        AuthRule rule = rules.get(method);
+        if (rule != null) return rule;
+        return lateRules.computeIfAbsent(method, m -> compile(handlerMethod, lateRoute(m)));
+    }
+
+    /**
+     * 启动后才注册的 HandlerMethod 的路由，每个处理方法只查找一次
+     *
+     * @param method 处理方法
+     * @return 路由，找不到时为 null
+     */
+    private String lateRoute(Method method) {
+        String route = requestMappingHandlerMapping.getHandlerMethods().entrySet().stream()
+                .filter(entry -> entry.getValue().getMethod().equals(method))
+                .map(entry -> route(entry.getKey()))
+                .collect(Collectors.joining(" || "));
+        return route.isEmpty() ? null : route;
+    }
+
+    /**
+     * 获取全部规则
+     *
+     * @return 规则列表
+     */
+    public List<AuthRule> getRules() {
+        List<AuthRule> list = new ArrayList<>(rules.values());
+        list.addAll(lateRules.values());
+        return list;
+    }
+
+    /**
+     * 编译规则，类上的注解优先于方法上的注解
+     *
+     * @param handlerMethod HandlerMethod
+     * @param route         路由
+     * @return 规则
+     */
+    private AuthRule compile(HandlerMethod handlerMethod, String route) {
+        String handler = handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+        OperLog operLog = findAnnotation(handlerMethod, OperLog.class);
+        String operType = operLog != null && operLog.flag() ? operLog.operType() : null;
+        Auth auth = findAnnotation(handlerMethod, Auth.class);
+        //没有auth直接认证通过
+        if (auth == null) return new AuthRule(AuthRule.Type.PUBLIC, false, null, null, operType, route, handler);
+        // 不校验登录信息
+        IgnoreLogin ignoreLogin = findAnnotation(handlerMethod, IgnoreLogin.class);
+        if (ignoreLogin != null && ignoreLogin.ignore()) {
+            return new AuthRule(AuthRule.Type.IGNORE_LOGIN, false, null, null, operType, route, handler);
+        }
+        //不强制校验权限
+        NoAuthGetSession noAuthGetSession = findAnnotation(handlerMethod, NoAuthGetSession.class);
+        if (noAuthGetSession != null) {
+            return new AuthRule(AuthRule.Type.SESSION_OPTIONAL, noAuthGetSession.loginRequired(), null, null,
+                    operType, route, handler);
+        }
+        return new AuthRule(AuthRule.Type.ROLES_REQUIRED, true, auth.roles(),
+                roleRegistrySupport.compile(auth.roles()), operType, route, handler);
+    }
+
+    private <A extends Annotation> A findAnnotation(HandlerMethod handlerMethod, Class<A> annotationType) {
+        A annotation = handlerMethod.getMethod().getDeclaringClass().getAnnotation(annotationType);
+        if (annotation == null) annotation = handlerMethod.getMethodAnnotation(annotationType);
+        return annotation;
+    }
+
+    private String route(RequestMappingInfo info) {
+        String patterns = info.getPatternsCondition().getPatterns().stream()
+                .map(PathPattern::getPatternString)
+                .collect(Collectors.joining(" || "));
+        if (info.getMethodsCondition().getMethods().isEmpty()) return patterns;
+        return info.getMethodsCondition().getMethods() + " " + patterns;
+    }
+}
@@ -0,0 +1,306 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 缓存快照，info.auth.snapshot.enable=true 时启用
+ * 停止时（可选定时）把 CacheService 中未过期的条目连同过期时间写入本地文件，启动时通过内存映射顺序读取并写回缓存，
+ * 重新部署后用户不需要重新登录。加载完成后删除快照文件，避免下次启动时恢复已经注销的会话。
+ * 加载前先校验整个文件，写入缓存中途失败时撤销已写入的条目并删除快照；全部写入后按快照中的会话 key 重建会话索引和排他索引。快照中的会话没有加密，必须通过 snapshot.path 显式指定路径，未指定时不写出也不加载；文件只有当前用户可以读写。
+ * 文件格式：[int MAGIC][int VERSION][long 写出时间]{[int keyLength][int dataLength][long expireAt][key][data]}[int END][long 条目数][long CRC32]，
+ * CRC32 覆盖除最后 8 个字节以外的全部内容。
+ * 启动阶段早于 web 服务，停止阶段晚于 web 服务，保证加载完成后才接收请求、停止接收请求后才写出
+ */
+@Component
+@ConditionalOnProperty(prefix = "info.auth", name = "snapshot.enable", havingValue = "true")
+public class CacheSnapshotSupport implements SmartLifecycle {
+    private final static Logger log = LoggerFactory.getLogger(CacheSnapshotSupport.class);
+    final static int MAGIC = 0x41555448;
+    final static int VERSION = 1;
+    final static int END = -1;
+    final static int HEADER_BYTES = 16;
+    final static int FOOTER_BYTES = 20;
+    final static int RECORD_HEADER_BYTES = 16;
+    final
+    CacheService cacheService;
+    AuthProperties.Snapshot config;
+    UserSessionIndexSupport userSessionIndexSupport;
+    ExcludeIndexSupport excludeIndexSupport;
+    private final boolean exclude;
+    /**
+     * 快照文件，未配置 snapshot.path 时为 null，此时快照不生效
+     */
+    private final Path path;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public CacheSnapshotSupport(CacheService cacheService, AuthProperties authProperties,
+                                UserSessionIndexSupport userSessionIndexSupport, ExcludeIndexSupport excludeIndexSupport) {
+        this.cacheService = cacheService;
+        this.config = authProperties.getSnapshot();
+        this.userSessionIndexSupport = userSessionIndexSupport;
+        this.excludeIndexSupport = excludeIndexSupport;
+        this.exclude = authProperties.getEnableExclude();
+        this.path = StringUtils.hasText(config.getPath()) ? Paths.get(config.getPath()).toAbsolutePath() : null;
+        if (path == null) log.warn("缓存快照未配置 snapshot.path,不写出也不加载快照");
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (path == null) return;
+        load();
+        if (config.getInterval() > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "auth-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::write, config.getInterval(), config.getInterval(), TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        ScheduledExecutorService current = scheduler;
+        if (current != null) current.shutdownNow();
+        if (path != null) write();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * web 服务的阶段为 DEFAULT_PHASE - 2048
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * 写出快照，先写入临时文件再替换，写出失败不影响原有快照
+     *
+     * @return 写出的条目数，失败或未配置路径时返回 -1
+     */
+    public synchronized long write() {
+        if (path == null) return -1L;
+        long start = System.currentTimeMillis();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] count = {0L};
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            //先以只有当前用户可以读写的权限创建，再写入内容
+            Files.deleteIfExists(temp);
+            Files.createFile(temp, ownerOnly());
+            try (OutputStream file = Files.newOutputStream(temp, StandardOpenOption.WRITE)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(start);
+                cacheService.forEach((key, data, expireAt) -> {
+                    if (expireAt <= start) return;
+                    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                    byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
+                    try {
+                        out.writeInt(keyBytes.length);
+                        out.writeInt(dataBytes.length);
+                        out.writeLong(expireAt);
+                        out.write(keyBytes);
+                        out.write(dataBytes);
+                    } catch (IOException e) {
+                        throw new SnapshotException(e);
+                    }
+                    count[0]++;
+                });
+                out.writeInt(END);
+                out.writeLong(count[0]);
+                out.flush();
+                //校验值不参与计算，直接写入文件
+                new DataOutputStream(file).writeLong(crc.getValue());
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("缓存快照 [写出完成] 条目数:{} 耗时:{}ms 文件:{}", count[0], System.currentTimeMillis() - start, path);
+            return count[0];
+        } catch (IOException | SnapshotException e) {
+            log.error("缓存快照写出失败 文件:{}", path, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return -1L;
+        }
+    }
+
+    /**
+     * 加载快照，跳过已过期的条目，格式或校验不正确时放弃整个文件
+     * 先校验整个文件再写入缓存；写入缓存失败时撤销已写入的条目，加载要么全部生效要么都不生效
+     *
+     * @return 加载的条目数，没有快照、加载失败或未配置路径时返回 -1
+     */
+    public synchronized long load() {
+        if (path == null || !Files.isRegularFile(path)) return -1L;
+        long start = System.currentTimeMillis();
+        long skipped = 0L;
+        List<Entry> applied = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                log.warn("缓存快照大小不正确,放弃加载 文件:{} 大小:{}", path, size);
+                return -1L;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (!valid(buffer, (int) size)) {
+                log.warn("缓存快照校验失败或版本不一致,放弃加载 文件:{}", path);
+                return -1L;
+            }
+            buffer.position(HEADER_BYTES);
+            for (int keyLength = buffer.getInt(); keyLength != END; keyLength = buffer.getInt()) {
+                int dataLength = buffer.getInt();
+                long expireAt = buffer.getLong();
+                long now = System.currentTimeMillis();
+                if (expireAt <= now) {
+                    buffer.position(buffer.position() + keyLength + dataLength);
+                    skipped++;
+                    continue;
+                }
+                String key = decode(buffer, keyLength);
+                String data = decode(buffer, dataLength);
+                long overdueTime = expireAt == Long.MAX_VALUE ? 0L : Math.max(1L, (expireAt - now + 999L) / 1000L);
+                cacheService.put(key, data, overdueTime);
+                applied.add(new Entry(key, expireAt));
+            }
+        } catch (IOException e) {
+            log.error("缓存快照加载失败 文件:{}", path, e);
+            return -1L;
+        } catch (RuntimeException e) {
+            log.error("缓存快照加载失败,撤销已写入的{}个条目 文件:{}", applied.size(), path, e);
+            rollback(applied);
+            //服务会继续启动并接收请求，保留的快照在下次启动时可能恢复已经注销的会话
+            delete();
+            return -1L;
+        }
+        for (Entry entry : applied) {
+            if (!cacheService.isShared()) userSessionIndexSupport.add(entry.key(), entry.expireAt());
+            //重建排他索引，同一用户保留最大的 E 序号
+            if (exclude) excludeIndexSupport.register(entry.key(), entry.expireAt());
+        }
+        delete();
+        log.info("缓存快照 [加载完成] 条目数:{} 跳过过期:{} 耗时:{}ms", applied.size(), skipped, System.currentTimeMillis() - start);
+        return applied.size();
+    }
+
+    /**
+     * 校验整个文件：校验值、文件头，以及每个条目的长度都在文件范围内、结束标记和条目数与实际一致
+     *
+     * @param buffer 快照内容
+     * @param size   文件大小
+     * @return true 表示可以加载
+     */
+    static boolean valid(ByteBuffer buffer, int size) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, size - 8));
+        if (buffer.getLong(size - 8) != crc.getValue()
+                || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        int limit = size - FOOTER_BYTES;
+        int position = HEADER_BYTES;
+        long count = 0L;
+        while (position < limit) {
+            if (limit - position < RECORD_HEADER_BYTES) return false;
+            int keyLength = buffer.getInt(position);
+            int dataLength = buffer.getInt(position + 4);
+            if (keyLength < 0 || dataLength < 0
+                    || (long) keyLength + dataLength > limit - position - RECORD_HEADER_BYTES) {
+                return false;
+            }
+            position += RECORD_HEADER_BYTES + keyLength + dataLength;
+            count++;
+        }
+        return buffer.getInt(limit) == END && buffer.getLong(limit + 4) == count;
+    }
+
+    private void rollback(List<Entry> applied) {
+        for (Entry entry : applied) {
+            try {
+                cacheService.remove(entry.key());
+            } catch (RuntimeException e) {
+                log.warn("缓存快照撤销条目失败 key:{}", entry.key(), e);
+            }
+        }
+    }
+
+    private void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("缓存快照删除失败 文件:{}", path, e);
+        }
+    }
+
+    /**
+     * 只有当前用户可以读写，不支持 POSIX 权限的文件系统（例如 Windows）使用默认权限
+     */
+    private FileAttribute<?>[] ownerOnly() {
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) return new FileAttribute<?>[0];
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+    }
+
+    private static String decode(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 已写入缓存的条目，全部写入后再登记索引，失败时据此撤销
+     *
+     * @param key      会话 key
+     * @param expireAt 过期时间，单位毫秒
+     */
+    private record Entry(String key, long expireAt) {
+    }
+
+    private static final class SnapshotException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SnapshotException(IOException cause) {
+            super(cause);
+        }
+    }
+}
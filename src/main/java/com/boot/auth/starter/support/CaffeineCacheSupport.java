@@ -0,0 +1,189 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.exception.AuthException;
+import com.github.benmanes.caffeine.cache.*;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 caffeine 的缓存，info.auth.cache-type=caffeine 时启用
+ * 使用 W-TinyLFU 淘汰策略，与 GuavaCacheSupport 使用同一组 info.auth.guava-cache 设置，过期时间按条目生效；
+ * 开启 loadingCache 时使用 AsyncLoadingCache 异步加载，移除通知同样在 executor 中异步执行
+ */
+@Component
+@ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
+@ConditionalOnProperty(prefix = "info.auth", name = "cache-type", havingValue = "caffeine")
+public class CaffeineCacheSupport {
+    private final static Logger log = LoggerFactory.getLogger(CaffeineCacheSupport.class);
+    final
+    AuthProperties authProperties;
+    private volatile Cache<Object, Object> cache;
+    private volatile AsyncLoadingCache<Object, Object> loadingCache;
+    private AsyncCacheLoader<Object, Object> cacheLoader;
+    private RemovalListener<Object, Object> removalListener;
+    private final List<RemovalListener<Object, Object>> removalListeners = new CopyOnWriteArrayList<>();
+    private Executor executor = ForkJoinPool.commonPool();
+    private Ticker ticker = Ticker.systemTicker();
+
+    public CaffeineCacheSupport(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+    }
+
+    public CacheStats stats() {
+        if (!authProperties.getGuavaCache().getEnableCacheStats()) {
+            log.warn("未启用缓存统计");
+            return null;
+        }
+        CacheStats stats = authProperties.getGuavaCache().getEnableLoadingCache()
+                ? getLoadingCache().synchronous().stats() : getCache().stats();
+        log.info("缓存状态查看=> [命中次数:{}] [未命中次数:{}] [加载成功数:{}] [加载异常数:{}] [移除缓存次数:{}] [总加载时间:{}]",
+                stats.hitCount(), stats.missCount(), stats.loadSuccessCount(), stats.loadFailureCount(),
+                stats.evictionCount(), stats.totalLoadTime());
+        return stats;
+    }
+
+    public Cache<Object, Object> getCache() {
+        Cache<Object, Object> current = cache;
+        if (current == null) {
+            synchronized (this) {
+                current = cache;
+                if (current == null) {
+                    cache = current = builder().build();
+                    log.info("CaffeineCache [创建完成] 启用 cache");
+                }
+            }
+        }
+        return current;
+    }
+
+    public AsyncLoadingCache<Object, Object> getLoadingCache() {
+        AsyncLoadingCache<Object, Object> current = loadingCache;
+        if (current == null) {
+            synchronized (this) {
+                current = loadingCache;
+                if (current == null) {
+                    if (cacheLoader == null) throw new AuthException(RestStatus.SYSTEM_CACHE_ERROR);
+                    loadingCache = current = builder().buildAsync(cacheLoader);
+                    log.info("CaffeineCache [创建完成] 启用 loadingCache");
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 使用loadingCache 必须先手动调用，传入加载器方法
+     * 同步的 CacheLoader 也可以直接传入，会在 executor 中异步执行
+     *
+     * @param cacheLoader 加载器方法
+     */
+    public void setCacheLoader(AsyncCacheLoader<Object, Object> cacheLoader) {
+        this.cacheLoader = cacheLoader;
+    }
+
+    public RemovalListener<Object, Object> getRemovalListener() {
+        return removalListener;
+    }
+
+    /**
+     * 设置移除通知，需要在第一次使用缓存之前调用，通知在 executor 中异步执行
+     *
+     * @param removalListener 移除通知
+     */
+    public void setRemovalListener(RemovalListener<Object, Object> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * 增加移除通知，与 setRemovalListener 设置的通知同时生效，需要在第一次使用缓存之前调用
+     *
+     * @param removalListener 移除通知
+     */
+    public void addRemovalListener(RemovalListener<Object, Object> removalListener) {
+        removalListeners.add(removalListener);
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 设置异步加载和移除通知使用的线程池，默认 ForkJoinPool.commonPool()
+     *
+     * @param executor 线程池
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * 设置计算过期时间使用的时钟，默认 Ticker.systemTicker()，需要在第一次使用缓存之前调用
+     *
+     * @param ticker 时钟
+     */
+    public void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    private Caffeine<Object, Object> builder() {
+        AuthProperties.GuavaCache config = authProperties.getGuavaCache();
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder().executor(executor).ticker(ticker);
+        if (removalListener != null || !removalListeners.isEmpty()) {
+            RemovalListener<Object, Object> listener = removalListener;
+            caffeine.removalListener((key, value, cause) -> {
+                for (RemovalListener<Object, Object> added : removalListeners) added.onRemoval(key, value, cause);
+                if (listener != null) listener.onRemoval(key, value, cause);
+            });
+        }
+        if (config.getCacheInitialCapacity() > 0) caffeine.initialCapacity(config.getCacheInitialCapacity());
+        if (config.getCacheMaximumSize() > 0) caffeine.maximumSize(config.getCacheMaximumSize());
+        if (config.getEnableCacheStats()) caffeine.recordStats();
+        //按条目过期，未指定时使用 overdueTime，caffeine 内部使用分层时间轮处理
+        long defaultNanos = authProperties.getOverdueTime() > 0
+                ? TimeUnit.SECONDS.toNanos(authProperties.getOverdueTime()) : Long.MAX_VALUE;
+        caffeine.expireAfter(new Expiry<Object, Object>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return defaultNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return defaultNanos;
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        });
+        return caffeine;
+    }
+
+    /**
+     * 按条目设置过期时间的操作入口
+     *
+     * @return 当前启用的缓存对应的 VarExpiration
+     */
+    public Policy.VarExpiration<Object, Object> varExpiration() {
+        Policy<Object, Object> policy = authProperties.getGuavaCache().getEnableLoadingCache()
+                ? getLoadingCache().synchronous().policy() : getCache().policy();
+        return policy.expireVariably().orElseThrow(() -> new AuthException(RestStatus.SYSTEM_CACHE_ERROR));
+    }
+}
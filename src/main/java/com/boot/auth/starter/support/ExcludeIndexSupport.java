@@ -0,0 +1,166 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthConstant;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 排他登录索引，记录每个用户最新的排他序号
+ * 缓存写入会话时通过 register 登记，序号单调递增，并发登录时不会回退；校验只读，只需要一次查找和一次比较。
+ * 条目的过期时间跟随该用户最晚过期的会话，由时间轮在独立线程中移除，不占用请求线程
+ */
+@Component
+public class ExcludeIndexSupport {
+    private final static long TICK_MILLIS = 1000L;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    /**
+     * 用户 -> 条目的过期时间
+     */
+    private final ExpiryTimerWheel expiry = new ExpiryTimerWheel(TICK_MILLIS, 4096);
+    private final ScheduledExecutorService scheduler;
+
+    public ExcludeIndexSupport() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-exclude-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Entry> entries = index;
+        ExpiryTimerWheel wheel = expiry;
+        scheduler.scheduleWithFixedDelay(() -> {
+            long now = System.currentTimeMillis();
+            wheel.advance(now, userNo -> expire(entries, wheel, (String) userNo, now));
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 登记会话的排他序号，缓存写入会话（包括从快照恢复）时调用
+     *
+     * @param key      会话 key，格式为 userNo,group,time,E序号，不是带排他序号的 key 时忽略
+     * @param expireAt 会话的过期时间，单位毫秒，永不过期时为 Long.MAX_VALUE
+     */
+    public void register(String key, long expireAt) {
+        int userEnd = key.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR);
+        long serial = serial(key, userEnd);
+        if (serial < 0) return;
+        register(key.substring(0, userEnd), serial, expireAt);
+    }
+
+    /**
+     * 登记排他序号，保留较大的序号和较晚的过期时间
+     *
+     * @param userNo   用户
+     * @param serial   排他序号
+     * @param expireAt 会话的过期时间，单位毫秒，永不过期时为 Long.MAX_VALUE
+     */
+    public void register(String userNo, long serial, long expireAt) {
+        Entry entry = index.compute(userNo, (user, current) -> {
+            if (current == null) return new Entry(serial, expireAt);
+            if (current.serial() >= serial && current.expireAt() >= expireAt) return current;
+            return new Entry(Math.max(current.serial(), serial), Math.max(current.expireAt(), expireAt));
+        });
+        //在 compute 之外登记，时间轮的锁与索引的锁不会嵌套
+        expiry.schedule(userNo, entry.expireAt());
+    }
+
+    /**
+     * 校验会话 key 是否为该用户最新的会话，只读
+     *
+     * @param key 会话 key，格式为 userNo,group,time,E序号
+     * @return true 表示通过，不是带排他序号的 key 时同样返回 true
+     */
+    public boolean check(String key) {
+        return check(key, null);
+    }
+
+    /**
+     * 校验会话 key 是否为该用户最新的会话，只读
+     *
+     * @param key    会话 key，格式为 userNo,group,time,E序号
+     * @param loader 索引中没有该用户时加载最新序号，结果不写入索引，可以为 null
+     * @return true 表示通过，不是带排他序号的 key 时同样返回 true
+     */
+    public boolean check(String key, LongSupplier loader) {
+        int userEnd = key.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR);
+        long serial = serial(key, userEnd);
+        if (serial < 0) return true;
+        return check(key.substring(0, userEnd), serial, loader);
+    }
+
+    /**
+     * 校验排他序号，只读
+     *
+     * @param userNo 用户
+     * @param serial 排他序号
+     * @param loader 索引中没有该用户时加载最新序号，结果不写入索引，可以为 null
+     * @return true 表示 serial 不小于该用户最新的序号，没有记录时返回 true
+     */
+    public boolean check(String userNo, long serial, LongSupplier loader) {
+        Entry entry = index.get(userNo);
+        if (entry != null) return serial >= entry.serial();
+        return loader == null || serial >= loader.getAsLong();
+    }
+
+    /**
+     * 查询用户最新的排他序号
+     *
+     * @param userNo 用户
+     * @return 排他序号，没有记录时返回 0
+     */
+    public long latest(String userNo) {
+        Entry entry = index.get(userNo);
+        return entry == null ? 0L : entry.serial();
+    }
+
+    /**
+     * 索引中的用户数
+     *
+     * @return 数量
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 从会话 key 中取出排他序号
+     *
+     * @param userEnd 第一个分隔符的位置
+     * @return 排他序号，不是带排他序号的 key 时返回 -1
+     */
+    private static long serial(String key, int userEnd) {
+        int serialStart = key.lastIndexOf(AuthConstant.HEAD_TOKEN_SEPARATOR) + 1;
+        if (userEnd <= 0 || serialStart >= key.length() - 1 || key.charAt(serialStart) != 'E') return -1L;
+        try {
+            return Long.parseLong(key, serialStart + 1, key.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * 时间轮到期时移除条目，期间重新登记延长了过期时间时按新的过期时间重新挂到时间轮上
+     */
+    private static void expire(Map<String, Entry> index, ExpiryTimerWheel wheel, String userNo, long now) {
+        Entry entry = index.computeIfPresent(userNo, (user, current) -> current.expireAt() <= now ? null : current);
+        if (entry != null) wheel.schedule(userNo, entry.expireAt());
+    }
+
+    /**
+     * @param serial   最新的排他序号
+     * @param expireAt 该用户最晚过期的会话的过期时间，单位毫秒
+     */
+    private record Entry(long serial, long expireAt) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.boot.auth.starter.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 按条目过期的时间轮
+ * 每个 key 对应一个节点，按过期时间挂到 tick 取模后的槽位中，登记、取消都是 O(1)；
+ * 推进时只处理经过的槽位，超过一圈的节点留到后面的圈数再处理。
+ * 查询过期时间不加锁，登记、取消、推进使用同一把锁，推进只在调用方访问缓存时顺带进行，不需要单独的线程
+ */
+public class ExpiryTimerWheel {
+    /**
+     * 永不过期
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+    private final long tickMillis;
+    private final int mask;
+    private final Node[] buckets;
+    private final Map<Object, Node> nodes = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long currentTick;
+
+    /**
+     * @param tickMillis 每个槽位的时间跨度，单位毫秒
+     * @param wheelSize  槽位数，会向上取整为 2 的幂
+     */
+    public ExpiryTimerWheel(long tickMillis, int wheelSize) {
+        this.tickMillis = Math.max(1L, tickMillis);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.mask = size - 1;
+        this.buckets = new Node[size];
+        for (int i = 0; i < size; i++) {
+            Node sentinel = new Node(null, 0L);
+            sentinel.previous = sentinel.next = sentinel;
+            buckets[i] = sentinel;
+        }
+        this.currentTick = System.currentTimeMillis() / this.tickMillis;
+    }
+
+    /**
+     * 登记或更新 key 的过期时间
+     *
+     * @param key      key
+     * @param expireAt 过期时间，单位毫秒，NEVER 表示永不过期
+     */
+    public void schedule(Object key, long expireAt) {
+        Node node = new Node(key, expireAt);
+        lock.lock();
+        try {
+            Node previous = nodes.put(key, node);
+            if (previous != null) previous.unlink();
+            if (expireAt != NEVER) node.linkBefore(buckets[(int) (Math.max(expireAt / tickMillis, currentTick) & mask)]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取消 key 的过期时间
+     *
+     * @param key key
+     */
+    public void cancel(Object key) {
+        if (!nodes.containsKey(key)) return;
+        lock.lock();
+        try {
+            Node node = nodes.remove(key);
+            if (node != null) node.unlink();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 查询 key 的过期时间，不加锁
+     *
+     * @param key key
+     * @return 过期时间，单位毫秒，未登记时返回 0
+     */
+    public long expireAt(Object key) {
+        Node node = nodes.get(key);
+        return node == null ? 0L : node.expireAt;
+    }
+
+    /**
+     * 推进时间轮，把已过期的 key 交给 onExpire
+     * 已有其他线程在推进或还没有到下一个 tick 时直接返回
+     *
+     * @param now      当前时间，单位毫秒
+     * @param onExpire 过期处理
+     */
+    public void advance(long now, Consumer<Object> onExpire) {
+        long nowTick = now / tickMillis;
+        if (nowTick <= currentTick || !lock.tryLock()) return;
+        try {
+            long fromTick = currentTick;
+            //超过一圈时每个槽位只需要处理一次
+            long toTick = Math.min(nowTick, fromTick + mask + 1);
+            for (long tick = fromTick; tick < toTick; tick++) {
+                Node sentinel = buckets[(int) (tick & mask)];
+                Node node = sentinel.next;
+                while (node != sentinel) {
+                    Node next = node.next;
+                    if (node.expireAt <= now) {
+                        node.unlink();
+                        if (nodes.remove(node.key, node)) onExpire.accept(node.key);
+                    }
+                    node = next;
+                }
+            }
+            currentTick = nowTick;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 登记的 key 数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    private static final class Node {
+        final Object key;
+        final long expireAt;
+        Node previous;
+        Node next;
+
+        Node(Object key, long expireAt) {
+            this.key = key;
+            this.expireAt = expireAt;
+        }
+
+        void linkBefore(Node sentinel) {
+            previous = sentinel.previous;
+            next = sentinel;
+            sentinel.previous.next = this;
+            sentinel.previous = this;
+        }
+
+        void unlink() {
+            if (previous == null) return;
+            previous.next = next;
+            next.previous = previous;
+            previous = next = null;
+        }
+    }
+}
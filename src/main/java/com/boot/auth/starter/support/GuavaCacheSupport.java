@@ -9,9 +9,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 基于 guava 的缓存
@@ -36,7 +37,12 @@ public class GuavaCacheSupport {
     private LoadingCache<Object, Object> loadingCache;
     private CacheLoader<Object, Object> cacheLoader;
     private RemovalListener<Object, Object> removalListener;
+    private final List<RemovalListener<Object, Object>> syncRemovalListeners = new CopyOnWriteArrayList<>();
     private final Executor EXECUTOR = Executors.newFixedThreadPool(CPU_N);
+    /**
+     * 按条目过期的时间轮，guava 不支持按条目设置过期时间，由 DefaultCacheServiceImpl 通过它实现
+     */
+    private final ExpiryTimerWheel expiryTimerWheel = new ExpiryTimerWheel(1000L, 4096);
     private Boolean ENABLE = true;
 
     /**
@@ -104,6 +110,10 @@ public class GuavaCacheSupport {
         this.cacheLoader = cacheLoader;
     }
 
+    public ExpiryTimerWheel getExpiryTimerWheel() {
+        return expiryTimerWheel;
+    }
+
     public RemovalListener<Object, Object> getRemovalListener() {
         return removalListener;
     }
@@ -112,6 +122,16 @@ public class GuavaCacheSupport {
         this.removalListener = removalListener;
     }
 
+    /**
+     * 增加同步执行的移除通知，与 setRemovalListener 设置的异步通知同时生效
+     * 需要在第一次使用缓存之前调用，通知在移除缓存的线程中执行，应尽量简短
+     *
+     * @param removalListener 移除通知
+     */
+    public void addRemovalListener(RemovalListener<Object, Object> removalListener) {
+        syncRemovalListeners.add(removalListener);
+    }
+
     /**
      * 自动判断当前可以自动初始化的缓存类型
      */
@@ -120,23 +140,27 @@ public class GuavaCacheSupport {
             log.warn("未启用 GuavaCacheSupport ");
             return;
         }
-        if (authProperties.getGuavaCache().getEnableLoadingCache()) {
-            if (this.loadingCache == null) createCache();
-        } else {
-            if (this.cache == null) createCache();
+        if (authProperties.getGuavaCache().getEnableLoadingCache() ? this.loadingCache != null : this.cache != null) return;
+        synchronized (this) {
+            if (authProperties.getGuavaCache().getEnableLoadingCache()) {
+                if (this.loadingCache == null) createCache();
+            } else {
+                if (this.cache == null) createCache();
+            }
         }
         stats();
     }
 
     private void createCache() {
-        CacheBuilder<Object, Object> cacheBuilder;
-        //设置缓存的异步移除通知
-        if (this.getRemovalListener() != null) {
-            cacheBuilder = CacheBuilder.newBuilder()
-                    .removalListener(RemovalListeners.asynchronous(removalListener, EXECUTOR));
-        } else {
-            cacheBuilder = CacheBuilder.newBuilder();
-        }
+        //容量淘汰时同步取消时间轮中的节点，依次执行同步通知，再异步转发给设置的移除通知
+        RemovalListener<Object, Object> asyncListener = this.getRemovalListener() == null ? null
+                : RemovalListeners.asynchronous(removalListener, EXECUTOR);
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                .removalListener(notification -> {
+                    if (notification.wasEvicted()) expiryTimerWheel.cancel(notification.getKey());
+                    for (RemovalListener<Object, Object> listener : syncRemovalListeners) listener.onRemoval(notification);
+                    if (asyncListener != null) asyncListener.onRemoval(notification);
+                });
         //设置并发级别,并发级别是指可以同时写缓存的线程数
         cacheBuilder.concurrencyLevel(CPU_N);
         //设置缓存容器的初始容量为100
@@ -151,10 +175,7 @@ public class GuavaCacheSupport {
         if (authProperties.getGuavaCache().getEnableCacheStats()) {
             cacheBuilder.recordStats();
         }
-        //设置写缓存后n秒钟过期
-        if (authProperties.getOverdueTime() > 0) {
-            cacheBuilder.expireAfterWrite(authProperties.getOverdueTime(), TimeUnit.SECONDS);
-        }
+        //过期时间按条目记录在 expiryTimerWheel 中，不再设置统一的 expireAfterWrite
         // 设置加载缓存的方法
         if (authProperties.getGuavaCache().getEnableLoadingCache()) {
             if (this.getCacheLoader() == null) {
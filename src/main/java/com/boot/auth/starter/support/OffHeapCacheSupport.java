@@ -0,0 +1,415 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.exception.AuthException;
+import com.boot.auth.starter.service.CacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 堆外缓存，info.auth.cache-type=offheap 时启用
+ * key 和 value 以 UTF-8 字节保存在直接内存中，堆上不保存任何单个条目的对象，适合数百万级别的会话。
+ * 数据按 key 的哈希分到多个段，每个段包含：
+ * 1、开放寻址的索引，每个槽位 8 字节（哈希、记录位置）
+ * 2、环形日志，记录依次追加，空间或索引不足时从最早的记录开始淘汰（FIFO）
+ * 每条记录带有过期时间，读取时过期的记录视为不存在
+ */
+@Component
+@ConditionalOnProperty(prefix = "info.auth", name = "cache-type", havingValue = "offheap")
+public class OffHeapCacheSupport {
+    private final static Logger log = LoggerFactory.getLogger(OffHeapCacheSupport.class);
+    /**
+     * 永不过期
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final LongAdder evictionCount = new LongAdder();
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+
+    public OffHeapCacheSupport(AuthProperties authProperties) {
+        AuthProperties.OffHeap config = authProperties.getOffHeap();
+        int segmentCount = Integer.highestOneBit(Math.max(2, config.getSegments()) - 1) << 1;
+        long segmentBytes = config.getCapacity() / segmentCount;
+        long segmentEntries = Math.max(16L, config.getMaximumSize() / segmentCount);
+        if (segmentBytes > Integer.MAX_VALUE - 8 || segmentBytes < Segment.HEADER_BYTES) {
+            throw new AuthException(RestStatus.SYSTEM_CACHE_ERROR);
+        }
+        //每段的索引同样是一块 ByteBuffer，不能超过 int 能表示的大小
+        if (segmentEntries > Segment.MAX_ENTRIES) {
+            log.error("OffHeapCache 每段最大条目数{}超过上限{},请调大 off-heap.segments 或调小 off-heap.maximum-size",
+                    segmentEntries, Segment.MAX_ENTRIES);
+            throw new AuthException(RestStatus.SYSTEM_CACHE_ERROR);
+        }
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) segmentBytes, segmentEntries, evictionCount, removalListeners);
+        }
+        log.info("OffHeapCache [创建完成] 段数:{} 每段容量:{}字节 每段最大条目数:{}", segmentCount, segmentBytes, segmentEntries);
+    }
+
+    /**
+     * 增加移除通知，条目因容量淘汰或读取时发现已过期而被移除时执行，主动调用 remove 时不执行
+     * 通知在段锁内执行，应尽量简短
+     *
+     * @param removalListener 移除通知，参数为 key
+     */
+    public void addRemovalListener(Consumer<String> removalListener) {
+        removalListeners.add(removalListener);
+    }
+
+    /**
+     * 存储
+     *
+     * @param key      key
+     * @param value    value
+     * @param expireAt 过期时间，单位毫秒，NEVER 表示永不过期
+     * @return false 表示条目超过单个段的容量，未存储
+     */
+    public boolean put(String key, String value, long expireAt) {
+        int hash = hash(key);
+        return segment(hash).put(hash, key.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8), expireAt);
+    }
+
+    /**
+     * 获取
+     *
+     * @param key key
+     * @return value，不存在或已过期时返回 null
+     */
+    public String get(String key) {
+        int hash = hash(key);
+        byte[] value = segment(hash).get(hash, key.getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 查询过期时间
+     *
+     * @param key key
+     * @return 过期时间，单位毫秒，不存在或已过期时返回 0
+     */
+    public long expireAt(String key) {
+        int hash = hash(key);
+        return segment(hash).expireAt(hash, key.getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+    }
+
+    /**
+     * 移除
+     *
+     * @param key key
+     */
+    public void remove(String key) {
+        int hash = hash(key);
+        segment(hash).remove(hash, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 遍历全部未过期的条目
+     * 每个段在锁内拷贝出条目后再交给 consumer，consumer 执行期间不持有段锁
+     *
+     * @param consumer 条目处理
+     */
+    public void forEach(CacheService.EntryConsumer consumer) {
+        for (Segment segment : segments) {
+            List<byte[]> records = segment.copy(System.currentTimeMillis());
+            for (byte[] record : records) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                int keyLength = buffer.getInt(0);
+                int valueLength = buffer.getInt(4);
+                consumer.accept(new String(record, Segment.HEADER_BYTES, keyLength, StandardCharsets.UTF_8),
+                        new String(record, Segment.HEADER_BYTES + keyLength, valueLength, StandardCharsets.UTF_8),
+                        buffer.getLong(12));
+            }
+        }
+    }
+
+    /**
+     * 当前条目数，包括已过期但还未淘汰的条目
+     *
+     * @return 条目数
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) size += segment.count;
+        return size;
+    }
+
+    /**
+     * 日志已占用的字节数
+     *
+     * @return 字节数
+     */
+    public long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) used += segment.used;
+        return used;
+    }
+
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    public void stats() {
+        log.info("堆外缓存状态查看=> [条目数:{}] [占用字节:{}] [淘汰次数:{}]", size(), usedBytes(), evictionCount());
+    }
+
+    private Segment segment(int hash) {
+        return segments[hash >>> segmentShift];
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 单个段，所有操作在段锁内进行
+     * 记录格式：[int keyLength][int valueLength][int hash][long expireAt][key][value]
+     * 日志尾部剩余空间不足时写入 PAD 标记（剩余不足 4 字节时不写）并从头开始
+     */
+    private static final class Segment {
+        static final int HEADER_BYTES = 20;
+        static final int PAD = -1;
+        static final int SLOT_BYTES = 8;
+        /**
+         * 每段最大条目数，索引按负载因子 0.75 向上取 2 的幂后不超过 2^27 个槽位（1GB）
+         */
+        static final long MAX_ENTRIES = (1L << 27) * 3 / 4;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer data;
+        private final ByteBuffer index;
+        private final int capacity;
+        private final int slotMask;
+        private final long maxCount;
+        private final LongAdder evictionCount;
+        private final List<Consumer<String>> removalListeners;
+        private int head;
+        private int tail;
+        volatile long used;
+        volatile long count;
+
+        Segment(int capacity, long maxEntries, LongAdder evictionCount, List<Consumer<String>> removalListeners) {
+            this.capacity = capacity;
+            this.data = ByteBuffer.allocateDirect(capacity);
+            //负载因子 0.75
+            long slots = Long.highestOneBit(Math.max(16L, maxEntries * 4 / 3) - 1) << 1;
+            this.index = ByteBuffer.allocateDirect(Math.toIntExact(slots * SLOT_BYTES));
+            this.slotMask = Math.toIntExact(slots - 1);
+            this.maxCount = Math.min(maxEntries, slots * 3 / 4);
+            this.evictionCount = evictionCount;
+            this.removalListeners = removalListeners;
+        }
+
+        boolean put(int hash, byte[] key, byte[] value, long expireAt) {
+            int size = HEADER_BYTES + key.length + value.length;
+            if (size > capacity) return false;
+            lock.lock();
+            try {
+                int slot = find(hash, key);
+                if (slot >= 0) deleteSlot(slot);
+                while (count >= maxCount) evictHead();
+                int offset = reserve(size);
+                data.putInt(offset, key.length);
+                data.putInt(offset + 4, value.length);
+                data.putInt(offset + 8, hash);
+                data.putLong(offset + 12, expireAt);
+                data.put(offset + HEADER_BYTES, key);
+                data.put(offset + HEADER_BYTES + key.length, value);
+                insertSlot(hash, offset);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        byte[] get(int hash, byte[] key, long now) {
+            lock.lock();
+            try {
+                int slot = find(hash, key);
+                if (slot < 0) return null;
+                int offset = offset(slot);
+                if (data.getLong(offset + 12) <= now) {
+                    deleteSlot(slot);
+                    notifyRemoval(offset);
+                    return null;
+                }
+                byte[] value = new byte[data.getInt(offset + 4)];
+                data.get(offset + HEADER_BYTES + data.getInt(offset), value);
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long expireAt(int hash, byte[] key, long now) {
+            lock.lock();
+            try {
+                int slot = find(hash, key);
+                if (slot < 0) return 0L;
+                long expireAt = data.getLong(offset(slot) + 12);
+                return expireAt <= now ? 0L : expireAt;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(int hash, byte[] key) {
+            lock.lock();
+            try {
+                int slot = find(hash, key);
+                if (slot >= 0) deleteSlot(slot);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 拷贝全部未过期的记录
+         *
+         * @param now 当前时间，单位毫秒
+         * @return 完整记录，格式与日志中相同
+         */
+        List<byte[]> copy(long now) {
+            lock.lock();
+            try {
+                List<byte[]> records = new ArrayList<>((int) count);
+                for (int slot = 0; slot <= slotMask; slot++) {
+                    if (offsetPlusOne(slot) == 0) continue;
+                    int offset = offset(slot);
+                    if (data.getLong(offset + 12) <= now) continue;
+                    byte[] record = new byte[HEADER_BYTES + data.getInt(offset) + data.getInt(offset + 4)];
+                    data.get(offset, record);
+                    records.add(record);
+                }
+                return records;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 在日志中预留 size 字节，空间不足时淘汰最早的记录
+         *
+         * @return 记录位置
+         */
+        private int reserve(int size) {
+            for (; ; ) {
+                if (used == 0) head = tail = 0;
+                if (tail > head || used == 0) {
+                    if (capacity - tail >= size) break;
+                    //尾部空间不足，填充后从头开始
+                    if (capacity - tail >= 4) data.putInt(tail, PAD);
+                    used += capacity - tail;
+                    tail = 0;
+                } else if (head - tail >= size) {
+                    break;
+                } else {
+                    evictHead();
+                }
+            }
+            int offset = tail;
+            tail += size;
+            used += size;
+            if (tail == capacity) tail = 0;
+            return offset;
+        }
+
+        /**
+         * 淘汰最早的一条记录，记录仍被索引引用时同时删除索引
+         */
+        private void evictHead() {
+            if (capacity - head < 4 || data.getInt(head) == PAD) {
+                used -= capacity - head;
+                head = 0;
+                return;
+            }
+            int keyLength = data.getInt(head);
+            int size = HEADER_BYTES + keyLength + data.getInt(head + 4);
+            int hash = data.getInt(head + 8);
+            for (int slot = hash & slotMask; offsetPlusOne(slot) != 0; slot = (slot + 1) & slotMask) {
+                if (offset(slot) == head) {
+                    deleteSlot(slot);
+                    evictionCount.increment();
+                    notifyRemoval(head);
+                    break;
+                }
+            }
+            used -= size;
+            head += size;
+            if (head == capacity) head = 0;
+        }
+
+        private void notifyRemoval(int offset) {
+            if (removalListeners.isEmpty()) return;
+            byte[] key = new byte[data.getInt(offset)];
+            data.get(offset + HEADER_BYTES, key);
+            String removed = new String(key, StandardCharsets.UTF_8);
+            for (Consumer<String> listener : removalListeners) listener.accept(removed);
+        }
+
+        private int find(int hash, byte[] key) {
+            for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+                int offsetPlusOne = offsetPlusOne(slot);
+                if (offsetPlusOne == 0) return -1;
+                if (index.getInt(slot * SLOT_BYTES) == hash && keyEquals(offsetPlusOne - 1, key)) return slot;
+            }
+        }
+
+        private boolean keyEquals(int offset, byte[] key) {
+            if (data.getInt(offset) != key.length) return false;
+            int start = offset + HEADER_BYTES;
+            for (int i = 0; i < key.length; i++) {
+                if (data.get(start + i) != key[i]) return false;
+            }
+            return true;
+        }
+
+        private void insertSlot(int hash, int offset) {
+            int slot = hash & slotMask;
+            while (offsetPlusOne(slot) != 0) slot = (slot + 1) & slotMask;
+            index.putInt(slot * SLOT_BYTES, hash);
+            index.putInt(slot * SLOT_BYTES + 4, offset + 1);
+            count++;
+        }
+
+        /**
+         * 删除槽位，把后面同一探测链上的槽位前移，不使用墓碑
+         */
+        private void deleteSlot(int slot) {
+            int hole = slot;
+            for (int next = (hole + 1) & slotMask; offsetPlusOne(next) != 0; next = (next + 1) & slotMask) {
+                int home = index.getInt(next * SLOT_BYTES) & slotMask;
+                //home 不在 (hole, next] 之间时可以前移到 hole
+                boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+                if (movable) {
+                    index.putLong(hole * SLOT_BYTES, index.getLong(next * SLOT_BYTES));
+                    hole = next;
+                }
+            }
+            index.putLong(hole * SLOT_BYTES, 0L);
+            count--;
+        }
+
+        private int offsetPlusOne(int slot) {
+            return index.getInt(slot * SLOT_BYTES + 4);
+        }
+
+        private int offset(int slot) {
+            return offsetPlusOne(slot) - 1;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.OperLogAnnotationEntity;
+import com.boot.auth.starter.service.LogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志队列
+ * 请求线程只把日志放入有界无锁环形队列，由后台线程按条数或时间批量调用 LogService.addLogs 写出，
+ * 队列满时按 OverflowPolicy 处理；BLOCK 策略在事件循环等非阻塞线程上按 DROP 处理，不会阻塞这些线程
+ */
+@Component
+public class OperLogSupport implements DisposableBean {
+    private final static Logger log = LoggerFactory.getLogger(OperLogSupport.class);
+    final
+    LogService logService;
+    AuthProperties.OperLogQueue config;
+    private final RingBuffer<OperLogAnnotationEntity> queue;
+    private final LongAdder offerCount = new LongAdder();
+    private final LongAdder dropCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final AtomicLong sampleSequence = new AtomicLong();
+    private volatile Thread drainThread;
+    private volatile boolean running = true;
+
+    public OperLogSupport(LogService logService, AuthProperties authProperties) {
+        this.logService = logService;
+        this.config = authProperties.getOperLogQueue();
+        this.queue = new RingBuffer<>(config.getCapacity());
+    }
+
+    /**
+     * 放入一条日志，不会阻塞（BLOCK 策略在可以阻塞的线程上调用时除外）
+     *
+     * @param logEntity 日志
+     * @return true 表示已放入队列，false 表示被丢弃
+     */
+    public boolean offer(OperLogAnnotationEntity logEntity) {
+        if (!running) {
+            dropCount.increment();
+            return false;
+        }
+        Thread thread = startIfNecessary();
+        offerCount.increment();
+        boolean offered = switch (config.getOverflowPolicy()) {
+            case DROP -> queue.offer(logEntity);
+            case SAMPLE -> offerSampled(logEntity);
+            case BLOCK -> Schedulers.isInNonBlockingThread() ? queue.offer(logEntity) : offerBlocking(logEntity);
+        };
+        if (!offered) {
+            dropCount.increment();
+            return false;
+        }
+        if (queue.size() >= config.getBatchSize()) LockSupport.unpark(thread);
+        return true;
+    }
+
+    private boolean offerSampled(OperLogAnnotationEntity logEntity) {
+        if (queue.size() >= queue.capacity() - (queue.capacity() >> 2)
+                && sampleSequence.getAndIncrement() % Math.max(1, config.getSampleRate()) != 0) {
+            return false;
+        }
+        return queue.offer(logEntity);
+    }
+
+    private boolean offerBlocking(OperLogAnnotationEntity logEntity) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getBlockTimeout());
+        while (!queue.offer(logEntity)) {
+            if (!running || System.nanoTime() - deadline >= 0) return false;
+            LockSupport.unpark(drainThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return true;
+    }
+
+    /**
+     * 当前队列中等待写出的条数
+     *
+     * @return 条数
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long offerCount() {
+        return offerCount.sum();
+    }
+
+    /**
+     * 被丢弃的条数，包括队列满和抽样丢弃
+     *
+     * @return 条数
+     */
+    public long dropCount() {
+        return dropCount.sum();
+    }
+
+    /**
+     * 已写出的条数
+     *
+     * @return 条数
+     */
+    public long flushCount() {
+        return flushCount.sum();
+    }
+
+    public void stats() {
+        log.info("操作日志队列状态查看=> [队列深度:{}] [放入次数:{}] [丢弃次数:{}] [写出条数:{}]",
+                queueDepth(), offerCount(), dropCount(), flushCount());
+    }
+
+    private Thread startIfNecessary() {
+        Thread thread = drainThread;
+        if (thread == null) {
+            synchronized (this) {
+                thread = drainThread;
+                if (thread == null) {
+                    thread = new Thread(this::drain, "auth-operlog");
+                    thread.setDaemon(true);
+                    thread.start();
+                    drainThread = thread;
+                }
+            }
+        }
+        return thread;
+    }
+
+    private void drain() {
+        int batchSize = Math.max(1, config.getBatchSize());
+        long interval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getFlushInterval()));
+        List<OperLogAnnotationEntity> batch = new ArrayList<>(batchSize);
+        long deadline = 0L;
+        while (running || queue.size() > 0) {
+            OperLogAnnotationEntity logEntity = queue.poll();
+            if (logEntity != null) {
+                if (batch.isEmpty()) deadline = System.nanoTime() + interval;
+                batch.add(logEntity);
+                if (batch.size() >= batchSize) flush(batch);
+                continue;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, interval);
+            } else if (System.nanoTime() - deadline >= 0) {
+                flush(batch);
+            } else {
+                LockSupport.parkNanos(this, deadline - System.nanoTime());
+            }
+        }
+        if (!batch.isEmpty()) flush(batch);
+    }
+
+    private void flush(List<OperLogAnnotationEntity> batch) {
+        try {
+            logService.addLogs(new ArrayList<>(batch));
+            flushCount.add(batch.size());
+        } catch (Exception e) {
+            log.error("操作日志写出失败,丢弃{}条", batch.size(), e);
+            dropCount.add(batch.size());
+        }
+        batch.clear();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        Thread thread = drainThread;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 有界无锁环形队列，每个槽位用序号标记是否可写、可读，多个线程可以同时放入和取出
+     */
+    private static final class RingBuffer<E> {
+        private final int mask;
+        private final AtomicReferenceArray<E> buffer;
+        private final AtomicLongArray sequences;
+        private final AtomicLong enqueuePosition = new AtomicLong();
+        private final AtomicLong dequeuePosition = new AtomicLong();
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            this.mask = size - 1;
+            this.buffer = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) sequences.set(i, i);
+        }
+
+        boolean offer(E element) {
+            long position = enqueuePosition.get();
+            for (; ; ) {
+                int index = (int) (position & mask);
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (enqueuePosition.compareAndSet(position, position + 1)) {
+                        buffer.lazySet(index, element);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                    position = enqueuePosition.get();
+                } else if (difference < 0) {
+                    return false;
+                } else {
+                    position = enqueuePosition.get();
+                }
+            }
+        }
+
+        E poll() {
+            long position = dequeuePosition.get();
+            for (; ; ) {
+                int index = (int) (position & mask);
+                long difference = sequences.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (dequeuePosition.compareAndSet(position, position + 1)) {
+                        E element = buffer.get(index);
+                        buffer.lazySet(index, null);
+                        sequences.set(index, position + mask + 1);
+                        return element;
+                    }
+                    position = dequeuePosition.get();
+                } else if (difference < 0) {
+                    return null;
+                } else {
+                    position = dequeuePosition.get();
+                }
+            }
+        }
+
+        int size() {
+            long size = enqueuePosition.get() - dequeuePosition.get();
+            return (int) Math.max(0, Math.min(size, mask + 1));
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+    }
+}
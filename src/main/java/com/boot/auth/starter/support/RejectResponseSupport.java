@@ -0,0 +1,57 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.service.OutJsonService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 预先编码的拒绝访问响应
+ * 启动时通过 OutJsonService 为每个 RestStatus 生成一次响应内容，保存为只读 ByteBuffer，
+ * 请求时只包装同一块内存写出，不再做序列化和字符串编码
+ */
+@Component
+public class RejectResponseSupport {
+    private final Map<RestStatus, ByteBuffer> bodies = new EnumMap<>(RestStatus.class);
+    private final Map<RestStatus, HttpStatus> statuses = new EnumMap<>(RestStatus.class);
+
+    public RejectResponseSupport(OutJsonService outJsonService) {
+        for (RestStatus restStatus : RestStatus.values()) {
+            bodies.put(restStatus, ByteBuffer.wrap(outJsonService.errorOutBytes(restStatus).clone()).asReadOnlyBuffer());
+            statuses.put(restStatus, outJsonService.errorHttpStatus(restStatus));
+        }
+    }
+
+    /**
+     * 往客户端回写拒绝访问的消息
+     *
+     * @param response   返回
+     * @param restStatus 状态
+     * @return 写出完成
+     */
+    public Mono<Void> write(ServerHttpResponse response, RestStatus restStatus) {
+        ByteBuffer body = bodies.get(restStatus).duplicate();
+        response.setStatusCode(statuses.get(restStatus));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(body.remaining());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * 预先编码的响应内容
+     *
+     * @param restStatus 状态
+     * @return json 内容
+     */
+    public String body(RestStatus restStatus) {
+        return StandardCharsets.UTF_8.decode(bodies.get(restStatus).duplicate()).toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.bo.RequestHeaderBO;
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+
+/**
+ * 请求头信息
+ * 每个请求只提取一次平台、渠道、版本、设备id 和客户端 ip，保存在 ATTR_REQUEST_HEADER 中，
+ * 会话解析、操作日志和 controller 参数都复用同一个 RequestHeaderBO；请求头名称可以通过 info.auth.request-header 配置，
+ * 客户端 ip 由 TrustedProxySupport 按可信代理解析
+ */
+@Component
+public class RequestHeaderSupport {
+    final
+    AuthProperties.RequestHeader config;
+    TrustedProxySupport trustedProxySupport;
+    private final List<String> ipHeaders;
+
+    public RequestHeaderSupport(AuthProperties authProperties, TrustedProxySupport trustedProxySupport) {
+        this.config = authProperties.getRequestHeader();
+        this.trustedProxySupport = trustedProxySupport;
+        this.ipHeaders = List.copyOf(config.getIp());
+    }
+
+    /**
+     * 获取当前请求的请求头信息，第一次调用时提取
+     *
+     * @param exchange 会话
+     * @return 请求头信息，同一个请求返回同一个对象
+     */
+    public RequestHeaderBO get(ServerWebExchange exchange) {
+        RequestHeaderBO header = exchange.getAttribute(AuthConstant.ATTR_REQUEST_HEADER);
+        if (header != null) return header;
+        header = extract(exchange.getRequest());
+        exchange.getAttributes().put(AuthConstant.ATTR_REQUEST_HEADER, header);
+        return header;
+    }
+
+    /**
+     * 提取请求头信息
+     *
+     * @param request ServerHttpRequest
+     * @return 请求头信息
+     */
+    public RequestHeaderBO extract(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        RequestHeaderBO header = new RequestHeaderBO();
+        header.setPlatform(headers.getFirst(config.getPlatform()));
+        header.setChannel(headers.getFirst(config.getChannel()));
+        header.setVersion(headers.getFirst(config.getVersion()));
+        header.setDeviceId(headers.getFirst(config.getDeviceId()));
+        header.setIp(trustedProxySupport.getClientIP(request, ipHeaders));
+        return header;
+    }
+}
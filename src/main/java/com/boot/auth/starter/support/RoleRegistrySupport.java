@@ -0,0 +1,165 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.DefaultRolesConstant;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 角色注册表
+ * 启动时把 Auth 注解和配置中的角色名转换为整数编号，角色集合用 long[] 位图表示，
+ * 权限校验只需要对位图做一次按位与。
+ * 用户的角色在保存会话时编译为位图，连同注册表指纹一起保存；指纹不一致（其他节点编译或之后注册了新角色）时按角色名重新编译
+ */
+@Component
+public class RoleRegistrySupport {
+    private static final long[] EMPTY = new long[0];
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    final
+    AuthProperties authProperties;
+    /**
+     * 角色名 -> 编号，写时复制，读取无锁
+     */
+    private volatile Map<String, Integer> ids = Collections.emptyMap();
+    /**
+     * 注册表指纹，按编号顺序对角色名做 FNV-1a，随 ids 一起更新
+     */
+    private volatile long fingerprint = FNV_OFFSET;
+
+    public RoleRegistrySupport(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+    }
+
+    @PostConstruct
+    private void init() {
+        intern(DefaultRolesConstant.DEFAULT);
+        authProperties.getRoles().forEach(this::intern);
+    }
+
+    /**
+     * 注册角色
+     *
+     * @param role 角色名
+     * @return 角色编号
+     */
+    public synchronized int intern(String role) {
+        Integer id = ids.get(role);
+        if (id != null) return id;
+        Map<String, Integer> copy = new HashMap<>(ids);
+        id = copy.size();
+        copy.put(role, id);
+        long hash = fingerprint;
+        for (int i = 0; i < role.length(); i++) hash = (hash ^ role.charAt(i)) * FNV_PRIME;
+        //分隔符，避免 AB,C 与 A,BC 得到相同的指纹
+        fingerprint = (hash ^ 0xFFFF) * FNV_PRIME;
+        ids = Collections.unmodifiableMap(copy);
+        return id;
+    }
+
+    /**
+     * 编译会话的角色，保存会话时调用
+     *
+     * @param roles 角色，例如 ADMIN,USER
+     * @return [注册表指纹, 角色位图...]
+     */
+    public synchronized long[] encode(String roles) {
+        long[] bits = resolve(roles);
+        long[] encoded = new long[bits.length + 1];
+        encoded[0] = fingerprint;
+        System.arraycopy(bits, 0, encoded, 1, bits.length);
+        return encoded;
+    }
+
+    /**
+     * 取出保存会话时编译的角色位图，指纹不一致或没有编译结果时按角色名重新编译
+     *
+     * @param encoded encode 的结果，可以为 null
+     * @param roles   角色，例如 ADMIN,USER
+     * @return 角色位图
+     */
+    public long[] decode(long[] encoded, String roles) {
+        if (encoded == null || encoded.length == 0 || encoded[0] != fingerprint) return resolve(roles);
+        return encoded.length == 1 ? EMPTY : Arrays.copyOfRange(encoded, 1, encoded.length);
+    }
+
+    /**
+     * 编译需要的角色，未注册的角色会被注册
+     *
+     * @param roles 角色名
+     * @return 角色位图
+     */
+    public long[] compile(String... roles) {
+        if (roles == null || roles.length == 0) return EMPTY;
+        long[] bits = EMPTY;
+        for (String role : roles) {
+            bits = set(bits, intern(role));
+        }
+        return bits;
+    }
+
+    /**
+     * 解析用户拥有的角色，多个用英文逗号隔开；未注册的角色不会出现在任何权限要求中，直接忽略
+     *
+     * @param roles 角色，例如 ADMIN,USER
+     * @return 角色位图
+     */
+    public long[] resolve(String roles) {
+        if (!StringUtils.hasLength(roles)) return EMPTY;
+        Map<String, Integer> snapshot = ids;
+        long[] bits = EMPTY;
+        int start = 0;
+        while (start <= roles.length()) {
+            int end = roles.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR, start);
+            if (end < 0) end = roles.length();
+            if (end > start) {
+                Integer id = snapshot.get(roles.substring(start, end));
+                if (id != null) bits = set(bits, id);
+            }
+            start = end + 1;
+        }
+        return bits;
+    }
+
+    /**
+     * 两个角色位图是否有交集
+     *
+     * @param granted  用户拥有的角色
+     * @param required 需要的角色
+     * @return true 表示至少具备一个需要的角色
+     */
+    public static boolean intersects(long[] granted, long[] required) {
+        int length = Math.min(granted.length, required.length);
+        for (int i = 0; i < length; i++) {
+            if ((granted[i] & required[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 已注册的角色数量
+     *
+     * @return 数量
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private static long[] set(long[] bits, int id) {
+        int word = id >>> 6;
+        if (word >= bits.length) {
+            long[] grown = new long[word + 1];
+            System.arraycopy(bits, 0, grown, 0, bits.length);
+            bits = grown;
+        }
+        bits[word] |= 1L << (id & 63);
+        return bits;
+    }
+}
@@ -0,0 +1,325 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.AuthRule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可热加载的路由规则，来源为配置中的 white-list.paths、white-list.role-overrides 和 white-list.file 指定的规则文件
+ * 每次加载把全部规则编译为一个不可变的 RouteRules 后整体替换，请求开始时读取一次，同一个请求只会使用同一组规则；
+ * 规则文件通过 WatchService 监听所在目录，在独立线程中重新加载，不占用事件循环线程。加载失败时保留原有规则。
+ * 目录中任意文件变化都会检查规则文件的实际路径、修改时间和大小，有变化才重新加载，
+ * 因此 Kubernetes ConfigMap 通过替换 ..data 符号链接更新文件时也能加载到新规则。
+ * 白名单优先于角色覆盖：匹配白名单的请求不做认证，角色覆盖不会生效，加载时对能检查出的重叠规则打印警告。
+ * 规则文件每行一条规则，# 开头为注释：
+ * /public/**                白名单，与 addWhiteList 格式相同
+ * GET /api/{id}/info        只对 GET 请求生效的白名单
+ * POST /admin/** = ADMIN,OPS 覆盖路由需要的角色，多个用英文逗号隔开
+ */
+@Component
+public class RouteRuleReloadSupport {
+    private final static Logger log = LoggerFactory.getLogger(RouteRuleReloadSupport.class);
+    /**
+     * 编辑器保存文件时可能产生多个事件，等待后合并为一次加载
+     */
+    private final static long DEBOUNCE_MILLIS = 200L;
+    final
+    AuthProperties authProperties;
+    RoleRegistrySupport roleRegistrySupport;
+    private final Path file;
+    private volatile RouteRules rules = RouteRules.EMPTY;
+    /**
+     * 最近一次成功加载时规则文件的版本
+     */
+    private volatile FileVersion loaded;
+    private volatile WatchService watchService;
+
+    public RouteRuleReloadSupport(AuthProperties authProperties, RoleRegistrySupport roleRegistrySupport) {
+        this.authProperties = authProperties;
+        this.roleRegistrySupport = roleRegistrySupport;
+        String file = authProperties.getWhiteList().getFile();
+        this.file = StringUtils.hasText(file) ? Paths.get(file).toAbsolutePath() : null;
+    }
+
+    @PostConstruct
+    private void init() {
+        reload();
+        if (file != null) watch();
+    }
+
+    @PreDestroy
+    private void destroy() {
+        WatchService current = watchService;
+        if (current == null) return;
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.warn("路由规则文件监听关闭失败", e);
+        }
+    }
+
+    /**
+     * 当前生效的规则
+     *
+     * @return 不可变的规则
+     */
+    public RouteRules current() {
+        return rules;
+    }
+
+    /**
+     * 重新加载规则，编译成功后整体替换
+     *
+     * @return true 表示加载成功，失败时保留原有规则
+     */
+    public synchronized boolean reload() {
+        long start = System.currentTimeMillis();
+        List<String> whiteList = new ArrayList<>(authProperties.getWhiteList().getPaths());
+        List<String[]> overrides = new ArrayList<>();
+        authProperties.getWhiteList().getRoleOverrides().forEach((pattern, roles) -> overrides.add(new String[]{pattern, roles}));
+        try {
+            FileVersion version = null;
+            if (file != null) {
+                version = version();
+                read(whiteList, overrides);
+            }
+            rules = compile(whiteList, overrides);
+            loaded = version;
+            log.info("路由规则 [加载完成] 白名单:{} 角色覆盖:{} 耗时:{}ms", whiteList.size(), overrides.size(),
+                    System.currentTimeMillis() - start);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("路由规则加载失败,保留原有规则 文件:{}", file, e);
+            return false;
+        }
+    }
+
+    private void read(List<String> whiteList, List<String[]> overrides) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            log.warn("路由规则文件不存在 文件:{}", file);
+            return;
+        }
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                whiteList.add(line);
+            } else {
+                overrides.add(new String[]{line.substring(0, equals).trim(), line.substring(equals + 1).trim()});
+            }
+        }
+    }
+
+    /**
+     * 规则文件当前的版本，文件不存在时返回 null
+     */
+    private FileVersion version() throws IOException {
+        try {
+            Path realPath = file.toRealPath();
+            return new FileVersion(realPath, Files.getLastModifiedTime(realPath), Files.size(realPath));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private RouteRules compile(List<String> whiteList, List<String[]> overrides) {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY.with(whiteList.toArray(new String[0]));
+        List<RoleOverride> roleOverrides = new ArrayList<>();
+        for (String[] override : overrides) {
+            String pattern = override[0];
+            HttpMethod method = null;
+            int space = pattern.indexOf(' ');
+            if (space > 0) {
+                method = HttpMethod.valueOf(pattern.substring(0, space).toUpperCase());
+                pattern = pattern.substring(space + 1).trim();
+            }
+            String[] roles = Arrays.stream(override[1].split(AuthConstant.HEAD_TOKEN_SEPARATOR))
+                    .map(String::trim)
+                    .filter(StringUtils::hasText)
+                    .toArray(String[]::new);
+            if (shadowed(matcher, method, pattern)) {
+                log.warn("角色覆盖规则被白名单覆盖,白名单优先,该规则不会生效 规则:{}", override[0]);
+            }
+            roleOverrides.add(new RoleOverride(method, PathPatternParser.defaultInstance.parse(pattern), roles,
+                    roleRegistrySupport.compile(roles), new ConcurrentHashMap<>()));
+        }
+        //更具体的规则优先，相同时指定请求方法的规则优先
+        roleOverrides.sort(Comparator.comparing(RoleOverride::pattern, PathPattern.SPECIFICITY_COMPARATOR)
+                .thenComparing(override -> override.method() == null));
+        return new RouteRules(matcher.isEmpty() ? null : matcher, roleOverrides.toArray(new RoleOverride[0]));
+    }
+
+    /**
+     * 把角色覆盖规则本身当作路由匹配白名单，能检查出相同或被更宽的白名单规则包含的情况
+     *
+     * @param method  请求方法，null 表示全部方法
+     * @param pattern 角色覆盖的路由规则
+     * @return true 表示匹配白名单
+     */
+    private static boolean shadowed(WhiteListMatcher matcher, HttpMethod method, String pattern) {
+        if (matcher.isEmpty()) return false;
+        RequestPath path = RequestPath.parse(pattern, null);
+        if (method != null) return matcher.matches(method, path);
+        for (HttpMethod candidate : HttpMethod.values()) {
+            if (matcher.matches(candidate, path)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 监听规则文件所在目录，目录不存在时不监听
+     * 不按文件名过滤事件：规则文件可能是符号链接，实际变化的是链接指向的文件或上级链接
+     */
+    private void watch() {
+        Path dir = file.getParent();
+        try {
+            WatchService current = dir.getFileSystem().newWatchService();
+            dir.register(current, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watchService = current;
+        } catch (IOException e) {
+            log.warn("路由规则文件无法监听,修改后不会自动加载 文件:{}", file, e);
+            return;
+        }
+        Thread thread = new Thread(this::poll, "auth-route-rule-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void poll() {
+        WatchService current = watchService;
+        try {
+            while (true) {
+                WatchKey key = current.take();
+                key.pollEvents();
+                key.reset();
+                Thread.sleep(DEBOUNCE_MILLIS);
+                for (WatchKey pending = current.poll(); pending != null; pending = current.poll()) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                if (changed()) reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    /**
+     * 规则文件是否与最近一次成功加载时不同，无法读取时按已变化处理
+     */
+    boolean changed() {
+        try {
+            return !Objects.equals(version(), loaded);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 规则文件的版本
+     *
+     * @param realPath 解析符号链接后的实际路径
+     * @param modified 修改时间
+     * @param size     文件大小
+     */
+    private record FileVersion(Path realPath, FileTime modified, long size) {
+    }
+
+    /**
+     * 覆盖路由需要的角色
+     *
+     * @param method  请求方法，null 表示全部方法
+     * @param pattern 路由规则
+     * @param roles   需要的角色
+     * @param mask    需要的角色位图
+     * @param derived 原规则 -> 覆盖后的规则，每个处理方法只创建一次
+     */
+    private record RoleOverride(HttpMethod method, PathPattern pattern, String[] roles, long[] mask,
+                                Map<AuthRule, AuthRule> derived) {
+        AuthRule apply(AuthRule rule) {
+            return derived.computeIfAbsent(rule, base -> new AuthRule(AuthRule.Type.ROLES_REQUIRED, true, roles, mask,
+                    base.getOperType(), base.getRoute(), base.getHandler()));
+        }
+    }
+
+    /**
+     * 一次加载编译出的全部规则，不可变
+     */
+    public static final class RouteRules {
+        static final RouteRules EMPTY = new RouteRules(null, new RoleOverride[0]);
+        private final WhiteListMatcher whiteList;
+        private final RoleOverride[] overrides;
+
+        private RouteRules(WhiteListMatcher whiteList, RoleOverride[] overrides) {
+            this.whiteList = whiteList;
+            this.overrides = overrides;
+        }
+
+        /**
+         * 是否匹配白名单，匹配时不再应用角色覆盖
+         *
+         * @param method 请求方法
+         * @param path   请求路由
+         * @return true 表示匹配
+         */
+        public boolean isWhiteList(HttpMethod method, RequestPath path) {
+            return whiteList != null && whiteList.matches(method, path);
+        }
+
+        /**
+         * 按路由覆盖需要的角色，匹配到覆盖规则时返回需要对应角色的规则
+         *
+         * @param rule   处理方法的规则
+         * @param method 请求方法
+         * @param path   请求路由
+         * @return 覆盖后的规则，没有匹配的覆盖规则时返回原规则
+         */
+        public AuthRule apply(AuthRule rule, HttpMethod method, RequestPath path) {
+            if (overrides.length == 0) return rule;
+            PathContainer pathWithinApplication = path.pathWithinApplication();
+            for (RoleOverride override : overrides) {
+                if ((override.method() == null || override.method().equals(method))
+                        && override.pattern().matches(pathWithinApplication)) {
+                    return override.apply(rule);
+                }
+            }
+            return rule;
+        }
+    }
+}
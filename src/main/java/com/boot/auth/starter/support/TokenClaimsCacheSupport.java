@@ -0,0 +1,151 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.TokenClaims;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * token 解析结果缓存
+ * 以原始 token 为 key 缓存已解析的 TokenClaims，同一个 token 重复访问时不再做解码和解密
+ */
+@Component
+public class TokenClaimsCacheSupport {
+    private final static Logger log = LoggerFactory.getLogger(TokenClaimsCacheSupport.class);
+    final
+    AuthProperties authProperties;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder decodeCount = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private volatile Cache<String, TokenClaims> cache;
+
+    public TokenClaimsCacheSupport(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+    }
+
+    /**
+     * 获取已解析的 token
+     *
+     * @param token 原始 token
+     * @return 解析结果，不存在或已过期时返回 null
+     */
+    public TokenClaims get(String token) {
+        Cache<String, TokenClaims> claimsCache = getCache();
+        if (claimsCache == null) return null;
+        TokenClaims claims = claimsCache.getIfPresent(token);
+        if (claims == null) {
+            missCount.increment();
+            return null;
+        }
+        if (System.currentTimeMillis() > expireAt(claims)) {
+            claimsCache.invalidate(token);
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return claims;
+    }
+
+    /**
+     * 缓存解析结果
+     *
+     * @param claims      解析结果
+     * @param decodeNanos 本次解析耗时，单位纳秒，用于统计节省的解析时间
+     */
+    public void put(TokenClaims claims, long decodeNanos) {
+        Cache<String, TokenClaims> claimsCache = getCache();
+        if (claimsCache == null) return;
+        decodeCount.increment();
+        this.decodeNanos.add(decodeNanos);
+        claimsCache.put(claims.getToken(), claims);
+    }
+
+    /**
+     * 移除解析结果
+     *
+     * @param token 原始 token
+     */
+    public void invalidate(String token) {
+        Cache<String, TokenClaims> claimsCache = cache;
+        if (claimsCache == null || token == null) return;
+        claimsCache.invalidate(token);
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 0~1 之间的命中率，没有访问时为 0
+     */
+    public double hitRate() {
+        long hit = hitCount.sum();
+        long total = hit + missCount.sum();
+        return total == 0 ? 0D : (double) hit / total;
+    }
+
+    /**
+     * 估算命中缓存节省的解析时间
+     *
+     * @return 命中次数 * 平均解析耗时，单位纳秒
+     */
+    public long savedDecodeNanos() {
+        long count = decodeCount.sum();
+        if (count == 0) return 0L;
+        return (long) ((double) decodeNanos.sum() / count * hitCount.sum());
+    }
+
+    /**
+     * 当前缓存的条目数
+     *
+     * @return 条目数
+     */
+    public long size() {
+        Cache<String, TokenClaims> claimsCache = cache;
+        return claimsCache == null ? 0L : claimsCache.size();
+    }
+
+    public void stats() {
+        log.info("token解析缓存状态查看=> [条目数:{}] [命中次数:{}] [未命中次数:{}] [命中率:{}] [节省解析时间(ms):{}]",
+                size(), hitCount(), missCount(), hitRate(), TimeUnit.NANOSECONDS.toMillis(savedDecodeNanos()));
+    }
+
+    private long expireAt(TokenClaims claims) {
+        if (claims.isStateless()) return claims.getExpireAt();
+        return claims.getTime() + authProperties.getOverdueTime() * 1000L;
+    }
+
+    private Cache<String, TokenClaims> getCache() {
+        Cache<String, TokenClaims> claimsCache = cache;
+        if (claimsCache == null) {
+            AuthProperties.ClaimsCache config = authProperties.getClaimsCache();
+            if (!config.getEnable() || config.getMaximumSize() <= 0) return null;
+            synchronized (this) {
+                claimsCache = cache;
+                if (claimsCache == null) {
+                    CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                            .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                            .maximumSize(config.getMaximumSize());
+                    if (authProperties.getOverdueTime() > 0) {
+                        cacheBuilder.expireAfterWrite(authProperties.getOverdueTime(), TimeUnit.SECONDS);
+                    }
+                    cache = claimsCache = cacheBuilder.build();
+                }
+            }
+        }
+        return claimsCache;
+    }
+}
@@ -0,0 +1,333 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.common.TokenClaims;
+import com.boot.auth.starter.exception.AuthException;
+import com.boot.auth.starter.utils.AESUtil;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * token 编解码
+ * v1：明文为 userNo,group,millis[,Emillis] ，AES 加密后转16进制
+ * v2：明文为二进制 [u16 userNo长度][userNo][u16 group长度][group][long millis][long 排他序号]，
+ * AES 加密后在前面加上 1 个字节的版本号，再做 base64url 编码（无填充）。
+ * v3（无状态令牌）：明文为二进制 [u16 userNo长度][userNo][u16 group长度][group][u16 roles长度][roles][long millis][long 过期时间]，
+ * 使用 AES-GCM 加密并认证，格式为 [版本号][12字节 nonce][密文和认证标签]，再做 base64url 编码（无填充），
+ * 缓存 key 为 userNo,group,millis,N+nonce 的 base64url 编码。
+ * 版本号 0x02、0x03 编码后的首字符都为 'A'，不会与 v1 的小写16进制字符冲突，解析时据此区分格式
+ */
+@Component
+public class TokenCodecSupport {
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    public static final int VERSION_3 = 3;
+    private static final int MAX_FIELD_LENGTH = 0xFFFF;
+    private static final String GCM_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final SecureRandom NONCE_RANDOM = new SecureRandom();
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(GCM_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    final
+    AuthProperties authProperties;
+    private volatile SecretKeySpec statelessKey;
+
+    public TokenCodecSupport(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+    }
+
+    /**
+     * 生成 token
+     *
+     * @param userNo        用户编号
+     * @param group         权限组
+     * @param time          生成时间，单位毫秒
+     * @param excludeSerial 排他序号，0 表示没有
+     * @return token
+     */
+    public String encode(String userNo, String group, long time, long excludeSerial) {
+        String token;
+        if (authProperties.getTokenVersion() == VERSION_2) {
+            token = encodeV2(userNo, group, time, excludeSerial);
+        } else {
+            token = AESUtil.encrypt(key(userNo, group, time, excludeSerial), authProperties.getDomain());
+        }
+        if (token == null) throw new AuthException(RestStatus.SYSTEM_ERROR);
+        return token;
+    }
+
+    /**
+     * 生成无状态令牌
+     *
+     * @param userNo   用户编号
+     * @param group    权限组
+     * @param roles    用户权限，多个用英文逗号隔开
+     * @param time     生成时间，单位毫秒
+     * @param expireAt 过期时间，单位毫秒
+     * @return token
+     */
+    public String encodeStateless(String userNo, String group, String roles, long time, long expireAt) {
+        byte[] userNoBytes = userNo.getBytes(StandardCharsets.UTF_8);
+        byte[] groupBytes = group.getBytes(StandardCharsets.UTF_8);
+        byte[] rolesBytes = (roles == null ? "" : roles).getBytes(StandardCharsets.UTF_8);
+        if (userNoBytes.length > MAX_FIELD_LENGTH || groupBytes.length > MAX_FIELD_LENGTH
+                || rolesBytes.length > MAX_FIELD_LENGTH) {
+            throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
+        }
+        byte[] payload = new byte[6 + userNoBytes.length + groupBytes.length + rolesBytes.length + 16];
+        int index = writeField(payload, 0, userNoBytes);
+        index = writeField(payload, index, groupBytes);
+        index = writeField(payload, index, rolesBytes);
+        index = writeLong(payload, index, time);
+        writeLong(payload, index, expireAt);
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        NONCE_RANDOM.nextBytes(nonce);
+        try {
+            Cipher cipher = GCM_CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, statelessKey(), new GCMParameterSpec(GCM_TAG_BITS, nonce));
+            cipher.updateAAD(new byte[]{VERSION_3});
+            byte[] raw = new byte[1 + GCM_NONCE_LENGTH + cipher.getOutputSize(payload.length)];
+            raw[0] = VERSION_3;
+            System.arraycopy(nonce, 0, raw, 1, GCM_NONCE_LENGTH);
+            cipher.doFinal(payload, 0, payload.length, raw, 1 + GCM_NONCE_LENGTH);
+            return ENCODER.encodeToString(raw);
+        } catch (GeneralSecurityException e) {
+            throw new AuthException(e);
+        }
+    }
+
+    /**
+     * 生成缓存 key（不含 tokenPrefix），两种 token 格式生成的 key 一致
+     *
+     * @param userNo        用户编号
+     * @param group         权限组
+     * @param time          生成时间，单位毫秒
+     * @param excludeSerial 排他序号，0 表示没有
+     * @return 缓存 key
+     */
+    public String key(String userNo, String group, long time, long excludeSerial) {
+        String key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, userNo, group, String.valueOf(time));
+        if (authProperties.getEnableExclude()) {
+            key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, key, "E" + excludeSerial);
+        }
+        return key;
+    }
+
+    /**
+     * 解析 token，根据首字符选择 v1 或 v2 格式
+     *
+     * @param token token
+     * @return token内容，token 为空时返回 null
+     */
+    public TokenClaims decode(String token) {
+        if (!StringUtils.hasLength(token)) return null;
+        char first = token.charAt(0);
+        if ((first >= '0' && first <= '9') || (first >= 'a' && first <= 'f')) {
+            return decodeV1(token);
+        }
+        return decodeV2(token);
+    }
+
+    private TokenClaims decodeV1(String token) {
+        String decryptToken = AESUtil.decrypt(token, authProperties.getDomain());
+        if (!StringUtils.hasText(decryptToken)) {
+            throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        }
+        int userNoEnd = decryptToken.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR);
+        int groupEnd = userNoEnd < 0 ? -1 : decryptToken.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR, userNoEnd + 1);
+        if (groupEnd < 0) throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        int timeEnd = fieldEnd(decryptToken, groupEnd + 1);
+        long time = parseLong(decryptToken, groupEnd + 1, timeEnd);
+        long excludeSerial = 0L;
+        int keyEnd = timeEnd;
+        if (timeEnd < decryptToken.length()) {
+            int serialEnd = fieldEnd(decryptToken, timeEnd + 1);
+            if (serialEnd > timeEnd + 2 && decryptToken.charAt(timeEnd + 1) == 'E') {
+                excludeSerial = parseLong(decryptToken, timeEnd + 2, serialEnd);
+            }
+            if (authProperties.getEnableExclude()) {
+                if (serialEnd != decryptToken.length()) throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
+                keyEnd = serialEnd;
+            }
+        } else if (authProperties.getEnableExclude()) {
+            throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
+        }
+        return new TokenClaims(VERSION_1, token,
+                decryptToken.substring(0, userNoEnd),
+                decryptToken.substring(userNoEnd + 1, groupEnd),
+                time, excludeSerial, decryptToken.substring(0, keyEnd));
+    }
+
+    private TokenClaims decodeV2(String token) {
+        byte[] raw;
+        try {
+            raw = DECODER.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        }
+        if (raw.length < 2) throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        if (raw[0] == VERSION_3) return decodeStateless(token, raw);
+        if (raw[0] != VERSION_2) throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        byte[] payload = AESUtil.decrypt(raw, 1, raw.length - 1, authProperties.getDomain());
+        if (payload == null) throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        int index = 0;
+        int userNoLength = readU16(payload, index);
+        index += 2;
+        checkBounds(payload, index, userNoLength + 2);
+        String userNo = new String(payload, index, userNoLength, StandardCharsets.UTF_8);
+        index += userNoLength;
+        int groupLength = readU16(payload, index);
+        index += 2;
+        checkBounds(payload, index, groupLength + 16);
+        String group = new String(payload, index, groupLength, StandardCharsets.UTF_8);
+        index += groupLength;
+        long time = readLong(payload, index);
+        long excludeSerial = readLong(payload, index + 8);
+        if (authProperties.getEnableExclude() && excludeSerial == 0L) {
+            throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
+        }
+        return new TokenClaims(VERSION_2, token, userNo, group, time, excludeSerial,
+                key(userNo, group, time, excludeSerial));
+    }
+
+    private TokenClaims decodeStateless(String token, byte[] raw) {
+        if (!authProperties.getStateless().getEnable() || raw.length <= 1 + GCM_NONCE_LENGTH) {
+            throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        }
+        byte[] payload;
+        try {
+            Cipher cipher = GCM_CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, statelessKey(), new GCMParameterSpec(GCM_TAG_BITS, raw, 1, GCM_NONCE_LENGTH));
+            cipher.updateAAD(raw, 0, 1);
+            payload = cipher.doFinal(raw, 1 + GCM_NONCE_LENGTH, raw.length - 1 - GCM_NONCE_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        }
+        int index = 0;
+        int length = readU16(payload, index);
+        checkBounds(payload, index += 2, length);
+        String userNo = new String(payload, index, length, StandardCharsets.UTF_8);
+        length = readU16(payload, index += length);
+        checkBounds(payload, index += 2, length);
+        String group = new String(payload, index, length, StandardCharsets.UTF_8);
+        length = readU16(payload, index += length);
+        checkBounds(payload, index += 2, length + 16);
+        String roles = new String(payload, index, length, StandardCharsets.UTF_8);
+        index += length;
+        long time = readLong(payload, index);
+        long expireAt = readLong(payload, index + 8);
+        //同一毫秒生成的令牌用 nonce 区分
+        String key = String.join(AuthConstant.HEAD_TOKEN_SEPARATOR, userNo, group, String.valueOf(time),
+                "N" + ENCODER.encodeToString(Arrays.copyOfRange(raw, 1, 1 + GCM_NONCE_LENGTH)));
+        return new TokenClaims(VERSION_3, token, userNo, group, time, 0L, key, roles, expireAt);
+    }
+
+    /**
+     * 无状态令牌秘钥，由 secret（默认 domain）做 SHA-256 得到
+     */
+    private SecretKeySpec statelessKey() {
+        SecretKeySpec key = statelessKey;
+        if (key == null) {
+            String secret = authProperties.getStateless().getSecret();
+            if (!StringUtils.hasText(secret)) secret = authProperties.getDomain();
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+                statelessKey = key = new SecretKeySpec(digest, "AES");
+            } catch (GeneralSecurityException e) {
+                throw new AuthException(e);
+            }
+        }
+        return key;
+    }
+
+    private String encodeV2(String userNo, String group, long time, long excludeSerial) {
+        byte[] userNoBytes = userNo.getBytes(StandardCharsets.UTF_8);
+        byte[] groupBytes = group.getBytes(StandardCharsets.UTF_8);
+        if (userNoBytes.length > MAX_FIELD_LENGTH || groupBytes.length > MAX_FIELD_LENGTH) {
+            throw new AuthException(RestStatus.SYSTEM_CACHE_KEY_ERROR);
+        }
+        byte[] payload = new byte[2 + userNoBytes.length + 2 + groupBytes.length + 16];
+        int index = writeU16(payload, 0, userNoBytes.length);
+        System.arraycopy(userNoBytes, 0, payload, index, userNoBytes.length);
+        index = writeU16(payload, index + userNoBytes.length, groupBytes.length);
+        System.arraycopy(groupBytes, 0, payload, index, groupBytes.length);
+        index = writeLong(payload, index + groupBytes.length, time);
+        writeLong(payload, index, excludeSerial);
+        byte[] encrypted = AESUtil.encrypt(payload, authProperties.getDomain());
+        if (encrypted == null) return null;
+        byte[] raw = new byte[encrypted.length + 1];
+        raw[0] = VERSION_2;
+        System.arraycopy(encrypted, 0, raw, 1, encrypted.length);
+        return ENCODER.encodeToString(raw);
+    }
+
+    private static int fieldEnd(String value, int from) {
+        int end = value.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR, from);
+        return end < 0 ? value.length() : end;
+    }
+
+    private static long parseLong(String value, int from, int to) {
+        try {
+            return Long.parseLong(value, from, to, 10);
+        } catch (NumberFormatException e) {
+            throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+        }
+    }
+
+    private static void checkBounds(byte[] bytes, int index, int length) {
+        if (index + length > bytes.length) throw new AuthException(RestStatus.USER_TOKEN_INVALID);
+    }
+
+    private static int readU16(byte[] bytes, int index) {
+        checkBounds(bytes, index, 2);
+        return ((bytes[index] & 0xFF) << 8) | (bytes[index + 1] & 0xFF);
+    }
+
+    private static int writeField(byte[] bytes, int index, byte[] field) {
+        index = writeU16(bytes, index, field.length);
+        System.arraycopy(field, 0, bytes, index, field.length);
+        return index + field.length;
+    }
+
+    private static int writeU16(byte[] bytes, int index, int value) {
+        bytes[index] = (byte) (value >>> 8);
+        bytes[index + 1] = (byte) value;
+        return index + 2;
+    }
+
+    private static long readLong(byte[] bytes, int index) {
+        long value = 0L;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[index + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int writeLong(byte[] bytes, int index, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[index + i] = (byte) value;
+            value >>>= 8;
+        }
+        return index + 8;
+    }
+}
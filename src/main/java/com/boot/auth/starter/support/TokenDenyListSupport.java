@@ -0,0 +1,131 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.TokenClaims;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无状态令牌的拒绝列表
+ * 无状态令牌不保存在缓存中，注销时把令牌 key 记录在这里，直到令牌自身过期；条目只会在令牌过期时由时间轮移除，不会被提前淘汰。
+ * 配置了最大容量且已满时无法再记录新的令牌，此时按失败关闭处理：在被拒绝的令牌过期之前，
+ * 生成时间不晚于它的无状态令牌全部视为已拒绝，用户需要重新登录
+ * 清理线程在第一次记录令牌时才启动，未开启无状态令牌时不会创建
+ */
+@Component
+public class TokenDenyListSupport {
+    private final static Logger log = LoggerFactory.getLogger(TokenDenyListSupport.class);
+    private final static long TICK_MILLIS = 1000L;
+    final
+    AuthProperties authProperties;
+    /**
+     * 令牌 key -> 过期时间
+     */
+    private final ExpiryTimerWheel denyList = new ExpiryTimerWheel(TICK_MILLIS, 4096);
+    private volatile ScheduledExecutorService scheduler;
+    /**
+     * 记录失败后整体拒绝的范围，没有时为 NONE
+     */
+    private volatile DeniedRange deniedRange = DeniedRange.NONE;
+
+    public TokenDenyListSupport(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+    }
+
+    @PreDestroy
+    private synchronized void destroy() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * 启动定时推进时间轮的清理线程，只启动一次
+     */
+    private synchronized void start() {
+        if (scheduler != null) return;
+        ScheduledExecutorService current = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-deny-list");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //过期的条目由时间轮移除，不需要额外处理
+        ExpiryTimerWheel wheel = denyList;
+        current.scheduleWithFixedDelay(() -> wheel.advance(System.currentTimeMillis(), key -> {
+        }), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler = current;
+    }
+
+    /**
+     * 清理线程是否已启动
+     *
+     * @return true 表示已启动
+     */
+    boolean isStarted() {
+        return scheduler != null;
+    }
+
+    /**
+     * 拒绝令牌
+     *
+     * @param claims 无状态令牌
+     */
+    public void deny(TokenClaims claims) {
+        long expireAt = claims.getExpireAt();
+        if (expireAt <= System.currentTimeMillis()) return;
+        long maximumSize = authProperties.getStateless().getDenyListMaximumSize();
+        if (maximumSize > 0 && denyList.size() >= maximumSize && denyList.expireAt(claims.getKey()) == 0L) {
+            denyBefore(claims.getTime(), expireAt);
+            log.error("无状态令牌拒绝列表已满,生成时间不晚于{}的无状态令牌在{}之前全部拒绝 容量:{}",
+                    claims.getTime(), expireAt, maximumSize);
+            return;
+        }
+        if (scheduler == null) start();
+        denyList.schedule(claims.getKey(), expireAt);
+    }
+
+    /**
+     * 令牌是否已被拒绝
+     *
+     * @param claims 无状态令牌
+     * @return true 表示已被拒绝
+     */
+    public boolean isDenied(TokenClaims claims) {
+        long now = System.currentTimeMillis();
+        DeniedRange range = deniedRange;
+        if (claims.getTime() <= range.before() && now < range.until()) return true;
+        return denyList.expireAt(claims.getKey()) > now;
+    }
+
+    /**
+     * 拒绝列表中的条目数
+     *
+     * @return 数量
+     */
+    public int size() {
+        return denyList.size();
+    }
+
+    private synchronized void denyBefore(long time, long expireAt) {
+        DeniedRange range = deniedRange;
+        if (System.currentTimeMillis() >= range.until()) {
+            deniedRange = new DeniedRange(time, expireAt);
+        } else {
+            deniedRange = new DeniedRange(Math.max(range.before(), time), Math.max(range.until(), expireAt));
+        }
+    }
+
+    /**
+     * 整体拒绝的范围
+     *
+     * @param before 生成时间不晚于该时间的令牌被拒绝，单位毫秒
+     * @param until  拒绝到该时间为止，单位毫秒
+     */
+    private record DeniedRange(long before, long until) {
+        static final DeniedRange NONE = new DeniedRange(Long.MIN_VALUE, 0L);
+    }
+}
@@ -0,0 +1,340 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.utils.IPUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 可信代理
+ * 启动时把 info.auth.request-header.trusted-proxies 中的地址段编译为 IPv4、IPv6 两棵二进制前缀树，
+ * 判断一个地址是否可信只需要按位走一遍前缀树；地址直接在原始字符串上按下标解析，不产生任何对象。
+ * 配置了可信代理时，只有连接来自可信代理才读取 X-Forwarded-For，并从右向左跳过可信代理，
+ * 第一个不可信的地址即客户端 ip，客户端无法通过伪造 X-Forwarded-For 冒充其他地址；未配置时保持 IPUtils 原有的行为
+ */
+@Component
+public class TrustedProxySupport {
+    private final static Logger log = LoggerFactory.getLogger(TrustedProxySupport.class);
+    final
+    AuthProperties.RequestHeader config;
+    private final PrefixTrie v4 = new PrefixTrie();
+    private final PrefixTrie v6 = new PrefixTrie();
+    private final boolean enabled;
+
+    public TrustedProxySupport(AuthProperties authProperties) {
+        this.config = authProperties.getRequestHeader();
+        for (String proxy : config.getTrustedProxies()) {
+            if (!add(proxy.trim())) throw new IllegalArgumentException("trusted-proxies 地址段格式不正确:" + proxy);
+        }
+        this.enabled = !config.getTrustedProxies().isEmpty();
+        if (enabled) log.info("可信代理 [编译完成] 地址段{}个", config.getTrustedProxies().size());
+    }
+
+    /**
+     * 是否配置了可信代理
+     *
+     * @return true 表示已配置
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 地址是否属于可信代理
+     *
+     * @param ip IPv4 或 IPv6 地址
+     * @return true 表示可信，地址格式不正确时返回 false
+     */
+    public boolean isTrusted(String ip) {
+        return ip != null && isTrusted(ip, 0, ip.length());
+    }
+
+    /**
+     * 获取客户端 ip
+     *
+     * @param request   ServerHttpRequest
+     * @param ipHeaders 没有 X-Forwarded-For 时按顺序查找的请求头
+     * @return ip
+     */
+    public String getClientIP(ServerHttpRequest request, List<String> ipHeaders) {
+        if (!enabled) return IPUtils.getClientIP(request, ipHeaders);
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String remote = remoteAddress == null || remoteAddress.getAddress() == null ? null
+                : remoteAddress.getAddress().getHostAddress();
+        //连接不是来自可信代理时请求头都可能是伪造的
+        if (remote == null || !isTrusted(remote)) return normalize(remote);
+        List<String> forwardedFor = request.getHeaders().get(config.getForwardedFor());
+        if (forwardedFor == null || forwardedFor.isEmpty()) return IPUtils.getClientIP(request, ipHeaders);
+        String hop = remote;
+        int hopStart = 0;
+        int hopEnd = remote.length();
+        //多个请求头时后面的由更靠近本服务的代理添加
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            String value = forwardedFor.get(i);
+            int end = value.length();
+            while (end >= 0) {
+                int comma = value.lastIndexOf(',', end - 1);
+                int start = comma + 1;
+                int entryEnd = end;
+                while (start < entryEnd && value.charAt(start) == ' ') start++;
+                while (entryEnd > start && value.charAt(entryEnd - 1) == ' ') entryEnd--;
+                if (start < entryEnd) {
+                    //无法解析的地址之后的内容都不可信，使用上一跳
+                    if (!isAddress(value, start, entryEnd)) return normalize(hop.substring(hopStart, hopEnd));
+                    hop = value;
+                    hopStart = start;
+                    hopEnd = entryEnd;
+                    if (!isTrusted(value, start, entryEnd)) return normalize(hop.substring(hopStart, hopEnd));
+                }
+                if (comma < 0) break;
+                end = comma;
+            }
+        }
+        //全部为可信代理时使用最左边的地址
+        return normalize(hop.substring(hopStart, hopEnd));
+    }
+
+    private static String normalize(String ip) {
+        if (ip == null) return null;
+        return ip.equals("0:0:0:0:0:0:0:1") || ip.equals("::1") ? "127.0.0.1" : ip;
+    }
+
+    /**
+     * 登记地址段，例如 10.0.0.0/8、::1、fd00::/8
+     */
+    private boolean add(String cidr) {
+        int slash = cidr.indexOf('/');
+        int end = slash < 0 ? cidr.length() : slash;
+        int prefix;
+        long v4Address = parseV4(cidr, 0, end);
+        if (v4Address >= 0) {
+            prefix = slash < 0 ? 32 : parsePrefix(cidr, slash + 1, 32);
+            if (prefix < 0) return false;
+            v4.insert(v4Address << 32, 0L, prefix);
+            return true;
+        }
+        int gap = v6Gap(cidr, 0, end);
+        if (gap < 0) return false;
+        prefix = slash < 0 ? 128 : parsePrefix(cidr, slash + 1, 128);
+        if (prefix < 0) return false;
+        v6.insert(v6Word(cidr, 0, end, gap, 0), v6Word(cidr, 0, end, gap, 1), prefix);
+        return true;
+    }
+
+    private static int parsePrefix(String s, int start, int max) {
+        if (start >= s.length() || s.length() - start > 3) return -1;
+        int prefix = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            prefix = prefix * 10 + (c - '0');
+        }
+        return prefix <= max ? prefix : -1;
+    }
+
+    private boolean isAddress(String s, int start, int end) {
+        start = addressStart(s, start, end);
+        end = addressEnd(s, start, end);
+        return parseV4(s, start, end) >= 0 || v6Gap(s, start, end) >= 0;
+    }
+
+    private boolean isTrusted(String s, int start, int end) {
+        start = addressStart(s, start, end);
+        end = addressEnd(s, start, end);
+        long v4Address = parseV4(s, start, end);
+        if (v4Address >= 0) return v4.contains(v4Address << 32, 0L, 32);
+        int gap = v6Gap(s, start, end);
+        if (gap < 0) return false;
+        long hi = v6Word(s, start, end, gap, 0);
+        long lo = v6Word(s, start, end, gap, 1);
+        //IPv4 映射地址 ::ffff:a.b.c.d 按 IPv4 处理
+        if (hi == 0L && (lo >>> 32) == 0xFFFFL) return v4.contains(lo << 32, 0L, 32);
+        return v6.contains(hi, lo, 128);
+    }
+
+    /**
+     * 跳过 IPv6 地址的 [
+     */
+    private static int addressStart(String s, int start, int end) {
+        return start < end && s.charAt(start) == '[' ? start + 1 : start;
+    }
+
+    /**
+     * 去掉端口、IPv6 的 ] 和区域标识
+     */
+    private static int addressEnd(String s, int start, int end) {
+        int colons = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == ']' || c == '%') return i;
+            if (c == ':') colons++;
+        }
+        //只有一个冒号时为 IPv4 加端口
+        if (colons == 1) return s.indexOf(':', start);
+        return end;
+    }
+
+    /**
+     * 解析 IPv4 地址
+     *
+     * @return 32 位地址，格式不正确时返回 -1
+     */
+    private static long parseV4(CharSequence s, int start, int end) {
+        long address = 0L;
+        int parts = 0;
+        int value = -1;
+        for (int i = start; i <= end; i++) {
+            char c = i == end ? '.' : s.charAt(i);
+            if (c == '.') {
+                if (value < 0 || ++parts > 4) return -1L;
+                address = address << 8 | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) return -1L;
+            } else {
+                return -1L;
+            }
+        }
+        return parts == 4 ? address : -1L;
+    }
+
+    /**
+     * 校验 IPv6 地址并计算 :: 代表的组数
+     *
+     * @return :: 代表的 16 位组数，没有 :: 时为 0，格式不正确时返回 -1
+     */
+    private static int v6Gap(CharSequence s, int start, int end) {
+        if (end - start < 2) return -1;
+        int groups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') return -1;
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupEnd = i;
+            boolean dotted = false;
+            while (groupEnd < end && s.charAt(groupEnd) != ':') {
+                if (s.charAt(groupEnd) == '.') dotted = true;
+                groupEnd++;
+            }
+            if (dotted) {
+                //内嵌的 IPv4 地址只能在最后，占两组
+                if (groupEnd != end || parseV4(s, i, groupEnd) < 0) return -1;
+                groups += 2;
+            } else {
+                int length = groupEnd - i;
+                if (length == 0 || length > 4) return -1;
+                for (int j = i; j < groupEnd; j++) {
+                    if (Character.digit(s.charAt(j), 16) < 0) return -1;
+                }
+                groups++;
+            }
+            if (groupEnd == end) break;
+            i = groupEnd + 1;
+            if (i < end && s.charAt(i) == ':') {
+                if (compressed) return -1;
+                compressed = true;
+                i++;
+            } else if (i == end) {
+                return -1;
+            }
+        }
+        if (compressed) return groups < 8 ? 8 - groups : -1;
+        return groups == 8 ? 0 : -1;
+    }
+
+    /**
+     * 按组解析 IPv6 地址的高 64 位或低 64 位，调用前需要先通过 v6Gap 校验
+     *
+     * @param gap  :: 代表的组数
+     * @param word 0 表示高 64 位，1 表示低 64 位
+     */
+    private static long v6Word(CharSequence s, int start, int end, int gap, int word) {
+        long result = 0L;
+        int group = 0;
+        int i = start;
+        if (s.charAt(i) == ':') {
+            group += gap;
+            i += 2;
+        }
+        while (i < end) {
+            int groupEnd = i;
+            int value = 0;
+            boolean dotted = false;
+            while (groupEnd < end && s.charAt(groupEnd) != ':') {
+                if (s.charAt(groupEnd) == '.') dotted = true;
+                groupEnd++;
+            }
+            if (dotted) {
+                long v4Address = parseV4(s, i, groupEnd);
+                result = set(result, group++, (int) (v4Address >>> 16), word);
+                result = set(result, group++, (int) (v4Address & 0xFFFFL), word);
+                break;
+            }
+            for (int j = i; j < groupEnd; j++) value = value << 4 | Character.digit(s.charAt(j), 16);
+            result = set(result, group++, value, word);
+            if (groupEnd == end) break;
+            i = groupEnd + 1;
+            if (i < end && s.charAt(i) == ':') {
+                group += gap;
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private static long set(long result, int group, int value, int word) {
+        if (group >> 2 != word) return result;
+        return result | (long) value << (16 * (3 - (group & 3)));
+    }
+
+    /**
+     * 二进制前缀树，节点保存在数组中，只在启动时写入
+     */
+    private static final class PrefixTrie {
+        private int[] children = new int[16];
+        private boolean[] terminal = new boolean[8];
+        private int size = 1;
+
+        void insert(long hi, long lo, int prefix) {
+            int node = 0;
+            for (int i = 0; i < prefix; i++) {
+                if (terminal[node]) return;
+                int slot = node << 1 | bit(hi, lo, i);
+                if (children[slot] == 0) {
+                    if (size == terminal.length) {
+                        terminal = Arrays.copyOf(terminal, size << 1);
+                        children = Arrays.copyOf(children, size << 2);
+                    }
+                    children[slot] = size++;
+                }
+                node = children[slot];
+            }
+            terminal[node] = true;
+        }
+
+        boolean contains(long hi, long lo, int bits) {
+            int node = 0;
+            for (int i = 0; i < bits; i++) {
+                if (terminal[node]) return true;
+                node = children[node << 1 | bit(hi, lo, i)];
+                if (node == 0) return false;
+            }
+            return terminal[node];
+        }
+
+        private static int bit(long hi, long lo, int i) {
+            return (int) (i < 64 ? hi >>> (63 - i) : lo >>> (127 - i)) & 1;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户会话索引，记录每个用户的全部会话 key
+ * 由 AuthServiceImpl 在登录、注销时维护，缓存过期、淘汰时由各 CacheService 的移除通知维护；
+ * 每个会话同时按过期时间挂到时间轮上，缓存没有移除通知时也会在会话过期后从索引中移除，索引只包含未过期的会话。
+ * 按用户查询、注销全部会话的开销只与该用户的会话数有关。
+ * 索引只在当前节点内存中，CacheService.isShared 为 true（远程缓存、近端缓存的 L2 为远程缓存）时不登记，
+ * 此时 listSessions、revokeAll 不可用
+ */
+@Component
+public class UserSessionIndexSupport {
+    private final static long TICK_MILLIS = 1000L;
+    final
+    AuthProperties authProperties;
+    private final Map<String, Set<String>> index = new ConcurrentHashMap<>();
+    /**
+     * 会话 key -> 过期时间
+     */
+    private final ExpiryTimerWheel expiry = new ExpiryTimerWheel(TICK_MILLIS, 4096);
+    private final ScheduledExecutorService scheduler;
+
+    public UserSessionIndexSupport(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-session-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Set<String>> users = index;
+        ExpiryTimerWheel wheel = expiry;
+        String tokenPrefix = authProperties.getTokenPrefix();
+        scheduler.scheduleWithFixedDelay(() -> wheel.advance(System.currentTimeMillis(),
+                key -> unlink(users, tokenPrefix, (String) key)), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 登记会话
+     *
+     * @param key      会话缓存 key，即 tokenPrefix + userNo,group,time[,E序号]，不是会话 key 时忽略
+     * @param expireAt 会话的过期时间，单位毫秒，永不过期时为 Long.MAX_VALUE
+     */
+    public void add(String key, long expireAt) {
+        String userNo = userNo(authProperties.getTokenPrefix(), key);
+        if (userNo == null) return;
+        index.compute(userNo, (k, keys) -> {
+            if (keys == null) keys = ConcurrentHashMap.newKeySet();
+            keys.add(key);
+            return keys;
+        });
+        expiry.schedule(key, expireAt);
+    }
+
+    /**
+     * 移除会话，用户没有会话时同时移除该用户
+     *
+     * @param key 会话缓存 key，不是会话 key 时忽略
+     */
+    public void remove(String key) {
+        if (unlink(index, authProperties.getTokenPrefix(), key)) expiry.cancel(key);
+    }
+
+    /**
+     * 查询用户的全部会话 key
+     *
+     * @param userNo 用户唯一标识
+     * @return 会话缓存 key
+     */
+    public List<String> keys(String userNo) {
+        Set<String> keys = index.get(userNo);
+        return keys == null ? List.of() : List.copyOf(keys);
+    }
+
+    /**
+     * 移除用户的全部会话
+     *
+     * @param userNo 用户唯一标识
+     * @return 被移除的会话缓存 key
+     */
+    public List<String> removeAll(String userNo) {
+        Set<String> keys = index.remove(userNo);
+        if (keys == null) return List.of();
+        keys.forEach(expiry::cancel);
+        return List.copyOf(keys);
+    }
+
+    /**
+     * 索引中的用户数
+     *
+     * @return 数量
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 从索引中移除会话 key
+     *
+     * @return false 表示不是会话 key
+     */
+    private static boolean unlink(Map<String, Set<String>> index, String tokenPrefix, String key) {
+        String userNo = userNo(tokenPrefix, key);
+        if (userNo == null) return false;
+        index.computeIfPresent(userNo, (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+        return true;
+    }
+
+    private static String userNo(String tokenPrefix, String key) {
+        if (key == null || !key.startsWith(tokenPrefix)) return null;
+        int end = key.indexOf(AuthConstant.HEAD_TOKEN_SEPARATOR, tokenPrefix.length());
+        return end <= tokenPrefix.length() ? null : key.substring(tokenPrefix.length(), end);
+    }
+}
@@ -0,0 +1,336 @@
+package com.boot.auth.starter.support;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 编译后的白名单规则，不可变，FilterWhiteListServiceImpl 和 RouteRuleReloadSupport 共用
+ * 1、普通规则编译为路由段前缀树，匹配时按下标遍历原始路由，不产生任何对象
+ * 2、以 **. 开头的规则同时作为文件后缀规则
+ * 3、区分请求方法的规则（GET /api/{id}/info）使用 PathPatternParser 预先编译，按请求方法和第一级路由分组，每个请求只匹配少量候选规则
+ * 增加规则时复制修改路径上的节点，返回新的对象，原对象不变
+ */
+public final class WhiteListMatcher {
+    public static final WhiteListMatcher EMPTY = new WhiteListMatcher(Node.EMPTY, new String[0], MethodRules.EMPTY);
+    /**
+     * 路由段前缀树
+     */
+    private final Node root;
+    /**
+     * 文件后缀规则，已排序
+     */
+    private final String[] suffixes;
+    /**
+     * 区分请求方法的规则
+     */
+    private final MethodRules methodRules;
+
+    private WhiteListMatcher(Node root, String[] suffixes, MethodRules methodRules) {
+        this.root = root;
+        this.suffixes = suffixes;
+        this.methodRules = methodRules;
+    }
+
+    /**
+     * 增加规则，以请求方法开头、与路由之间用空格隔开的规则（例如 GET /public/**）只对该请求方法生效
+     *
+     * @param paths 要增加的规则
+     * @return 包含新规则的对象
+     */
+    public WhiteListMatcher with(String... paths) {
+        if (paths == null) return this;
+        Node root = this.root;
+        TreeSet<String> suffixes = new TreeSet<>(Arrays.asList(this.suffixes));
+        List<MethodPattern> methodPatterns = new ArrayList<>();
+        for (String path : paths) {
+            if (!StringUtils.hasText(path)) continue;
+            path = path.trim();
+            int space = path.indexOf(' ');
+            if (space > 0) {
+                methodPatterns.add(new MethodPattern(HttpMethod.valueOf(path.substring(0, space).toUpperCase()),
+                        path.substring(space + 1).trim()));
+                continue;
+            }
+            String[] nodes = Arrays.stream(path.split("/")).filter(StringUtils::hasText).toArray(String[]::new);
+            if (nodes.length == 0) continue;
+            root = root.with(nodes, 0);
+            // 以 **. 开头的规则同时作为文件后缀规则，路由中每一级前缀都会登记
+            if (nodes[0].startsWith("**.")) {
+                StringBuilder suffix = new StringBuilder(nodes[0].substring(2));
+                suffixes.add(suffix.toString());
+                for (int i = 1; i < nodes.length; i++) suffixes.add(suffix.append("/").append(nodes[i]).toString());
+            }
+        }
+        return new WhiteListMatcher(root, suffixes.toArray(new String[0]), methodRules.with(methodPatterns));
+    }
+
+    /**
+     * 增加区分请求方法的规则，使用 spring PathPattern 语法
+     *
+     * @param method   请求方法，null 表示全部方法
+     * @param patterns 要增加的规则
+     * @return 包含新规则的对象
+     */
+    public WhiteListMatcher with(HttpMethod method, String... patterns) {
+        if (patterns == null) return this;
+        List<MethodPattern> methodPatterns = Arrays.stream(patterns)
+                .filter(StringUtils::hasText)
+                .map(pattern -> new MethodPattern(method, pattern.trim()))
+                .toList();
+        return new WhiteListMatcher(root, suffixes, methodRules.with(methodPatterns));
+    }
+
+    /**
+     * 是否没有任何规则
+     *
+     * @return true 表示没有规则
+     */
+    public boolean isEmpty() {
+        return root == Node.EMPTY && suffixes.length == 0 && methodRules.groups().isEmpty();
+    }
+
+    /**
+     * 先按去掉 contextPath 后的路由匹配区分请求方法的规则，再按完整的请求路由匹配普通规则
+     *
+     * @param method 请求方法
+     * @param path   请求路由
+     * @return true 表示匹配
+     */
+    public boolean matches(HttpMethod method, RequestPath path) {
+        return matchesMethod(method, path.pathWithinApplication()) || matches(path.value());
+    }
+
+    /**
+     * 只匹配区分请求方法的规则
+     *
+     * @param method 请求方法
+     * @param path   去掉 contextPath 后的路由
+     * @return true 表示匹配
+     */
+    public boolean matchesMethod(HttpMethod method, PathContainer path) {
+        return methodRules.matches(method, path);
+    }
+
+    /**
+     * 只匹配普通规则:
+     * 1、路由中最后一个 . 不在开头时只按文件后缀匹配 **.后缀 规则
+     * 2、否则逐级匹配，当前节点有 ** 时直接成功；有 * 时进入 * 节点，否则进入同名节点，都没有时失败
+     * 3、至少匹配一级路由后成功，即规则的任意一级前缀都在白名单中
+     *
+     * @param path 路由
+     * @return true 表示匹配
+     */
+    public boolean matches(String path) {
+        int length = path.length();
+        int dot = path.lastIndexOf('.');
+        if (dot > 0) return binarySearch(suffixes, path, dot, length) >= 0;
+        Node node = root;
+        boolean matched = false;
+        int start = 0;
+        while (true) {
+            while (start < length && path.charAt(start) == '/') start++;
+            if (start >= length) return matched;
+            int end = path.indexOf('/', start);
+            if (end < 0) end = length;
+            if (node.doubleStar) return true;
+            if (node.star != null) {
+                node = node.star;
+            } else {
+                int index = binarySearch(node.names, path, start, end);
+                if (index < 0) return false;
+                node = node.children[index];
+            }
+            matched = true;
+            start = end;
+        }
+    }
+
+    /**
+     * 区分请求方法的规则原文
+     *
+     * @param method  请求方法，null 表示全部方法
+     * @param pattern PathPattern 规则
+     */
+    private record MethodPattern(HttpMethod method, String pattern) {
+    }
+
+    /**
+     * 按第一级路由分组的规则
+     *
+     * @param literal  第一级路由为固定值的规则
+     * @param wildcard 第一级路由含有通配符或变量的规则
+     */
+    private record Group(Map<String, PathPattern[]> literal, PathPattern[] wildcard) {
+    }
+
+    /**
+     * 编译后的区分请求方法的规则，不可变
+     *
+     * @param sources 规则原文，增加规则时重新编译
+     * @param groups  按请求方法分组，key 为 null 的分组对全部方法生效
+     */
+    private record MethodRules(List<MethodPattern> sources, Map<HttpMethod, Group> groups) {
+        static final MethodRules EMPTY = new MethodRules(List.of(), Map.of());
+
+        MethodRules with(List<MethodPattern> added) {
+            if (added.isEmpty()) return this;
+            List<MethodPattern> all = new ArrayList<>(sources);
+            all.addAll(added);
+            Map<HttpMethod, Map<String, List<PathPattern>>> literal = new HashMap<>();
+            Map<HttpMethod, List<PathPattern>> wildcard = new HashMap<>();
+            for (MethodPattern source : all) {
+                PathPattern pattern = PathPatternParser.defaultInstance.parse(source.pattern());
+                String first = firstLiteral(source.pattern());
+                if (first == null) {
+                    wildcard.computeIfAbsent(source.method(), k -> new ArrayList<>()).add(pattern);
+                } else {
+                    literal.computeIfAbsent(source.method(), k -> new HashMap<>())
+                            .computeIfAbsent(first, k -> new ArrayList<>()).add(pattern);
+                }
+            }
+            Map<HttpMethod, Group> groups = new HashMap<>();
+            for (MethodPattern source : all) {
+                groups.computeIfAbsent(source.method(), method -> {
+                    Map<String, PathPattern[]> byFirst = new HashMap<>();
+                    literal.getOrDefault(method, Map.of())
+                            .forEach((first, patterns) -> byFirst.put(first, patterns.toArray(new PathPattern[0])));
+                    return new Group(byFirst, wildcard.getOrDefault(method, List.of()).toArray(new PathPattern[0]));
+                });
+            }
+            return new MethodRules(List.copyOf(all), groups);
+        }
+
+        boolean matches(HttpMethod method, PathContainer path) {
+            if (groups.isEmpty()) return false;
+            String first = firstSegment(path);
+            return matches(groups.get(method), first, path) || matches(groups.get(null), first, path);
+        }
+
+        private static boolean matches(Group group, String first, PathContainer path) {
+            if (group == null) return false;
+            if (first != null) {
+                PathPattern[] candidates = group.literal().get(first);
+                if (candidates != null) {
+                    for (PathPattern candidate : candidates) if (candidate.matches(path)) return true;
+                }
+            }
+            for (PathPattern candidate : group.wildcard()) if (candidate.matches(path)) return true;
+            return false;
+        }
+
+        /**
+         * 规则的第一级路由，含有通配符或变量时返回 null
+         */
+        private static String firstLiteral(String pattern) {
+            int start = pattern.startsWith("/") ? 1 : 0;
+            int end = pattern.indexOf('/', start);
+            String first = end < 0 ? pattern.substring(start) : pattern.substring(start, end);
+            if (first.isEmpty() || first.indexOf('*') >= 0 || first.indexOf('?') >= 0 || first.indexOf('{') >= 0) return null;
+            return first;
+        }
+
+        /**
+         * 请求的第一级路由，直接使用已解析的路由段，不截取字符串
+         */
+        private static String firstSegment(PathContainer path) {
+            for (PathContainer.Element element : path.elements()) {
+                if (element instanceof PathContainer.PathSegment segment) return segment.valueToMatch();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 前缀树节点，不可变，修改时复制
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(new String[0], new Node[0], null, false);
+        /**
+         * 普通子节点名称，已排序
+         */
+        final String[] names;
+        final Node[] children;
+        /**
+         * * 子节点
+         */
+        final Node star;
+        /**
+         * 存在 ** 子节点
+         */
+        final boolean doubleStar;
+
+        Node(String[] names, Node[] children, Node star, boolean doubleStar) {
+            this.names = names;
+            this.children = children;
+            this.star = star;
+            this.doubleStar = doubleStar;
+        }
+
+        /**
+         * 加入 nodes 中从 index 开始的路由段
+         *
+         * @return 新的节点，原节点不变
+         */
+        Node with(String[] nodes, int index) {
+            if (index >= nodes.length) return this;
+            String node = nodes[index];
+            // ** 之后的路由段不会再被匹配
+            if ("**".equals(node)) return doubleStar ? this : new Node(names, children, star, true);
+            if ("*".equals(node)) return new Node(names, children, (star == null ? EMPTY : star).with(nodes, index + 1), doubleStar);
+            int position = Arrays.binarySearch(names, node);
+            if (position >= 0) {
+                Node[] newChildren = children.clone();
+                newChildren[position] = children[position].with(nodes, index + 1);
+                return new Node(names, newChildren, star, doubleStar);
+            }
+            int insert = -position - 1;
+            List<String> newNames = new ArrayList<>(Arrays.asList(names));
+            List<Node> newChildren = new ArrayList<>(Arrays.asList(children));
+            newNames.add(insert, node);
+            newChildren.add(insert, EMPTY.with(nodes, index + 1));
+            return new Node(newNames.toArray(new String[0]), newChildren.toArray(new Node[0]), star, doubleStar);
+        }
+    }
+
+    /**
+     * 在已排序的数组中查找与 path[start, end) 相同的元素，不截取字符串
+     *
+     * @return 下标，不存在时返回负数
+     */
+    private static int binarySearch(String[] sorted, String path, int start, int end) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compare(sorted[middle], path, start, end);
+            if (compare < 0) low = middle + 1;
+            else if (compare > 0) high = middle - 1;
+            else return middle;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * 与 String.compareTo 相同的顺序比较 value 与 path[start, end)
+     */
+    private static int compare(String value, String path, int start, int end) {
+        int length = end - start;
+        int limit = Math.min(value.length(), length);
+        for (int i = 0; i < limit; i++) {
+            int difference = value.charAt(i) - path.charAt(start + i);
+            if (difference != 0) return difference;
+        }
+        return value.length() - length;
+    }
+}
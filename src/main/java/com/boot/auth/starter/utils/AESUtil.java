@@ -8,19 +8,34 @@ import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.Security;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class AESUtil {
     private final static org.slf4j.Logger log = LoggerFactory.getLogger(AESUtil.class);
     //加密方式
     private static final String ALGORITHM = "AES/CBC/PKCS7Padding";
-    private static final String CHARSET_NAME = "UTF-8";
     private static final String PROVIDER = "BC";
     private static final String IV = "1234567890123456";
-    private static IvParameterSpec IV_PARAMETER_SPEC;
+    private static final IvParameterSpec IV_PARAMETER_SPEC = new IvParameterSpec(IV.getBytes(StandardCharsets.UTF_8));
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * 秘钥缓存，同一个 aesKey 只派生一次 SecretKeySpec
+     */
+    private static final Map<String, SecretKeySpec> SECRET_KEY_CACHE = new ConcurrentHashMap<>();
+    /**
+     * 每个线程复用已初始化的加密器
+     */
+    private static final ThreadLocal<CipherHolder> ENCRYPT_CIPHER = ThreadLocal.withInitial(() -> new CipherHolder(Cipher.ENCRYPT_MODE));
+    /**
+     * 每个线程复用已初始化的解密器
+     */
+    private static final ThreadLocal<CipherHolder> DECRYPT_CIPHER = ThreadLocal.withInitial(() -> new CipherHolder(Cipher.DECRYPT_MODE));
 
     static {
         if (Security.getProvider(PROVIDER) != null) {
@@ -29,17 +44,6 @@ public final class AESUtil {
         Security.addProvider(new BouncyCastleProvider());
     }
 
-    private static IvParameterSpec getIV() {
-        if (null == IV_PARAMETER_SPEC) {
-            try {
-                IV_PARAMETER_SPEC = new IvParameterSpec(IV.getBytes(CHARSET_NAME));
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace();
-            }
-        }
-        return IV_PARAMETER_SPEC;
-    }
-
     /**
      * AES加密
      *
@@ -53,16 +57,9 @@ public final class AESUtil {
                 log.error("加密数据异常,内容或私钥为空");
                 return null;
             }
-            // 创建密码器
-            Cipher cipher = Cipher.getInstance(ALGORITHM, PROVIDER);
-            byte[] byteContent = content.getBytes(CHARSET_NAME);
-            // 初始化
-            cipher.init(Cipher.ENCRYPT_MODE, getSecretKey(aesKey), getIV());
-            //执行加密
-            byte[] encryptResult = cipher.doFinal(byteContent);
+            byte[] encryptResult = ENCRYPT_CIPHER.get().doFinal(getSecretKey(aesKey), content.getBytes(StandardCharsets.UTF_8));
             //用16进制加密
             return bytesToHex(encryptResult);
-//            return Base64.getUrlEncoder().encodeToString(encryptResult);
         } catch (Exception e) {
             log.error("AES加密数据异常:", e);
         }
@@ -83,15 +80,9 @@ public final class AESUtil {
                 return null;
             }
             //先将16进制字符串转为byte数组
-//            byte[] contentByte = Base64.getUrlDecoder().decode(content);
             byte[] contentByte = hexToByteArray(content);
-            // 创建密码器
-            Cipher cipher = Cipher.getInstance(ALGORITHM, PROVIDER);
-            // 初始化
-            cipher.init(Cipher.DECRYPT_MODE, getSecretKey(aesKey), getIV());
-            //执行解密
-            byte[] result = cipher.doFinal(contentByte);
-            return new String(result, CHARSET_NAME);
+            byte[] result = DECRYPT_CIPHER.get().doFinal(getSecretKey(aesKey), contentByte);
+            return new String(result, StandardCharsets.UTF_8);
         } catch (Exception e) {
             log.error("AES解密数据异常:", e);
         }
@@ -99,24 +90,74 @@ public final class AESUtil {
     }
 
     /**
-     * 生成加密秘钥
+     * AES加密二进制内容
+     *
+     * @param content 要加密的内容
+     * @param aesKey  秘钥
+     * @return 加密的结果
+     */
+    public static byte[] encrypt(byte[] content, String aesKey) {
+        try {
+            if (content == null || content.length == 0 || !StringUtils.hasLength(aesKey)) {
+                log.error("加密数据异常,内容或私钥为空");
+                return null;
+            }
+            return ENCRYPT_CIPHER.get().doFinal(getSecretKey(aesKey), content);
+        } catch (Exception e) {
+            log.error("AES加密数据异常:", e);
+        }
+        return null;
+    }
+
+    /**
+     * 解密二进制内容
+     *
+     * @param content 要解密的内容
+     * @param offset  内容起始位置
+     * @param length  内容长度
+     * @param aesKey  秘钥
+     * @return 解密后的内容
+     */
+    public static byte[] decrypt(byte[] content, int offset, int length, String aesKey) {
+        try {
+            if (content == null || length <= 0 || !StringUtils.hasLength(aesKey)) {
+                log.error("解密数据异常,内容或私钥为空");
+                return null;
+            }
+            return DECRYPT_CIPHER.get().doFinal(getSecretKey(aesKey), content, offset, length);
+        } catch (Exception e) {
+            log.error("AES解密数据异常:", e);
+        }
+        return null;
+    }
+
+    /**
+     * 获取加密秘钥，同一个 aesKey 只会派生一次
      *
      * @param aesKey 秘钥
      * @return 生成的秘钥
      */
     private static SecretKeySpec getSecretKey(final String aesKey) {
+        return SECRET_KEY_CACHE.computeIfAbsent(aesKey, AESUtil::generateSecretKey);
+    }
+
+    /**
+     * 生成加密秘钥
+     *
+     * @param aesKey 秘钥
+     * @return 生成的秘钥
+     */
+    private static SecretKeySpec generateSecretKey(final String aesKey) {
         String algorithm = "AES";
         try {
             SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
-            Security.addProvider(new BouncyCastleProvider());
             random.setSeed(aesKey.getBytes());
             KeyGenerator keyGenerator = KeyGenerator.getInstance(algorithm);
             keyGenerator.init(random);
             return new SecretKeySpec(keyGenerator.generateKey().getEncoded(), algorithm);
         } catch (NoSuchAlgorithmException e) {
-            log.error("获取加密秘钥异常:", e);
+            throw new IllegalStateException("获取加密秘钥异常", e);
         }
-        return null;
     }
 
     /**
@@ -126,15 +167,12 @@ public final class AESUtil {
      * @return 转换后的Hex字符串
      */
     private static String bytesToHex(byte[] bytes) {
-        StringBuffer sb = new StringBuffer();
-        for (byte aByte : bytes) {
-            String hex = Integer.toHexString(aByte & 0xFF);
-            if (hex.length() < 2) {
-                sb.append(0);
-            }
-            sb.append(hex);
+        char[] chars = new char[bytes.length << 1];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            chars[j++] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            chars[j++] = HEX_DIGITS[bytes[i] & 0x0F];
         }
-        return sb.toString();
+        return new String(chars);
     }
 
     /**
@@ -145,30 +183,53 @@ public final class AESUtil {
      */
     public static byte[] hexToByteArray(String inHex) {
         int hexlen = inHex.length();
-        byte[] result;
-        if (hexlen % 2 == 1) {
-            //奇数
-            hexlen++;
-            result = new byte[(hexlen / 2)];
-            inHex = "0" + inHex;
-        } else {
-            //偶数
-            result = new byte[(hexlen / 2)];
-        }
-        int j = 0;
-        for (int i = 0; i < hexlen; i += 2) {
-            result[j] = (byte) Integer.parseInt(inHex.substring(i, i + 2), 16);
-            j++;
+        //奇数长度时高位补0
+        int offset = hexlen & 1;
+        byte[] result = new byte[(hexlen + offset) >> 1];
+        for (int i = 0, j = -offset; i < result.length; i++, j += 2) {
+            int high = j < 0 ? 0 : hexDigit(inHex, j);
+            int low = hexDigit(inHex, j + 1);
+            result[i] = (byte) ((high << 4) | low);
         }
         return result;
     }
 
-//    public static void main(String[] args) {
-//        String key = "11111";
-//        String str = "111";
-//        String estr = encrypt(str, key);
-//        System.out.println(estr);
-//        String b = decrypt(estr, key);
-//        System.out.println(b);
-//    }
-}
\ No newline at end of file
+    private static int hexDigit(String inHex, int index) {
+        int digit = Character.digit(inHex.charAt(index), 16);
+        if (digit < 0) throw new NumberFormatException("For input string: \"" + inHex + "\"");
+        return digit;
+    }
+
+    /**
+     * 线程内复用的密码器
+     * 密码器在 doFinal 之后会回到 init 之后的状态，秘钥不变时无需再次 init
+     */
+    private static final class CipherHolder {
+        private final int mode;
+        private Cipher cipher;
+        private SecretKeySpec secretKey;
+
+        private CipherHolder(int mode) {
+            this.mode = mode;
+        }
+
+        private byte[] doFinal(SecretKeySpec key, byte[] content) throws GeneralSecurityException {
+            return doFinal(key, content, 0, content.length);
+        }
+
+        private byte[] doFinal(SecretKeySpec key, byte[] content, int offset, int length) throws GeneralSecurityException {
+            if (cipher == null) cipher = Cipher.getInstance(ALGORITHM, PROVIDER);
+            if (secretKey != key) {
+                cipher.init(mode, key, IV_PARAMETER_SPEC);
+                secretKey = key;
+            }
+            try {
+                return cipher.doFinal(content, offset, length);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                //异常后密码器状态不确定，下次使用时重新 init
+                secretKey = null;
+                throw e;
+            }
+        }
+    }
+}
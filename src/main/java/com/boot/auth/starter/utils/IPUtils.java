@@ -3,9 +3,16 @@ package com.boot.auth.starter.utils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 
+import java.util.List;
 import java.util.Objects;
 
 public final class IPUtils {
+    /**
+     * 默认按顺序查找客户端 ip 的请求头
+     */
+    public static final List<String> IP_HEADERS = List.of("x-forwarded-for", "Proxy-Client-IP", "WL-Proxy-Client-IP",
+            "HTTP_CLIENT_IP", "HTTP_X_FORWARDED_FOR", "X-Real-IP");
+
     /**
      * 获取ip地址,防止集群、代理
      *
@@ -13,30 +20,30 @@ public final class IPUtils {
      * @return ip
      */
     public static String getClientIP(ServerHttpRequest request) {
+        return getClientIP(request, IP_HEADERS);
+    }
+
+    /**
+     * 获取ip地址,防止集群、代理
+     *
+     * @param request   ServerHttpRequest
+     * @param ipHeaders 按顺序查找的请求头，都没有时使用连接的地址
+     * @return ip
+     */
+    public static String getClientIP(ServerHttpRequest request, List<String> ipHeaders) {
         HttpHeaders headers = request.getHeaders();
-        String ip = headers.getFirst("x-forwarded-for");
-        if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
+        String ip = null;
+        for (String name : ipHeaders) {
+            String value = headers.getFirst(name);
+            if (value == null) continue;
             // 多次反向代理后会有多个ip值，第一个ip才是真实ip
-            if (ip.contains(",")) {
-                ip = ip.split(",")[0];
-            }
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = headers.getFirst("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = headers.getFirst("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = headers.getFirst("HTTP_CLIENT_IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = headers.getFirst("HTTP_X_FORWARDED_FOR");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = headers.getFirst("X-Real-IP");
+            int comma = value.indexOf(',');
+            if (comma >= 0) value = value.substring(0, comma);
+            if (value.isEmpty() || "unknown".equalsIgnoreCase(value)) continue;
+            ip = value;
+            break;
         }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+        if (ip == null) {
             ip = Objects.requireNonNull(request.getRemoteAddress()).getAddress().getHostAddress();
         }
         return ip.equals("0:0:0:0:0:0:0:1") ? "127.0.0.1" : ip;
@@ -0,0 +1,136 @@
+package com.boot.auth.starter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.WebFluxRegistrations;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = ResolvedHandlerMappingTest.TestApplication.class, properties = {
+        "info.auth.domain=test.com", "info.auth.token-prefix=tk-", "info.auth.overdue-time=3600"})
+@AutoConfigureWebTestClient
+class ResolvedHandlerMappingTest {
+    @Autowired
+    WebTestClient webTestClient;
+    @Autowired
+    DispatcherHandler dispatcherHandler;
+    @Autowired
+    CountingRequestMappingHandlerMapping requestMappingHandlerMapping;
+
+    @BeforeEach
+    void reset() {
+        requestMappingHandlerMapping.lookups.set(0);
+    }
+
+    @Test
+    void orderedBeforeRequestMappingHandlerMapping() {
+        List<HandlerMapping> mappings = dispatcherHandler.getHandlerMappings();
+        ResolvedHandlerMapping resolved = (ResolvedHandlerMapping) mappings.get(indexOf(mappings, ResolvedHandlerMapping.class));
+        assertEquals(requestMappingHandlerMapping.getOrder() - 1, resolved.getOrder());
+        assertTrue(indexOf(mappings, ResolvedHandlerMapping.class) < indexOf(mappings, RequestMappingHandlerMapping.class));
+    }
+
+    @Test
+    void dispatcherUsesTheHandlerResolvedByTheFilter() {
+        webTestClient.get().uri("/controller").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("controller");
+        //只有 AuthFilter 匹配了一次，DispatcherHandler 复用了它的结果
+        assertEquals(1, requestMappingHandlerMapping.lookups.get());
+    }
+
+    /**
+     * RouterFunctionMapping 与 ResolvedHandlerMapping 顺序相同，不论排在前后都由它处理
+     */
+    @Test
+    void routerFunctionStillWinsOnTheSamePath() {
+        webTestClient.get().uri("/both").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("router");
+    }
+
+    private static int indexOf(List<HandlerMapping> mappings, Class<?> type) {
+        for (int i = 0; i < mappings.size(); i++) {
+            if (type.isInstance(mappings.get(i))) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 记录路由匹配次数
+     */
+    static class CountingRequestMappingHandlerMapping extends RequestMappingHandlerMapping {
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        protected boolean isHandler(Class<?> beanType) {
+            return super.isHandler(beanType) || AnnotatedElementUtils.hasAnnotation(beanType, RequestMapping.class);
+        }
+
+        @Override
+        public Mono<HandlerMethod> getHandlerInternal(ServerWebExchange exchange) {
+            lookups.incrementAndGet();
+            return super.getHandlerInternal(exchange);
+        }
+    }
+
+    /**
+     * 不使用 @RestController，避免被 AuthAutoConfiguration 的组件扫描注册到其他测试中
+     */
+    @RequestMapping
+    @ResponseBody
+    static class TestController {
+        @GetMapping("/controller")
+        public String controller() {
+            return "controller";
+        }
+
+        @GetMapping("/both")
+        public String both() {
+            return "controller";
+        }
+    }
+
+    @EnableAutoConfiguration
+    @Import(TestController.class)
+    static class TestApplication {
+        @Bean
+        WebFluxRegistrations webFluxRegistrations() {
+            return new WebFluxRegistrations() {
+                @Override
+                public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                    return new CountingRequestMappingHandlerMapping();
+                }
+            };
+        }
+
+        @Bean
+        RouterFunction<ServerResponse> both() {
+            return RouterFunctions.route().GET("/both", request -> ServerResponse.ok().bodyValue("router")).build();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.boot.auth.starter;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.LogicSession;
+import com.boot.auth.starter.common.Session;
+import com.boot.auth.starter.exception.AuthException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionArgumentResolverTest {
+    private final SessionArgumentResolver resolver = new SessionArgumentResolver();
+    private final BindingContext bindingContext = new BindingContext();
+
+    @SuppressWarnings("unused")
+    private void handler(Session session, Mono<Session> mono, Optional<Session> optional, Mono<String> other, String plain) {
+    }
+
+    private static MethodParameter parameter(int index) throws NoSuchMethodException {
+        return new MethodParameter(SessionArgumentResolverTest.class.getDeclaredMethod("handler",
+                Session.class, Mono.class, Optional.class, Mono.class, String.class), index);
+    }
+
+    /**
+     * 与 AuthFilter 相同，放入只解析一次的会话，并记录解析次数
+     */
+    private static ServerWebExchange exchange(Session session, AtomicInteger resolved) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+        Mono<LogicSession> logicSession = Mono.fromCallable(() -> {
+            resolved.incrementAndGet();
+            LogicSession result = new LogicSession();
+            result.setSessionOptional(Optional.ofNullable(session));
+            return result;
+        }).cache();
+        exchange.getAttributes().put(AuthConstant.ATTR_LOGIC_SESSION, logicSession);
+        return exchange;
+    }
+
+    private static Session session(String userNo) {
+        Session session = new Session();
+        session.setUserNo(userNo);
+        return session;
+    }
+
+    @Test
+    void supportsSessionParameters() throws Exception {
+        assertTrue(resolver.supportsParameter(parameter(0)));
+        assertTrue(resolver.supportsParameter(parameter(1)));
+        assertTrue(resolver.supportsParameter(parameter(2)));
+        assertFalse(resolver.supportsParameter(parameter(3)));
+        assertFalse(resolver.supportsParameter(parameter(4)));
+    }
+
+    @Test
+    void resolvesOnceForSeveralParameters() throws Exception {
+        AtomicInteger resolved = new AtomicInteger();
+        Session session = session("u1");
+        ServerWebExchange exchange = exchange(session, resolved);
+        assertEquals(0, resolved.get());
+        assertSame(session, resolver.resolveArgument(parameter(0), bindingContext, exchange).block());
+        assertEquals(Optional.of(session), resolver.resolveArgument(parameter(2), bindingContext, exchange).block());
+        assertEquals(1, resolved.get());
+    }
+
+    @Test
+    void monoParameterDefersResolution() throws Exception {
+        AtomicInteger resolved = new AtomicInteger();
+        Session session = session("u1");
+        ServerWebExchange exchange = exchange(session, resolved);
+        Object argument = resolver.resolveArgument(parameter(1), bindingContext, exchange).block();
+        assertEquals(0, resolved.get());
+        assertSame(session, ((Mono<?>) argument).block());
+        assertEquals(1, resolved.get());
+    }
+
+    @Test
+    void missingSession() throws Exception {
+        ServerWebExchange exchange = exchange(null, new AtomicInteger());
+        assertEquals(Optional.empty(), resolver.resolveArgument(parameter(2), bindingContext, exchange).block());
+        assertNull(((Mono<?>) resolver.resolveArgument(parameter(1), bindingContext, exchange).block()).block());
+        AuthException exception = assertThrows(AuthException.class,
+                () -> resolver.resolveArgument(parameter(0), bindingContext, exchange).block());
+        assertEquals("2001", exception.getCode());
+    }
+
+    @Test
+    void sessionAttributeTakesPrecedence() throws Exception {
+        AtomicInteger resolved = new AtomicInteger();
+        ServerWebExchange exchange = exchange(session("lazy"), resolved);
+        Session session = session("eager");
+        exchange.getAttributes().put(AuthConstant.ATTR_SESSION, session);
+        assertSame(session, resolver.resolveArgument(parameter(0), bindingContext, exchange).block());
+        assertEquals(0, resolved.get());
+    }
+}
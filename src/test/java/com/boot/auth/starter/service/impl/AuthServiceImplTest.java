@@ -0,0 +1,211 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthConstant;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.TokenClaims;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.GuavaCacheSupport;
+import com.boot.auth.starter.support.RoleRegistrySupport;
+import com.boot.auth.starter.support.TokenClaimsCacheSupport;
+import com.boot.auth.starter.support.TokenCodecSupport;
+import com.boot.auth.starter.support.TokenDenyListSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthServiceImplTest {
+
+    /**
+     * 用内置 Guava 缓存组装的 AuthServiceImpl
+     */
+    private static final class Fixture {
+        final AuthProperties authProperties = new AuthProperties();
+        final UserSessionIndexSupport userSessionIndexSupport;
+        final TokenClaimsCacheSupport tokenClaimsCacheSupport;
+        final CacheService cacheService;
+        final AuthServiceImpl authService;
+
+        Fixture(long overdueTime, boolean shared) {
+            authProperties.setDomain("test.com");
+            authProperties.setTokenPrefix("tk-");
+            authProperties.setOverdueTime(overdueTime);
+            userSessionIndexSupport = new UserSessionIndexSupport(authProperties);
+            tokenClaimsCacheSupport = new TokenClaimsCacheSupport(authProperties);
+            cacheService = new DefaultCacheServiceImpl(new GuavaCacheSupport(authProperties), authProperties,
+                    new ExcludeIndexSupport(), userSessionIndexSupport) {
+                @Override
+                public boolean isShared() {
+                    return shared;
+                }
+            };
+            authService = new AuthServiceImpl(cacheService,
+                    new DefaultReactiveCacheServiceImpl(cacheService, authProperties), new ObjectMapper(),
+                    authProperties, new TokenCodecSupport(authProperties), new TokenDenyListSupport(authProperties),
+                    tokenClaimsCacheSupport, userSessionIndexSupport,
+                    new RoleRegistrySupport(authProperties));
+        }
+
+        String login(String userNo) throws Exception {
+            String token = authService.auth("USER", userNo, "ADMIN", null, new MockServerHttpResponse(),
+                    MockServerHttpRequest.get("http://www.test.com/").build());
+            //同一毫秒登录会生成相同的 key
+            Thread.sleep(2L);
+            return token;
+        }
+
+        MockServerHttpRequest request(String token) {
+            return MockServerHttpRequest.get("http://www.test.com/").header(AuthConstant.HEAD_TOKEN_NAME, token).build();
+        }
+
+        String cacheKey(String token) {
+            return authProperties.getTokenPrefix() + authService.analysisTokenClaims(token).getKey();
+        }
+
+        List<String> sessionKeys(String userNo) {
+            return authService.listSessions(userNo).stream()
+                    .map(session -> authProperties.getTokenPrefix() + session.get(AuthConstant.MAP_KEY_KEY))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void awaitEmpty(UserSessionIndexSupport support, String userNo) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!support.keys(userNo).isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(50L);
+    }
+
+    @Test
+    void loginIsIndexed() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String first = fixture.cacheKey(fixture.login("u1"));
+        String second = fixture.cacheKey(fixture.login("u1"));
+        fixture.login("u2");
+        assertEquals(List.of(first, second).stream().sorted().toList(), fixture.sessionKeys("u1"));
+        Map<String, String> session = fixture.authService.listSessions("u1").get(0);
+        assertEquals("u1", session.get(AuthConstant.MAP_KEY_USER_NO));
+        assertEquals("USER", session.get(AuthConstant.MAP_KEY_GROUP));
+        assertNotNull(session.get(AuthConstant.MAP_KEY_EXPIRE));
+        assertEquals(1, fixture.sessionKeys("u2").size());
+        assertEquals(2, fixture.userSessionIndexSupport.size());
+    }
+
+    @Test
+    void removalFromCacheUpdatesIndex() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String first = fixture.cacheKey(fixture.login("u1"));
+        String second = fixture.cacheKey(fixture.login("u1"));
+        //缓存删除、淘汰时的移除通知同步移除索引
+        fixture.cacheService.remove(first);
+        assertEquals(List.of(second), fixture.userSessionIndexSupport.keys("u1"));
+        //覆盖写入不影响索引
+        fixture.cacheService.put(second, "{}", 3600L);
+        assertEquals(List.of(second), fixture.userSessionIndexSupport.keys("u1"));
+        fixture.cacheService.remove(second);
+        assertTrue(fixture.userSessionIndexSupport.keys("u1").isEmpty());
+        assertEquals(0, fixture.userSessionIndexSupport.size());
+    }
+
+    @Test
+    void expiredSessionLeavesIndex() throws Exception {
+        Fixture fixture = new Fixture(1L, false);
+        fixture.login("u1");
+        assertEquals(1, fixture.userSessionIndexSupport.keys("u1").size());
+        awaitEmpty(fixture.userSessionIndexSupport, "u1");
+        assertTrue(fixture.userSessionIndexSupport.keys("u1").isEmpty());
+        assertTrue(fixture.authService.listSessions("u1").isEmpty());
+    }
+
+    @Test
+    void revokeAllRemovesEverySession() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String first = fixture.login("u1");
+        String second = fixture.login("u1");
+        String other = fixture.login("u2");
+        String firstKey = fixture.cacheKey(first);
+        String secondKey = fixture.cacheKey(second);
+        assertEquals(2, fixture.authService.revokeAll("u1"));
+        assertNull(fixture.cacheService.get(firstKey));
+        assertNull(fixture.cacheService.get(secondKey));
+        assertTrue(fixture.authService.listSessions("u1").isEmpty());
+        assertEquals(0, fixture.authService.revokeAll("u1"));
+        assertNotNull(fixture.cacheService.get(fixture.cacheKey(other)));
+        assertEquals(1, fixture.authService.listSessions("u2").size());
+    }
+
+    @Test
+    void revokeAllAsyncRemovesEverySession() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String key = fixture.cacheKey(fixture.login("u1"));
+        fixture.login("u1");
+        assertEquals(2, fixture.authService.revokeAllAsync("u1").block(Duration.ofSeconds(5)));
+        assertNull(fixture.cacheService.get(key));
+        assertTrue(fixture.authService.listSessions("u1").isEmpty());
+    }
+
+    @Test
+    void sharedCacheIsNotSupported() throws Exception {
+        Fixture fixture = new Fixture(3600L, true);
+        fixture.login("u1");
+        //共享缓存时不登记
+        assertEquals(0, fixture.userSessionIndexSupport.size());
+        assertThrows(UnsupportedOperationException.class, () -> fixture.authService.listSessions("u1"));
+        assertThrows(UnsupportedOperationException.class, () -> fixture.authService.revokeAll("u1"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> fixture.authService.revokeAllAsync("u1").block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void claimsAreCachedUntilDeleted() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String token = fixture.login("u1");
+        TokenClaimsCacheSupport claimsCache = fixture.tokenClaimsCacheSupport;
+        TokenClaims claims = fixture.authService.analysisTokenClaims(token);
+        assertSame(claims, fixture.authService.analysisTokenClaims(fixture.request(token)));
+        assertEquals(1, claimsCache.hitCount());
+        assertEquals(1, claimsCache.size());
+        assertTrue(fixture.authService.deleteAuth(new MockServerHttpResponse(), fixture.request(token)));
+        assertEquals(0, claimsCache.size());
+        assertFalse(fixture.authService.checkToken(fixture.request(token)));
+        //注销后重新解析，不再命中
+        assertNotSame(claims, fixture.authService.analysisTokenClaims(token));
+    }
+
+    @Test
+    void claimsAreDroppedWhenLoginReplacesToken() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String token = fixture.login("u1");
+        fixture.authService.analysisTokenClaims(token);
+        assertEquals(1, fixture.tokenClaimsCacheSupport.size());
+        //携带旧 token 重新登录时删除旧 token 的解析结果
+        fixture.authService.auth("USER", "u1", "ADMIN", null, new MockServerHttpResponse(), fixture.request(token));
+        assertEquals(0, fixture.tokenClaimsCacheSupport.size());
+    }
+
+    @Test
+    void deleteAuthAsyncInvalidatesClaims() throws Exception {
+        Fixture fixture = new Fixture(3600L, false);
+        String token = fixture.login("u1");
+        fixture.authService.analysisTokenClaims(token);
+        assertTrue(fixture.authService.deleteAuthAsync(new MockServerHttpResponse(), fixture.request(token))
+                .block(Duration.ofSeconds(5)));
+        assertEquals(0, fixture.tokenClaimsCacheSupport.size());
+        assertFalse(fixture.authService.checkTokenAsync(fixture.request(token)).block(Duration.ofSeconds(5)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.CaffeineCacheSupport;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.GuavaCacheSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存基准测试：caffeine（W-TinyLFU、按条目过期）与默认的 guava 缓存（按条目过期由时间轮实现）对比
+ * 多线程读取会话、按条目过期时间写入会话，key 数量超过容量上限，包含淘汰的开销
+ * 运行方式见 com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CaffeineCacheServiceImplBenchmark {
+    private static final int KEYS = 200_000;
+    private static final long MAXIMUM_SIZE = 100_000L;
+    @Param({"guava", "caffeine"})
+    public String cacheType;
+    private CacheService cacheService;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setTokenPrefix("tk-");
+        authProperties.setOverdueTime(3600L);
+        authProperties.getGuavaCache().setCacheMaximumSize(MAXIMUM_SIZE);
+        UserSessionIndexSupport userSessionIndexSupport = new UserSessionIndexSupport(authProperties);
+        cacheService = "caffeine".equals(cacheType)
+                ? new CaffeineCacheServiceImpl(new CaffeineCacheSupport(authProperties), authProperties,
+                new ExcludeIndexSupport(), userSessionIndexSupport)
+                : new DefaultCacheServiceImpl(new GuavaCacheSupport(authProperties), authProperties,
+                new ExcludeIndexSupport(), userSessionIndexSupport);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "tk-" + i + ",USER," + i;
+            cacheService.put(keys[i], "{\"userNo\":\"" + i + "\"}", 600L + i % 600);
+        }
+    }
+
+    private String key() {
+        return keys[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+
+    @Benchmark
+    public String get() {
+        return cacheService.get(key());
+    }
+
+    @Benchmark
+    public void putWithExpiry() {
+        String key = key();
+        cacheService.put(key, key, 600L + (key.length() & 511));
+    }
+
+    @Benchmark
+    public Long getExpire() {
+        return cacheService.getExpire(key());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CaffeineCacheServiceImplBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.support.CaffeineCacheSupport;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分别在 cache 和 loadingCache 两种模式下验证按条目设置的过期时间
+ */
+class CaffeineCacheServiceImplTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CaffeineCacheServiceImpl service(boolean loading) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setOverdueTime(3600L);
+        authProperties.getGuavaCache().setEnableLoadingCache(loading);
+        CaffeineCacheSupport support = new CaffeineCacheSupport(authProperties);
+        support.setTicker(nanos::get);
+        support.setExecutor(Runnable::run);
+        support.setCacheLoader((key, executor) -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        return new CaffeineCacheServiceImpl(support, authProperties, new ExcludeIndexSupport(),
+                new UserSessionIndexSupport(authProperties));
+    }
+
+    private void advanceSeconds(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void perEntryExpiry(boolean loading) {
+        CaffeineCacheServiceImpl service = service(loading);
+        service.put("short", "s", 10L);
+        service.put("long", "l", 100L);
+        service.put("default", "d");
+        service.put("never", "n", 0L);
+        assertEquals(10L, service.getExpire("short"));
+        assertEquals(100L, service.getExpire("long"));
+        assertEquals(3600L, service.getExpire("default"));
+        assertEquals(Long.MAX_VALUE, service.getExpire("never"));
+
+        advanceSeconds(11);
+        assertNull(service.get("short"));
+        assertEquals(0L, service.getExpire("short"));
+        assertEquals("l", service.get("long"));
+        //剩余时间向上取整，读取不会延长过期时间
+        assertEquals(89L, service.getExpire("long"));
+        assertEquals(3589L, service.getExpire("default"));
+        assertEquals(Long.MAX_VALUE, service.getExpire("never"));
+
+        advanceSeconds(100_000);
+        assertNull(service.get("long"));
+        assertNull(service.get("default"));
+        assertEquals("n", service.get("never"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void overwriteResetsExpiry(boolean loading) {
+        CaffeineCacheServiceImpl service = service(loading);
+        service.put("k", "v1", 10L);
+        advanceSeconds(8);
+        service.put("k", "v2", 10L);
+        advanceSeconds(8);
+        assertEquals("v2", service.get("k"));
+        assertEquals(2L, service.getExpire("k"));
+        //不指定过期时间覆盖时使用 overdueTime
+        service.put("k", "v3");
+        assertEquals(3600L, service.getExpire("k"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void forEachReportsRemainingTime(boolean loading) {
+        CaffeineCacheServiceImpl service = service(loading);
+        service.put("expired", "e", 5L);
+        service.put("live", "l", 60L);
+        service.put("never", "n", 0L);
+        advanceSeconds(20);
+        long now = System.currentTimeMillis();
+        Map<String, Long> entries = new HashMap<>();
+        service.forEach((key, data, expireAt) -> entries.put(key + "=" + data, expireAt));
+        assertEquals(2, entries.size());
+        assertFalse(entries.containsKey("expired=e"));
+        long live = entries.get("live=l");
+        assertTrue(live >= now + 40_000 && live <= System.currentTimeMillis() + 40_000, String.valueOf(live - now));
+        assertEquals(Long.MAX_VALUE, entries.get("never=n"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void getAndRemoveWithoutLoader(boolean loading) {
+        CaffeineCacheServiceImpl service = service(loading);
+        assertNull(service.get("missing"));
+        assertEquals(0L, service.getExpire("missing"));
+        service.put("k", "v", 10L);
+        assertEquals("v", service.get("k"));
+        service.remove("k");
+        assertNull(service.get("k"));
+        //loadingCache 模式下 varExpiration 写入的是 synchronous 视图，命中时不会调用加载器
+        int expectedLoads = loading ? 3 : 0;
+        assertEquals(expectedLoads, loads.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void loaderPopulatesWithDefaultExpiry(boolean loading) throws Exception {
+        CaffeineCacheServiceImpl service = service(loading);
+        assertEquals("loaded", service.get("k", () -> "loaded"));
+        assertEquals("loaded", service.get("k", () -> "other"));
+        assertEquals(3600L, service.getExpire("k"));
+        assertEquals(loading, service.isBlocking());
+    }
+}
@@ -0,0 +1,208 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.GuavaCacheSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用 BlockHound 检查适配器在事件循环线程（parallel 线程）上调用时不会阻塞
+ */
+class DefaultReactiveCacheServiceImplTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @BeforeAll
+    static void installBlockHound() {
+        BlockHound.install();
+    }
+
+    /**
+     * 在 parallel 线程上订阅，模拟过滤器在事件循环线程中访问缓存
+     */
+    private static <T> T onNonBlockingThread(Mono<T> mono) {
+        return mono.subscribeOn(Schedulers.parallel()).block(TIMEOUT);
+    }
+
+    @Test
+    void blockingCacheIsOffloadedToAuthCache() {
+        StubCacheService cacheService = new StubCacheService(true);
+        DefaultReactiveCacheServiceImpl reactive = new DefaultReactiveCacheServiceImpl(cacheService, new AuthProperties());
+        try {
+            onNonBlockingThread(reactive.put("k", "v", 60L));
+            assertEquals("v", onNonBlockingThread(reactive.get("k")));
+            assertEquals(60L, onNonBlockingThread(reactive.getExpire("k")));
+            onNonBlockingThread(reactive.remove("k"));
+            assertNull(onNonBlockingThread(reactive.get("k")));
+            assertEquals(5, cacheService.threads.size());
+            cacheService.threads.forEach(thread -> assertTrue(thread.startsWith("auth-cache"), thread));
+        } finally {
+            reactive.destroy();
+        }
+    }
+
+    @Test
+    void nonBlockingCacheRunsOnCallerThread() {
+        StubCacheService cacheService = new StubCacheService(false);
+        DefaultReactiveCacheServiceImpl reactive = new DefaultReactiveCacheServiceImpl(cacheService, new AuthProperties());
+        try {
+            onNonBlockingThread(reactive.put("k", "v", 60L));
+            assertEquals("v", onNonBlockingThread(reactive.get("k")));
+            assertEquals(60L, onNonBlockingThread(reactive.getExpire("k")));
+            assertEquals(3, cacheService.threads.size());
+            cacheService.threads.forEach(thread -> assertTrue(thread.startsWith("parallel-"), thread));
+        } finally {
+            reactive.destroy();
+        }
+    }
+
+    @Test
+    void blockHoundDetectsBlockingCacheOnCallerThread() {
+        //声明为非阻塞但实际会阻塞的实现，证明 BlockHound 已生效
+        StubCacheService cacheService = new StubCacheService(true) {
+            @Override
+            public boolean isBlocking() {
+                return false;
+            }
+        };
+        DefaultReactiveCacheServiceImpl reactive = new DefaultReactiveCacheServiceImpl(cacheService, new AuthProperties());
+        try {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> onNonBlockingThread(reactive.get("k")));
+            assertInstanceOf(BlockingOperationError.class, e.getCause() == null ? e : e.getCause());
+        } finally {
+            reactive.destroy();
+        }
+    }
+
+    @Test
+    void defaultCacheServiceDoesNotBlock() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setOverdueTime(3600L);
+        DefaultCacheServiceImpl cacheService = new DefaultCacheServiceImpl(new GuavaCacheSupport(authProperties),
+                authProperties, new ExcludeIndexSupport(), new UserSessionIndexSupport(authProperties));
+        DefaultReactiveCacheServiceImpl reactive = new DefaultReactiveCacheServiceImpl(cacheService, authProperties);
+        try {
+            onNonBlockingThread(reactive.put("k", "v", 60L));
+            assertEquals("v", onNonBlockingThread(reactive.get("k")));
+            assertTrue(onNonBlockingThread(reactive.getExpire("k")) > 0);
+            onNonBlockingThread(reactive.remove("k"));
+            assertNull(onNonBlockingThread(reactive.get("k")));
+        } finally {
+            reactive.destroy();
+        }
+    }
+
+    /**
+     * 记录调用线程的缓存，blocking 为 true 时每次访问都 sleep，模拟远程缓存
+     */
+    static class StubCacheService implements CacheService {
+        final Map<String, String> data = new ConcurrentHashMap<>();
+        final Map<String, Long> expire = new ConcurrentHashMap<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        private final boolean blocking;
+
+        StubCacheService(boolean blocking) {
+            this.blocking = blocking;
+        }
+
+        private void access() {
+            threads.add(Thread.currentThread().getName());
+            if (!blocking) return;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean isBlocking() {
+            return blocking;
+        }
+
+        @Override
+        public Long getOverdueTime() {
+            return 3600L;
+        }
+
+        @Override
+        public Boolean getExclude() {
+            return false;
+        }
+
+        @Override
+        public void put(String key, String data) {
+            put(key, data, getOverdueTime());
+        }
+
+        @Override
+        public void put(String key, String data, Long overdueTime) {
+            access();
+            this.data.put(key, data);
+            expire.put(key, overdueTime);
+        }
+
+        @Override
+        public String get(String key) {
+            access();
+            return data.get(key);
+        }
+
+        @Override
+        public String get(String key, Callable<Object> loader) {
+            return get(key);
+        }
+
+        @Override
+        public Object excludeGet(String keyExclude) {
+            return null;
+        }
+
+        @Override
+        public Object excludeGet(String keyExclude, Callable<Object> loader) {
+            return null;
+        }
+
+        @Override
+        public Long getExpire(String key) {
+            access();
+            return expire.getOrDefault(key, 0L);
+        }
+
+        @Override
+        public void remove(String key) {
+            access();
+            data.remove(key);
+            expire.remove(key);
+        }
+
+        @Override
+        public boolean exclude(String key) {
+            return true;
+        }
+
+        @Override
+        public boolean exclude(String key, Callable<Object> loader) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.FilterWhiteListService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.RequestPath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterWhiteListServiceImplTest {
+
+    private static FilterWhiteListServiceImpl service(long memoMaximumSize) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getWhiteList().setMemoMaximumSize(memoMaximumSize);
+        return new FilterWhiteListServiceImpl(authProperties);
+    }
+
+    @Test
+    void memoizesResults() {
+        FilterWhiteListServiceImpl service = service(100);
+        service.addWhiteList("/public/**");
+        assertTrue(service.isWhiteList("/public/a"));
+        assertTrue(service.isWhiteList("/public/a"));
+        assertFalse(service.isWhiteList("/private"));
+        assertFalse(service.isWhiteList("/private"));
+        assertEquals(2, service.hitCount());
+        assertEquals(2, service.missCount());
+    }
+
+    @Test
+    void addWhiteListReplacesMemo() {
+        FilterWhiteListServiceImpl service = service(100);
+        assertFalse(service.isWhiteList("/private"));
+        service.addWhiteList("/private");
+        assertTrue(service.isWhiteList("/private"));
+    }
+
+    @Test
+    void highCardinalityPathsBypassMemo() {
+        FilterWhiteListServiceImpl service = service(100);
+        service.addWhiteList("/img/**");
+        assertTrue(service.isWhiteList("/img/12345"));
+        assertFalse(service.isWhiteList("/user/0f8fad5b-d9cb-469f-a165-70867728950e"));
+        assertEquals(2, service.bypassCount());
+        assertEquals(0, service.missCount());
+    }
+
+    @Test
+    void worksWithoutMemo() {
+        FilterWhiteListServiceImpl service = service(0);
+        service.addWhiteList("/public/**");
+        assertTrue(service.isWhiteList("/public/a"));
+        assertEquals(1, service.bypassCount());
+    }
+
+    @Test
+    void methodRulesMatchWithinApplicationAndPlainRulesTheFullPath() {
+        FilterWhiteListServiceImpl service = service(100);
+        service.addWhiteList("/ctx/plain", "/other", "GET /wl/{id}/info");
+        service.addWhiteList(HttpMethod.PUT, "/wl/**");
+        RequestPath plain = RequestPath.parse("/ctx/plain", "/ctx");
+        RequestPath other = RequestPath.parse("/ctx/other", "/ctx");
+        RequestPath info = RequestPath.parse("/ctx/wl/1/info", "/ctx");
+        RequestPath detail = RequestPath.parse("/ctx/wl/1/detail", "/ctx");
+        //普通规则包含 contextPath，与之前的行为相同
+        assertTrue(service.isWhiteList(HttpMethod.POST, plain));
+        assertFalse(service.isWhiteList(HttpMethod.POST, other));
+        //区分请求方法的规则与 @RequestMapping 相同，不包含 contextPath
+        assertTrue(service.isWhiteList(HttpMethod.GET, info));
+        assertFalse(service.isWhiteList(HttpMethod.POST, info));
+        assertTrue(service.isWhiteList(HttpMethod.PUT, detail));
+        assertFalse(service.isWhiteList(HttpMethod.GET, detail));
+    }
+
+    @Test
+    void defaultMethodsDelegateToStringRules() {
+        List<String> added = new ArrayList<>();
+        List<String> matched = new ArrayList<>();
+        FilterWhiteListService service = new FilterWhiteListService() {
+            @Override
+            public boolean isWhiteList(String path) {
+                matched.add(path);
+                return true;
+            }
+
+            @Override
+            public void addWhiteList(String... paths) {
+                added.addAll(Arrays.asList(paths));
+            }
+        };
+        service.addWhiteList(HttpMethod.GET, "/a/** ", " ", null);
+        assertEquals(List.of("GET /a/**"), added);
+        added.clear();
+        service.addWhiteList((HttpMethod) null, "/b");
+        assertArrayEquals(Arrays.stream(HttpMethod.values()).map(m -> m.name() + " /b").toArray(), added.toArray());
+        assertTrue(service.isWhiteList(HttpMethod.GET, RequestPath.parse("/ctx/a/1", "/ctx")));
+        assertEquals(List.of("/ctx/a/1"), matched);
+    }
+}
@@ -0,0 +1,70 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.AuthRule;
+import com.boot.auth.starter.service.AuthMetrics;
+import com.boot.auth.starter.support.RoleRegistrySupport;
+import com.boot.auth.starter.support.RouteRuleReloadSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.RequestPath;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class MicrometerAuthMetricsImplTest {
+
+    private static MicrometerAuthMetricsImpl metrics(MeterRegistry registry, AuthProperties authProperties) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", registry));
+        return new MicrometerAuthMetricsImpl(beanFactory.getBeanProvider(MeterRegistry.class), authProperties);
+    }
+
+    private static double count(MeterRegistry registry, String route, AuthMetrics.Outcome outcome) {
+        return registry.get("auth.filter.decision").tag("route", route).tag("outcome", outcome.getTag()).counter().count();
+    }
+
+    @Test
+    void reloadedRulesShareCountersWithTheSameRoute() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getMetrics().setMaxRoutes(2);
+        authProperties.getWhiteList().setRoleOverrides(Map.of("/admin/**", "ADMIN"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerAuthMetricsImpl metrics = metrics(registry, authProperties);
+        RouteRuleReloadSupport routeRuleReloadSupport = new RouteRuleReloadSupport(authProperties,
+                new RoleRegistrySupport(authProperties));
+        AuthRule base = new AuthRule(AuthRule.Type.PUBLIC, false, null, null, null, "/admin/users", "AdminController#users");
+        RequestPath path = RequestPath.parse("/admin/users", null);
+        AuthRule previous = null;
+        for (int i = 0; i < 10; i++) {
+            routeRuleReloadSupport.reload();
+            AuthRule derived = routeRuleReloadSupport.current().apply(base, HttpMethod.GET, path);
+            //每次加载都会生成新的规则对象
+            if (previous != null) assertNotSame(previous, derived);
+            previous = derived;
+            metrics.decision(derived, AuthMetrics.Outcome.FORBIDDEN);
+        }
+        metrics.decision(new AuthRule(AuthRule.Type.PUBLIC, false, null, null, null, "/other", "OtherController#get"),
+                AuthMetrics.Outcome.PASS);
+        assertEquals(2, metrics.routeCount());
+        assertEquals(10D, count(registry, "/admin/users", AuthMetrics.Outcome.FORBIDDEN));
+        assertEquals(1D, count(registry, "/other", AuthMetrics.Outcome.PASS));
+    }
+
+    @Test
+    void routesBeyondTheLimitAreCountedAsOther() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getMetrics().setMaxRoutes(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerAuthMetricsImpl metrics = metrics(registry, authProperties);
+        metrics.decision(new AuthRule(AuthRule.Type.PUBLIC, false, null, null, null, "/a", null), AuthMetrics.Outcome.PASS);
+        metrics.decision(new AuthRule(AuthRule.Type.PUBLIC, false, null, null, null, "/b", null), AuthMetrics.Outcome.PASS);
+        assertEquals(1, metrics.routeCount());
+        assertEquals(1D, count(registry, "/a", AuthMetrics.Outcome.PASS));
+        assertEquals(1D, count(registry, MicrometerAuthMetricsImpl.OTHER_ROUTE, AuthMetrics.Outcome.PASS));
+    }
+}
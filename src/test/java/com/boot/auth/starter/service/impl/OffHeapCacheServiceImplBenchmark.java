@@ -0,0 +1,105 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import com.boot.auth.starter.support.CaffeineCacheSupport;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.OffHeapCacheSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 堆外缓存基准测试：与堆内的 caffeine 缓存对比吞吐量和 GC
+ * 预先写入大量会话，读多写少；main 方法启用 GCProfiler，输出每次操作的分配量和 GC 次数、耗时，
+ * TearDown 时打印 Full GC 后缓存占用的堆内存，体现会话数据是否在堆内
+ * 运行方式见 com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=1g"})
+public class OffHeapCacheServiceImplBenchmark {
+    private static final int KEYS = 500_000;
+    @Param({"offheap", "caffeine"})
+    public String cacheType;
+    private CacheService cacheService;
+    private String[] keys;
+    private String[] data;
+    private long baseline;
+
+    @Setup
+    public void setup() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setTokenPrefix("tk-");
+        authProperties.setOverdueTime(3600L);
+        authProperties.getOffHeap().setCapacity(512L << 20);
+        authProperties.getOffHeap().setMaximumSize((long) KEYS * 2);
+        authProperties.getGuavaCache().setCacheMaximumSize((long) KEYS * 2);
+        UserSessionIndexSupport userSessionIndexSupport = new UserSessionIndexSupport(authProperties);
+        cacheService = "offheap".equals(cacheType)
+                ? new OffHeapCacheServiceImpl(new OffHeapCacheSupport(authProperties), authProperties,
+                new ExcludeIndexSupport(), userSessionIndexSupport)
+                : new CaffeineCacheServiceImpl(new CaffeineCacheSupport(authProperties), authProperties,
+                new ExcludeIndexSupport(), userSessionIndexSupport);
+        keys = new String[KEYS];
+        data = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "tk-" + i + ",USER," + i;
+            //每个会话独立的 json，大小接近真实会话
+            data[i] = "{\"userNo\":\"" + i + "\",\"group\":\"USER\",\"roles\":\"USER,VIP\",\"platform\":\"web\",\"version\":\"1.0\","
+                    + "\"deviceId\":\"" + "d".repeat(64) + "\",\"parameters\":{\"tenant\":\"" + "t".repeat(128) + "\"}}";
+        }
+        baseline = usedHeap();
+        //写入副本，缓存不与 data 共享字符串，堆占用只统计缓存自身
+        for (int i = 0; i < KEYS; i++) cacheService.put(keys[i], new String(data[i].toCharArray()), 3600L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n[%s] 缓存占用堆内存: %d MB%n", cacheType, (usedHeap() - baseline) >> 20);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Benchmark
+    public String get() {
+        return cacheService.get(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public void put() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        cacheService.put(keys[i], data[i], 3600L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OffHeapCacheServiceImplBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.boot.auth.starter.service.impl;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.support.ExcludeIndexSupport;
+import com.boot.auth.starter.support.OffHeapCacheSupport;
+import com.boot.auth.starter.support.UserSessionIndexSupport;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapCacheServiceImplTest {
+
+    private static OffHeapCacheServiceImpl service(boolean exclude, long capacity) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setOverdueTime(3600L);
+        authProperties.setEnableExclude(exclude);
+        authProperties.getOffHeap().setCapacity(capacity);
+        authProperties.getOffHeap().setMaximumSize(1000L);
+        authProperties.getOffHeap().setSegments(2);
+        return new OffHeapCacheServiceImpl(new OffHeapCacheSupport(authProperties), authProperties,
+                new ExcludeIndexSupport(), new UserSessionIndexSupport(authProperties));
+    }
+
+    @Test
+    void excludedSessionIsHiddenFromGetAndGetExpire() {
+        OffHeapCacheServiceImpl service = service(true, 1 << 20);
+        service.put("tk-u1,USER,1000,E1", "first", 60L);
+        assertEquals("first", service.get("tk-u1,USER,1000,E1"));
+        service.put("tk-u1,USER,2000,E2", "second", 60L);
+        assertNull(service.get("tk-u1,USER,1000,E1"));
+        assertEquals(0L, service.getExpire("tk-u1,USER,1000,E1"));
+        assertEquals("second", service.get("tk-u1,USER,2000,E2"));
+        assertEquals(60L, service.getExpire("tk-u1,USER,2000,E2"));
+        //excludeGet 读取原始条目，不做排他校验
+        assertEquals("first", service.excludeGet("tk-u1,USER,1000,E1"));
+        //其他用户不受影响
+        service.put("tk-u2,USER,1000,E1", "other", 60L);
+        assertEquals("other", service.get("tk-u2,USER,1000,E1"));
+    }
+
+    @Test
+    void exclusionIsIgnoredWhenDisabled() {
+        OffHeapCacheServiceImpl service = service(false, 1 << 20);
+        service.put("tk-u1,USER,1000,E1", "first", 60L);
+        service.put("tk-u1,USER,2000,E2", "second", 60L);
+        assertEquals("first", service.get("tk-u1,USER,1000,E1"));
+        assertEquals(60L, service.getExpire("tk-u1,USER,1000,E1"));
+    }
+
+    @Test
+    void neverExpiry() {
+        OffHeapCacheServiceImpl service = service(false, 1 << 20);
+        service.put("never", "n", 0L);
+        service.put("default", "d");
+        service.put("nullTime", "t", null);
+        assertEquals(Long.MAX_VALUE, service.getExpire("never"));
+        assertEquals(3600L, service.getExpire("default"));
+        assertEquals(3600L, service.getExpire("nullTime"));
+        assertEquals(0L, service.getExpire("missing"));
+        Map<String, Long> entries = new HashMap<>();
+        service.forEach((key, data, expireAt) -> entries.put(key, expireAt));
+        assertEquals(OffHeapCacheSupport.NEVER, entries.get("never"));
+        assertTrue(entries.get("default") > System.currentTimeMillis());
+        service.remove("never");
+        assertNull(service.get("never"));
+    }
+
+    @Test
+    void entryLargerThanSegmentIsRejected() {
+        OffHeapCacheServiceImpl service = service(true, 2 * 256);
+        service.put("tk-u1,USER,1000,E1", "small", 60L);
+        service.put("tk-u1,USER,2000,E2", "x".repeat(300), 60L);
+        assertNull(service.get("tk-u1,USER,2000,E2"));
+        assertEquals(0L, service.getExpire("tk-u1,USER,2000,E2"));
+        //未存储的会话不登记排他序号，之前的会话仍然有效
+        assertEquals("small", service.get("tk-u1,USER,1000,E1"));
+    }
+
+    @Test
+    void loaderFillsMissingEntry() throws Exception {
+        OffHeapCacheServiceImpl service = service(false, 1 << 20);
+        assertEquals("loaded", service.get("k", () -> "loaded"));
+        assertEquals("loaded", service.get("k", () -> "other"));
+        assertEquals(3600L, service.getExpire("k"));
+        assertNull(service.get("none", () -> null));
+        assertEquals("raw", service.excludeGet("raw", () -> "raw"));
+        assertEquals("raw", service.get("raw"));
+    }
+}
@@ -0,0 +1,217 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.annotation.Auth;
+import com.boot.auth.starter.annotation.IgnoreLogin;
+import com.boot.auth.starter.annotation.NoAuthGetSession;
+import com.boot.auth.starter.annotation.OperLog;
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.AuthRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 规则编译结果与原先 AuthFilter 中逐次读取注解的判断一致：类上的注解优先于方法上的注解，
+ * Auth、IgnoreLogin、NoAuthGetSession 依次判断
+ */
+class AuthRuleSupportTest {
+    private RequestMappingHandlerMapping requestMappingHandlerMapping;
+    private RoleRegistrySupport roleRegistrySupport;
+    private AuthRuleSupport authRuleSupport;
+
+    static class MethodController {
+        public void open() {
+        }
+
+        @OperLog(operType = "VIEW")
+        public void logged() {
+        }
+
+        @OperLog(flag = false, operType = "VIEW")
+        public void notLogged() {
+        }
+
+        @Auth(roles = {"USER", "OPS"})
+        public void user() {
+        }
+
+        @Auth
+        @IgnoreLogin
+        @NoAuthGetSession
+        public void ignored() {
+        }
+
+        @Auth
+        @IgnoreLogin(ignore = false)
+        @NoAuthGetSession(loginRequired = false)
+        public void optional() {
+        }
+    }
+
+    @Auth(roles = "ADMIN")
+    @OperLog(operType = "CLASS")
+    static class ClassAuthController {
+        @Auth(roles = "USER")
+        @OperLog(operType = "METHOD")
+        public void admin() {
+        }
+
+        public void inherited() {
+        }
+    }
+
+    @IgnoreLogin(ignore = false)
+    static class ClassIgnoreController {
+        @Auth(roles = "USER")
+        @IgnoreLogin
+        public void notIgnored() {
+        }
+    }
+
+    @NoAuthGetSession(loginRequired = false)
+    static class ClassOptionalController {
+        @Auth(roles = "USER")
+        @NoAuthGetSession
+        public void optional() {
+        }
+    }
+
+    static class LateController {
+        @Auth(roles = "LATE")
+        public void late() {
+        }
+    }
+
+    @BeforeEach
+    void init() throws Exception {
+        requestMappingHandlerMapping = new RequestMappingHandlerMapping();
+        register(new MethodController(), "/method/", "open", "logged", "notLogged", "user", "ignored", "optional");
+        register(new ClassAuthController(), "/class/", "admin", "inherited");
+        register(new ClassIgnoreController(), "/ignore/", "notIgnored");
+        register(new ClassOptionalController(), "/optional/", "optional");
+        roleRegistrySupport = new RoleRegistrySupport(new AuthProperties());
+        authRuleSupport = new AuthRuleSupport(requestMappingHandlerMapping, roleRegistrySupport);
+        ReflectionTestUtils.invokeMethod(authRuleSupport, "init");
+    }
+
+    private void register(Object controller, String prefix, String... methods) throws NoSuchMethodException {
+        for (String name : methods) {
+            requestMappingHandlerMapping.registerMapping(
+                    RequestMappingInfo.paths(prefix + name).methods(RequestMethod.GET).build(),
+                    controller, controller.getClass().getMethod(name));
+        }
+    }
+
+    private AuthRule rule(Class<?> type, String name) throws NoSuchMethodException {
+        Method method = type.getMethod(name);
+        return requestMappingHandlerMapping.getHandlerMethods().values().stream()
+                .filter(handlerMethod -> handlerMethod.getMethod().equals(method))
+                .findFirst()
+                .map(authRuleSupport::getRule)
+                .orElseThrow();
+    }
+
+    @Test
+    void withoutAuthIsPublic() throws Exception {
+        AuthRule open = rule(MethodController.class, "open");
+        assertEquals(AuthRule.Type.PUBLIC, open.getType());
+        assertNull(open.getOperType());
+        assertEquals("[GET] /method/open", open.getRoute());
+        assertEquals("MethodController#open", open.getHandler());
+        assertEquals("VIEW", rule(MethodController.class, "logged").getOperType());
+        assertNull(rule(MethodController.class, "notLogged").getOperType());
+    }
+
+    @Test
+    void methodLevelAnnotations() throws Exception {
+        AuthRule user = rule(MethodController.class, "user");
+        assertEquals(AuthRule.Type.ROLES_REQUIRED, user.getType());
+        assertTrue(user.isLoginRequired());
+        assertEquals(Set.of("USER", "OPS"), user.getRoles());
+        assertArrayEquals(roleRegistrySupport.compile("USER", "OPS"), user.getRoleMask());
+        //IgnoreLogin 先于 NoAuthGetSession 判断
+        assertEquals(AuthRule.Type.IGNORE_LOGIN, rule(MethodController.class, "ignored").getType());
+        //ignore = false 时继续判断 NoAuthGetSession
+        AuthRule optional = rule(MethodController.class, "optional");
+        assertEquals(AuthRule.Type.SESSION_OPTIONAL, optional.getType());
+        assertFalse(optional.isLoginRequired());
+    }
+
+    @Test
+    void classLevelAnnotationsWin() throws Exception {
+        AuthRule admin = rule(ClassAuthController.class, "admin");
+        assertEquals(AuthRule.Type.ROLES_REQUIRED, admin.getType());
+        assertEquals(Set.of("ADMIN"), admin.getRoles());
+        assertEquals("CLASS", admin.getOperType());
+        AuthRule inherited = rule(ClassAuthController.class, "inherited");
+        assertEquals(Set.of("ADMIN"), inherited.getRoles());
+        assertEquals("CLASS", inherited.getOperType());
+        //类上 ignore = false 时不再读取方法上的 IgnoreLogin
+        AuthRule notIgnored = rule(ClassIgnoreController.class, "notIgnored");
+        assertEquals(AuthRule.Type.ROLES_REQUIRED, notIgnored.getType());
+        assertEquals(Set.of("USER"), notIgnored.getRoles());
+        AuthRule optional = rule(ClassOptionalController.class, "optional");
+        assertEquals(AuthRule.Type.SESSION_OPTIONAL, optional.getType());
+        assertFalse(optional.isLoginRequired());
+    }
+
+    @Test
+    void rulesAreCompiledOnce() throws Exception {
+        assertSame(rule(MethodController.class, "user"), rule(MethodController.class, "user"));
+        assertEquals(10, authRuleSupport.getRules().size());
+    }
+
+    @Test
+    void handlersRegisteredLaterArePickedUp() throws Exception {
+        register(new LateController(), "/late/", "late");
+        AuthRule late = rule(LateController.class, "late");
+        assertEquals(AuthRule.Type.ROLES_REQUIRED, late.getType());
+        assertEquals(Set.of("LATE"), late.getRoles());
+        assertEquals("[GET] /late/late", late.getRoute());
+        assertSame(late, rule(LateController.class, "late"));
+        assertEquals(11, authRuleSupport.getRules().size());
+        //没有注册到 RequestMappingHandlerMapping 的处理方法同样可以编译
+        HandlerMethod unmapped = new HandlerMethod(new LateController(), LateController.class.getMethod("late"));
+        assertSame(late, authRuleSupport.getRule(unmapped));
+    }
+
+    @Test
+    void endpointReportsAllRulesSortedByRoute() throws Exception {
+        register(new LateController(), "/late/", "late");
+        rule(LateController.class, "late");
+        List<Map<String, Object>> rules = new AuthRuleEndpoint(authRuleSupport).rules();
+        assertEquals(11, rules.size());
+        List<String> routes = rules.stream().map(rule -> String.valueOf(rule.get("route"))).toList();
+        assertEquals(routes.stream().sorted().toList(), routes);
+        Map<String, Object> late = rules.stream()
+                .filter(rule -> "[GET] /late/late".equals(rule.get("route")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("LateController#late", late.get("handler"));
+        assertEquals(AuthRule.Type.ROLES_REQUIRED, late.get("type"));
+        assertEquals(true, late.get("loginRequired"));
+        assertEquals(Set.of("LATE"), late.get("roles"));
+        assertEquals(false, late.get("operLog"));
+        Map<String, Object> admin = rules.stream()
+                .filter(rule -> "[GET] /class/admin".equals(rule.get("route")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(true, admin.get("operLog"));
+    }
+}
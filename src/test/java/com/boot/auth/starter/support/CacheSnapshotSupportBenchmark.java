@@ -0,0 +1,102 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.impl.OffHeapCacheServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存快照基准测试：写出、加载不同数量会话的耗时，加载包括校验整个文件和写回缓存
+ * 运行方式见 com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSnapshotSupportBenchmark {
+    @Param({"10000", "100000"})
+    public int sessions;
+    private Path dir;
+    private CacheSnapshotSupport source;
+    private CacheSnapshotSupport target;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("auth-snapshot");
+        source = snapshot();
+        OffHeapCacheServiceImpl cacheService = (OffHeapCacheServiceImpl) source.cacheService;
+        for (int i = 0; i < sessions; i++) {
+            cacheService.put("tk-" + i + ",USER," + i + ",E1",
+                    "{\"userNo\":\"" + i + "\",\"group\":\"USER\",\"roles\":\"USER\",\"deviceId\":\"" + "d".repeat(64) + "\"}", 3600L);
+        }
+        target = snapshot();
+    }
+
+    private CacheSnapshotSupport snapshot() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setTokenPrefix("tk-");
+        authProperties.setOverdueTime(3600L);
+        authProperties.setEnableExclude(true);
+        authProperties.getOffHeap().setCapacity(256L << 20);
+        authProperties.getSnapshot().setPath(dir.resolve("auth.snapshot").toString());
+        UserSessionIndexSupport userSessionIndexSupport = new UserSessionIndexSupport(authProperties);
+        ExcludeIndexSupport excludeIndexSupport = new ExcludeIndexSupport();
+        OffHeapCacheServiceImpl cacheService = new OffHeapCacheServiceImpl(new OffHeapCacheSupport(authProperties),
+                authProperties, excludeIndexSupport, userSessionIndexSupport);
+        return new CacheSnapshotSupport(cacheService, authProperties, userSessionIndexSupport, excludeIndexSupport);
+    }
+
+    /**
+     * 加载会删除快照，每次加载前重新写出
+     */
+    @State(Scope.Thread)
+    public static class Written {
+        @Setup(Level.Invocation)
+        public void write(CacheSnapshotSupportBenchmark benchmark) {
+            benchmark.source.write();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long write() {
+        return source.write();
+    }
+
+    @Benchmark
+    public long load(Written written) {
+        return target.load();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CacheSnapshotSupportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
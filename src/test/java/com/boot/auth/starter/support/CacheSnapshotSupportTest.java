@@ -0,0 +1,251 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.service.CacheService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheSnapshotSupportTest {
+    @TempDir
+    Path dir;
+
+    private AuthProperties authProperties(Path file) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setTokenPrefix("tk-");
+        authProperties.setOverdueTime(3600L);
+        authProperties.setEnableExclude(true);
+        authProperties.getSnapshot().setPath(file == null ? null : file.toString());
+        return authProperties;
+    }
+
+    private CacheSnapshotSupport snapshot(Path file, MapCacheService cacheService) {
+        AuthProperties authProperties = authProperties(file);
+        return new CacheSnapshotSupport(cacheService, authProperties,
+                new UserSessionIndexSupport(authProperties), new ExcludeIndexSupport());
+    }
+
+    /**
+     * 写出包含 3 个会话的快照：60 秒后过期、永不过期、300 毫秒后过期
+     */
+    private Path write(long soonMillis) {
+        Path file = dir.resolve("auth.snapshot");
+        MapCacheService source = new MapCacheService();
+        long now = System.currentTimeMillis();
+        source.entries.put("tk-u1,USER,1000,E1", new Value("live", now + 60_000));
+        source.entries.put("tk-u2,USER,1000,E3", new Value("never", Long.MAX_VALUE));
+        source.entries.put("tk-u3,USER,1000,E1", new Value("soon", now + soonMillis));
+        source.entries.put("tk-u4,USER,1000,E1", new Value("expired", now - 1));
+        assertEquals(3L, snapshot(file, source).write());
+        return file;
+    }
+
+    @Test
+    void roundTripSkipsExpiredEntriesAndDeletesFile() throws Exception {
+        Path file = write(300);
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+        }
+        assertFalse(Files.exists(dir.resolve("auth.snapshot.tmp")));
+        Thread.sleep(400);
+        MapCacheService target = new MapCacheService();
+        CacheSnapshotSupport snapshot = snapshot(file, target);
+        assertEquals(2L, snapshot.load());
+        assertEquals(2, target.entries.size());
+        assertEquals("live", target.get("tk-u1,USER,1000,E1"));
+        assertTrue(target.overdueTimes.get("tk-u1,USER,1000,E1") >= 59L);
+        assertEquals("never", target.get("tk-u2,USER,1000,E3"));
+        assertEquals(0L, target.overdueTimes.get("tk-u2,USER,1000,E3"));
+        assertNull(target.get("tk-u3,USER,1000,E1"));
+        //加载后重建会话索引和排他索引，并删除快照
+        assertEquals(List.of("tk-u1,USER,1000,E1"), snapshot.userSessionIndexSupport.keys("u1"));
+        assertEquals(3L, snapshot.excludeIndexSupport.latest("tk-u2"));
+        assertFalse(Files.exists(file));
+        assertEquals(-1L, snapshot(file, new MapCacheService()).load());
+    }
+
+    @Test
+    void corruptCrcIsRejected() throws IOException {
+        Path file = write(60_000);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[CacheSnapshotSupport.HEADER_BYTES + 20] ^= 1;
+        Files.write(file, bytes);
+        MapCacheService target = new MapCacheService();
+        assertEquals(-1L, snapshot(file, target).load());
+        assertTrue(target.entries.isEmpty());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void versionMismatchIsRejected() throws IOException {
+        Path file = write(60_000);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, CacheSnapshotSupport.VERSION + 1);
+        Files.write(file, withCrc(bytes));
+        MapCacheService target = new MapCacheService();
+        assertEquals(-1L, snapshot(file, target).load());
+        assertTrue(target.entries.isEmpty());
+    }
+
+    @Test
+    void invalidRecordIsRejectedBeforeAnyPut() throws IOException {
+        Path file = write(60_000);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        //第一个条目完好，最后一个条目的 data 长度超出文件范围，校验值重新计算后仍然一致
+        int position = CacheSnapshotSupport.HEADER_BYTES;
+        int last = position;
+        while (position < bytes.length - CacheSnapshotSupport.FOOTER_BYTES) {
+            last = position;
+            position += CacheSnapshotSupport.RECORD_HEADER_BYTES + buffer.getInt(position) + buffer.getInt(position + 4);
+        }
+        buffer.putInt(last + 4, buffer.getInt(last + 4) + 1000);
+        Files.write(file, withCrc(bytes));
+        MapCacheService target = new MapCacheService();
+        assertEquals(-1L, snapshot(file, target).load());
+        assertEquals(0, target.puts);
+    }
+
+    @Test
+    void entryCountMismatchIsRejected() throws IOException {
+        Path file = write(60_000);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - 16, 2L);
+        Files.write(file, withCrc(bytes));
+        MapCacheService target = new MapCacheService();
+        assertEquals(-1L, snapshot(file, target).load());
+        assertEquals(0, target.puts);
+    }
+
+    @Test
+    void failedPutRollsBackAppliedEntries() {
+        Path file = write(60_000);
+        MapCacheService target = new MapCacheService();
+        target.failAt = 2;
+        CacheSnapshotSupport snapshot = snapshot(file, target);
+        assertEquals(-1L, snapshot.load());
+        assertEquals(2, target.puts);
+        assertTrue(target.entries.isEmpty());
+        assertEquals(0, snapshot.userSessionIndexSupport.size());
+        assertEquals(0, snapshot.excludeIndexSupport.size());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void withoutPathNothingIsWritten() {
+        MapCacheService cacheService = new MapCacheService();
+        cacheService.entries.put("tk-u1,USER,1000", new Value("v", Long.MAX_VALUE));
+        CacheSnapshotSupport support = snapshot(null, cacheService);
+        assertEquals(-1L, support.write());
+        assertEquals(-1L, support.load());
+    }
+
+    private static byte[] withCrc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - 8, crc.getValue());
+        return bytes;
+    }
+
+    private record Value(String data, long expireAt) {
+    }
+
+    /**
+     * 进程内的缓存，failAt 大于 0 时第 failAt 次写入抛出异常
+     */
+    static class MapCacheService implements CacheService {
+        final Map<String, Value> entries = new ConcurrentHashMap<>();
+        final Map<String, Long> overdueTimes = new ConcurrentHashMap<>();
+        int failAt;
+        int puts;
+
+        @Override
+        public boolean isShared() {
+            return false;
+        }
+
+        @Override
+        public void forEach(EntryConsumer consumer) {
+            entries.forEach((key, value) -> consumer.accept(key, value.data(), value.expireAt()));
+        }
+
+        @Override
+        public Long getOverdueTime() {
+            return 3600L;
+        }
+
+        @Override
+        public Boolean getExclude() {
+            return true;
+        }
+
+        @Override
+        public void put(String key, String data) {
+            put(key, data, getOverdueTime());
+        }
+
+        @Override
+        public void put(String key, String data, Long overdueTime) {
+            if (++puts == failAt) throw new IllegalStateException("cache unavailable");
+            entries.put(key, new Value(data, overdueTime == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + overdueTime * 1000));
+            overdueTimes.put(key, overdueTime);
+        }
+
+        @Override
+        public String get(String key) {
+            Value value = entries.get(key);
+            return value == null ? null : value.data();
+        }
+
+        @Override
+        public String get(String key, Callable<Object> loader) {
+            return get(key);
+        }
+
+        @Override
+        public Object excludeGet(String keyExclude) {
+            return get(keyExclude);
+        }
+
+        @Override
+        public Object excludeGet(String keyExclude, Callable<Object> loader) {
+            return get(keyExclude);
+        }
+
+        @Override
+        public Long getExpire(String key) {
+            return overdueTimes.getOrDefault(key, 0L);
+        }
+
+        @Override
+        public void remove(String key) {
+            entries.remove(key);
+            overdueTimes.remove(key);
+        }
+
+        @Override
+        public boolean exclude(String key) {
+            return true;
+        }
+
+        @Override
+        public boolean exclude(String key, Callable<Object> loader) {
+            return true;
+        }
+    }
+}
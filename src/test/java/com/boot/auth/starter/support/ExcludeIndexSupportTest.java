@@ -0,0 +1,89 @@
+package com.boot.auth.starter.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExcludeIndexSupportTest {
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @Test
+    void registerIsMonotonic() {
+        ExcludeIndexSupport support = new ExcludeIndexSupport();
+        support.register("tk-u1,USER,1000,E2", NEVER);
+        //较早的登录后写入时不会回退
+        support.register("tk-u1,USER,900,E1", NEVER);
+        assertEquals(2L, support.latest("tk-u1"));
+        support.register("tk-u1,USER,1100,E3", NEVER);
+        assertEquals(3L, support.latest("tk-u1"));
+        assertFalse(support.check("tk-u1,USER,1000,E2"));
+        assertTrue(support.check("tk-u1,USER,1100,E3"));
+        assertEquals(1, support.size());
+    }
+
+    @Test
+    void keysWithoutSerialAreIgnored() {
+        ExcludeIndexSupport support = new ExcludeIndexSupport();
+        support.register("tk-u1,USER,1000", NEVER);
+        support.register("tk-u1,USER,1000,Ex", NEVER);
+        assertEquals(0, support.size());
+        assertTrue(support.check("tk-u1,USER,1000"));
+        assertTrue(support.check("tk-u1,USER,1000,E1"));
+    }
+
+    @Test
+    void checkWithLoaderIsReadOnly() {
+        ExcludeIndexSupport support = new ExcludeIndexSupport();
+        AtomicInteger loads = new AtomicInteger();
+        assertFalse(support.check("tk-u1,USER,1000,E1", () -> {
+            loads.incrementAndGet();
+            return 2L;
+        }));
+        assertTrue(support.check("tk-u1,USER,1000,E2", () -> {
+            loads.incrementAndGet();
+            return 2L;
+        }));
+        //加载到的序号不写入索引，每次都会重新加载
+        assertEquals(2, loads.get());
+        assertEquals(0, support.size());
+        //索引中有记录时不再加载
+        support.register("tk-u1,USER,1000,E3", NEVER);
+        assertFalse(support.check("tk-u1,USER,1000,E2", () -> {
+            loads.incrementAndGet();
+            return 0L;
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void laterExpiryIsKept() throws InterruptedException {
+        ExcludeIndexSupport support = new ExcludeIndexSupport();
+        long now = System.currentTimeMillis();
+        support.register("tk-u1,USER,1000,E2", now + 60_000L);
+        //序号较小但过期时间较晚的会话延长条目的过期时间
+        support.register("tk-u1,USER,900,E1", now + 120_000L);
+        support.register("tk-u2,USER,1000,E1", now + 500L);
+        assertEquals(2L, support.latest("tk-u1"));
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (support.latest("tk-u2") != 0L && System.currentTimeMillis() < deadline) Thread.sleep(50L);
+        assertEquals(0L, support.latest("tk-u2"));
+        assertEquals(2L, support.latest("tk-u1"));
+        assertEquals(1, support.size());
+    }
+
+    @Test
+    void expiredEntryIsRemoved() throws InterruptedException {
+        ExcludeIndexSupport support = new ExcludeIndexSupport();
+        support.register("tk-u1,USER,1000,E5", System.currentTimeMillis() + 500L);
+        assertFalse(support.check("tk-u1,USER,1000,E4"));
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (support.size() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(50L);
+        assertEquals(0, support.size());
+        //过期后没有记录，按未开启排他处理
+        assertTrue(support.check("tk-u1,USER,1000,E4"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.boot.auth.starter.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryTimerWheelTest {
+    private static final long TICK = 1000L;
+
+    private static List<Object> advance(ExpiryTimerWheel wheel, long now) {
+        List<Object> expired = new ArrayList<>();
+        wheel.advance(now, expired::add);
+        return expired;
+    }
+
+    @Test
+    void expiresOnlyAfterExpireAt() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 16);
+        long now = System.currentTimeMillis();
+        wheel.schedule("a", now + 3 * TICK);
+        wheel.schedule("b", now + 10 * TICK);
+        assertEquals(now + 3 * TICK, wheel.expireAt("a"));
+        assertTrue(advance(wheel, now + TICK).isEmpty());
+        assertEquals(List.of("a"), advance(wheel, now + 5 * TICK));
+        assertEquals(0L, wheel.expireAt("a"));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("b"), advance(wheel, now + 12 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduleReplacesPreviousExpiry() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 16);
+        long now = System.currentTimeMillis();
+        wheel.schedule("a", now + 2 * TICK);
+        wheel.schedule("a", now + 8 * TICK);
+        assertTrue(advance(wheel, now + 4 * TICK).isEmpty());
+        assertEquals(now + 8 * TICK, wheel.expireAt("a"));
+        assertEquals(List.of("a"), advance(wheel, now + 9 * TICK));
+    }
+
+    @Test
+    void cancelledKeyNeverExpires() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 16);
+        long now = System.currentTimeMillis();
+        wheel.schedule("a", now + 2 * TICK);
+        wheel.cancel("a");
+        wheel.cancel("missing");
+        assertEquals(0L, wheel.expireAt("a"));
+        assertTrue(advance(wheel, now + 4 * TICK).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverIsKeptButNotLinked() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 16);
+        long now = System.currentTimeMillis();
+        wheel.schedule("a", ExpiryTimerWheel.NEVER);
+        assertTrue(advance(wheel, now + 1000 * TICK).isEmpty());
+        assertEquals(ExpiryTimerWheel.NEVER, wheel.expireAt("a"));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void entriesBeyondOneRevolutionWaitForTheirRound() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 4);
+        long now = System.currentTimeMillis();
+        //4 个槽位，10 个 tick 之后的条目会多次经过所在槽位
+        wheel.schedule("far", now + 10 * TICK);
+        for (int i = 1; i <= 9; i++) assertTrue(advance(wheel, now + i * TICK).isEmpty(), "tick " + i);
+        assertEquals(List.of("far"), advance(wheel, now + 11 * TICK));
+    }
+
+    @Test
+    void longGapProcessesEveryBucketOnce() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 4);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) wheel.schedule(i, now + i * TICK);
+        assertEquals(20, advance(wheel, now + 100 * TICK).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastExpiryExpiresOnNextTick() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 16);
+        long now = System.currentTimeMillis();
+        wheel.schedule("old", now - 10 * TICK);
+        assertEquals(List.of("old"), advance(wheel, now + 2 * TICK));
+    }
+
+    @Test
+    void advanceWithinSameTickIsNoop() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(TICK, 16);
+        long now = System.currentTimeMillis();
+        wheel.schedule("a", now - TICK);
+        assertTrue(advance(wheel, now - 5 * TICK).isEmpty());
+        assertEquals(1, wheel.size());
+    }
+}
@@ -0,0 +1,122 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.exception.AuthException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapCacheSupportTest {
+
+    private static OffHeapCacheSupport support(long capacity, long maximumSize, int segments) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getOffHeap().setCapacity(capacity);
+        authProperties.getOffHeap().setMaximumSize(maximumSize);
+        authProperties.getOffHeap().setSegments(segments);
+        return new OffHeapCacheSupport(authProperties);
+    }
+
+    @Test
+    void putGetOverwriteRemove() {
+        OffHeapCacheSupport cache = support(1 << 20, 1000, 2);
+        assertTrue(cache.put("k", "v1", OffHeapCacheSupport.NEVER));
+        assertEquals("v1", cache.get("k"));
+        assertEquals(OffHeapCacheSupport.NEVER, cache.expireAt("k"));
+        assertTrue(cache.put("k", "值2", OffHeapCacheSupport.NEVER));
+        assertEquals("值2", cache.get("k"));
+        assertEquals(1, cache.size());
+        cache.remove("k");
+        assertNull(cache.get("k"));
+        assertEquals(0L, cache.expireAt("k"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiredEntryIsRemovedOnRead() {
+        OffHeapCacheSupport cache = support(1 << 20, 1000, 2);
+        List<String> removed = new ArrayList<>();
+        cache.addRemovalListener(removed::add);
+        long now = System.currentTimeMillis();
+        cache.put("old", "v", now - 1);
+        cache.put("new", "v", now + 60_000);
+        assertEquals(0L, cache.expireAt("old"));
+        assertEquals(now + 60_000, cache.expireAt("new"));
+        List<String> keys = new ArrayList<>();
+        cache.forEach((key, data, expireAt) -> keys.add(key));
+        assertEquals(List.of("new"), keys);
+        assertNull(cache.get("old"));
+        assertEquals(List.of("old"), removed);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void oversizedEntryIsRejected() {
+        OffHeapCacheSupport cache = support(2 * 256, 1000, 2);
+        assertFalse(cache.put("k", "x".repeat(300), OffHeapCacheSupport.NEVER));
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void evictsOldestWhenEntryLimitIsReached() {
+        OffHeapCacheSupport cache = support(1 << 20, 32, 2);
+        List<String> removed = new ArrayList<>();
+        cache.addRemovalListener(removed::add);
+        for (int i = 0; i < 1000; i++) cache.put("key-" + i, "value-" + i, OffHeapCacheSupport.NEVER);
+        assertTrue(cache.size() <= 32);
+        assertEquals(1000 - cache.size(), cache.evictionCount());
+        assertEquals(cache.evictionCount(), removed.size());
+        assertEquals("value-999", cache.get("key-999"));
+        assertNull(cache.get("key-0"));
+    }
+
+    @Test
+    void evictsOldestWhenLogWrapsAround() {
+        OffHeapCacheSupport cache = support(2 * 4096, 100_000, 2);
+        for (int i = 0; i < 5000; i++) cache.put("key-" + i, "value-" + i, OffHeapCacheSupport.NEVER);
+        assertTrue(cache.usedBytes() <= 2 * 4096);
+        assertTrue(cache.evictionCount() > 0);
+        //每个段都保留最近写入的记录
+        for (int i = 4990; i < 5000; i++) assertEquals("value-" + i, cache.get("key-" + i));
+        Map<String, String> entries = new HashMap<>();
+        cache.forEach((key, data, expireAt) -> entries.put(key, data));
+        assertEquals(cache.size(), entries.size());
+        entries.forEach((key, data) -> assertEquals("value-" + key.substring(4), data));
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutAndRemove() {
+        OffHeapCacheSupport cache = support(16 << 20, 100_000, 4);
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            String key = "k" + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                cache.remove(key);
+                expected.remove(key);
+            } else {
+                String value = "v" + i;
+                cache.put(key, value, OffHeapCacheSupport.NEVER);
+                expected.put(key, value);
+            }
+        }
+        assertEquals(0, cache.evictionCount());
+        assertEquals(expected.size(), cache.size());
+        for (int i = 0; i < 2000; i++) assertEquals(expected.get("k" + i), cache.get("k" + i));
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(AuthException.class, () -> support(2 * 10, 1000, 2));
+        assertThrows(AuthException.class, () -> support(1 << 20, 4 * ((1L << 27) * 3 / 4 + 1), 2));
+    }
+}
@@ -0,0 +1,203 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.OperLogAnnotationEntity;
+import com.boot.auth.starter.service.LogService;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperLogSupportTest {
+
+    /**
+     * 第一次写出时阻塞，直到 release，用来让队列保持满的状态
+     */
+    private static final class GatedLogService implements LogService {
+        final ConcurrentLinkedQueue<OperLogAnnotationEntity> logs = new ConcurrentLinkedQueue<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release;
+
+        GatedLogService(boolean gated) {
+            this.release = new CountDownLatch(gated ? 1 : 0);
+        }
+
+        @Override
+        public void addLog(OperLogAnnotationEntity logEntity) {
+            logs.add(logEntity);
+        }
+
+        @Override
+        public void addLogs(List<OperLogAnnotationEntity> logEntities) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logs.addAll(logEntities);
+        }
+    }
+
+    private static OperLogSupport support(LogService logService, int capacity,
+                                          AuthProperties.OperLogQueue.OverflowPolicy policy) {
+        AuthProperties authProperties = new AuthProperties();
+        AuthProperties.OperLogQueue config = authProperties.getOperLogQueue();
+        config.setCapacity(capacity);
+        config.setBatchSize(1);
+        config.setFlushInterval(10L);
+        config.setOverflowPolicy(policy);
+        config.setSampleRate(2);
+        config.setBlockTimeout(5000L);
+        return new OperLogSupport(logService, authProperties);
+    }
+
+    private static OperLogAnnotationEntity entity(int id) {
+        OperLogAnnotationEntity logEntity = new OperLogAnnotationEntity();
+        logEntity.setOperType(String.valueOf(id));
+        return logEntity;
+    }
+
+    /**
+     * 第一条日志被后台线程取出后阻塞在写出中，之后的日志都留在队列里
+     */
+    private static void stall(OperLogSupport support, GatedLogService logService) throws InterruptedException {
+        assertTrue(support.offer(entity(-1)));
+        assertTrue(logService.entered.await(5, TimeUnit.SECONDS));
+        assertEquals(0, support.queueDepth());
+    }
+
+    @Test
+    void dropRejectsWhenFull() throws Exception {
+        GatedLogService logService = new GatedLogService(true);
+        OperLogSupport support = support(logService, 8, AuthProperties.OperLogQueue.OverflowPolicy.DROP);
+        stall(support, logService);
+        for (int i = 0; i < 8; i++) assertTrue(support.offer(entity(i)), "offer " + i);
+        assertFalse(support.offer(entity(8)));
+        assertEquals(8, support.queueDepth());
+        assertEquals(1, support.dropCount());
+        logService.release.countDown();
+        support.destroy();
+        assertEquals(9, support.flushCount());
+        assertEquals(10, support.offerCount());
+        assertEquals(0, support.queueDepth());
+    }
+
+    @Test
+    void sampleAboveThreeQuarters() throws Exception {
+        GatedLogService logService = new GatedLogService(true);
+        OperLogSupport support = support(logService, 8, AuthProperties.OperLogQueue.OverflowPolicy.SAMPLE);
+        stall(support, logService);
+        //低于四分之三时全部放入
+        for (int i = 0; i < 6; i++) assertTrue(support.offer(entity(i)), "offer " + i);
+        //超过后每 2 条放入 1 条，满时全部丢弃
+        assertTrue(support.offer(entity(6)));
+        assertFalse(support.offer(entity(7)));
+        assertTrue(support.offer(entity(8)));
+        assertFalse(support.offer(entity(9)));
+        assertFalse(support.offer(entity(10)));
+        assertEquals(8, support.queueDepth());
+        assertEquals(3, support.dropCount());
+        logService.release.countDown();
+        support.destroy();
+        assertEquals(9, support.flushCount());
+    }
+
+    @Test
+    void blockWaitsForSpace() throws Exception {
+        GatedLogService logService = new GatedLogService(true);
+        OperLogSupport support = support(logService, 8, AuthProperties.OperLogQueue.OverflowPolicy.BLOCK);
+        stall(support, logService);
+        for (int i = 0; i < 8; i++) assertTrue(support.offer(entity(i)));
+        AtomicBoolean offered = new AtomicBoolean();
+        Thread producer = new Thread(() -> offered.set(support.offer(entity(8))));
+        producer.start();
+        producer.join(200L);
+        assertTrue(producer.isAlive());
+        logService.release.countDown();
+        producer.join(5000L);
+        assertTrue(offered.get());
+        support.destroy();
+        assertEquals(0, support.dropCount());
+        assertEquals(10, support.flushCount());
+    }
+
+    @Test
+    void blockTimesOut() throws Exception {
+        GatedLogService logService = new GatedLogService(true);
+        OperLogSupport support = support(logService, 8, AuthProperties.OperLogQueue.OverflowPolicy.BLOCK);
+        support.config.setBlockTimeout(50L);
+        stall(support, logService);
+        for (int i = 0; i < 8; i++) assertTrue(support.offer(entity(i)));
+        long start = System.nanoTime();
+        assertFalse(support.offer(entity(8)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, support.dropCount());
+        logService.release.countDown();
+        support.destroy();
+    }
+
+    @Test
+    void blockFallsBackToDropOnNonBlockingThread() throws Exception {
+        GatedLogService logService = new GatedLogService(true);
+        OperLogSupport support = support(logService, 8, AuthProperties.OperLogQueue.OverflowPolicy.BLOCK);
+        stall(support, logService);
+        for (int i = 0; i < 8; i++) assertTrue(support.offer(entity(i)));
+        long start = System.nanoTime();
+        Boolean offered = Mono.fromCallable(() -> support.offer(entity(8)))
+                .subscribeOn(Schedulers.parallel())
+                .block(Duration.ofSeconds(5));
+        assertFalse(offered);
+        //blockTimeout 为 5 秒，没有等待
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, support.dropCount());
+        logService.release.countDown();
+        support.destroy();
+    }
+
+    @Test
+    void concurrentProducersDeliverEveryLogOnce() throws Exception {
+        GatedLogService logService = new GatedLogService(false);
+        OperLogSupport support = support(logService, 64, AuthProperties.OperLogQueue.OverflowPolicy.BLOCK);
+        int producers = 4;
+        int perProducer = 10_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) support.offer(entity(base + i));
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) thread.join();
+        support.destroy();
+        assertEquals(0, support.dropCount());
+        assertEquals(producers * perProducer, support.flushCount());
+        Set<String> ids = new HashSet<>();
+        logService.logs.forEach(logEntity -> assertTrue(ids.add(logEntity.getOperType()), logEntity.getOperType()));
+        assertEquals(producers * perProducer, ids.size());
+    }
+
+    @Test
+    void offersAfterDestroyAreDropped() throws Exception {
+        GatedLogService logService = new GatedLogService(false);
+        OperLogSupport support = support(logService, 8, AuthProperties.OperLogQueue.OverflowPolicy.DROP);
+        assertTrue(support.offer(entity(0)));
+        support.destroy();
+        assertEquals(1, logService.logs.size());
+        assertFalse(support.offer(entity(1)));
+        assertEquals(1, support.dropCount());
+    }
+}
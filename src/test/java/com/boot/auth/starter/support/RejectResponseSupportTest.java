@@ -0,0 +1,39 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.service.OutJsonService;
+import com.boot.auth.starter.service.impl.DefaultOutJsonServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RejectResponseSupportTest {
+    private final OutJsonService outJsonService = new DefaultOutJsonServiceImpl(new ObjectMapper());
+    private final RejectResponseSupport support = new RejectResponseSupport(outJsonService);
+
+    @ParameterizedTest
+    @EnumSource(value = RestStatus.class, names = {"USER_NOLOGIIN", "USER_TOKEN_INVALID", "AUTH_NO"})
+    void writesPreEncodedBody(RestStatus restStatus) {
+        String expected = outJsonService.errorOutJson(restStatus.getMsg(), String.valueOf(restStatus.value()));
+        HttpStatus status = restStatus == RestStatus.AUTH_NO ? HttpStatus.FORBIDDEN : HttpStatus.UNAUTHORIZED;
+        //同一块内存重复写出，每次内容完整
+        for (int i = 0; i < 2; i++) {
+            MockServerHttpResponse response = new MockServerHttpResponse();
+            support.write(response, restStatus).block(Duration.ofSeconds(5));
+            assertEquals(status, response.getStatusCode());
+            assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+            //中文消息按 UTF-8 字节数计算长度
+            assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, response.getHeaders().getContentLength());
+            assertEquals(expected, response.getBodyAsString().block(Duration.ofSeconds(5)));
+        }
+        assertEquals(expected, support.body(restStatus));
+    }
+}
@@ -0,0 +1,77 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角色校验基准测试：会话中保存的位图（decode）、按角色名解析（resolve）与原来按字符串拆分后逐个查找的实现对比
+ * 运行方式见 com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleRegistrySupportBenchmark {
+    private static final String USER_ROLES = "USER,VIP,OPS,AUDITOR,ADMIN";
+    private static final String[] REQUIRED = {"SUPER_ADMIN", "FINANCE", "ADMIN"};
+    private RoleRegistrySupport registry;
+    private long[] encoded;
+    private long[] required;
+
+    @Setup
+    public void setup() {
+        registry = new RoleRegistrySupport(new AuthProperties());
+        for (int i = 0; i < 32; i++) registry.intern("ROLE_" + i);
+        required = registry.compile(REQUIRED);
+        registry.compile("USER", "VIP", "OPS", "AUDITOR");
+        encoded = registry.encode(USER_ROLES);
+        if (!decoded() || !resolved() || !split()) throw new IllegalStateException("三种实现的校验结果不一致");
+    }
+
+    /**
+     * 保存会话时编译的位图，指纹一致
+     */
+    @Benchmark
+    public boolean decoded() {
+        return RoleRegistrySupport.intersects(registry.decode(encoded, USER_ROLES), required);
+    }
+
+    /**
+     * 没有编译结果或指纹不一致时按角色名解析
+     */
+    @Benchmark
+    public boolean resolved() {
+        return RoleRegistrySupport.intersects(registry.resolve(USER_ROLES), required);
+    }
+
+    /**
+     * 原实现：拆分角色字符串后逐个查找需要的角色
+     */
+    @Benchmark
+    public boolean split() {
+        List<String> roles = Arrays.asList(USER_ROLES.split(","));
+        return Arrays.stream(REQUIRED).anyMatch(roles::contains);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RoleRegistrySupportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoleRegistrySupportTest {
+
+    private static RoleRegistrySupport registry(String... roles) {
+        RoleRegistrySupport registry = new RoleRegistrySupport(new AuthProperties());
+        for (String role : roles) registry.intern(role);
+        return registry;
+    }
+
+    @Test
+    void internIsIdempotent() {
+        RoleRegistrySupport registry = registry("ADMIN", "USER");
+        assertEquals(0, registry.intern("ADMIN"));
+        assertEquals(1, registry.intern("USER"));
+        assertEquals(2, registry.intern("OPS"));
+        assertEquals(3, registry.size());
+    }
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        RoleRegistrySupport registry = registry("ADMIN", "USER", "OPS");
+        long[] encoded = registry.encode("USER,ADMIN");
+        long[] bits = registry.decode(encoded, "USER,ADMIN");
+        assertArrayEquals(registry.resolve("USER,ADMIN"), bits);
+        assertTrue(RoleRegistrySupport.intersects(bits, registry.compile("ADMIN")));
+        assertTrue(RoleRegistrySupport.intersects(bits, registry.compile("OPS", "USER")));
+        assertFalse(RoleRegistrySupport.intersects(bits, registry.compile("OPS")));
+        //decode 返回副本，修改不影响保存的编码
+        bits[0] = 0;
+        assertArrayEquals(registry.resolve("USER,ADMIN"), registry.decode(encoded, "USER,ADMIN"));
+    }
+
+    @Test
+    void emptyRolesEncodeToFingerprintOnly() {
+        RoleRegistrySupport registry = registry("ADMIN");
+        long[] encoded = registry.encode("");
+        assertEquals(1, encoded.length);
+        assertEquals(0, registry.decode(encoded, "").length);
+        assertFalse(RoleRegistrySupport.intersects(registry.decode(encoded, ""), registry.compile("ADMIN")));
+    }
+
+    @Test
+    void decodeUsesStoredBitsWhenFingerprintMatches() {
+        RoleRegistrySupport registry = registry("ADMIN", "USER");
+        long[] encoded = registry.encode("ADMIN");
+        //指纹一致时使用编码中的位图，不再解析角色名
+        assertArrayEquals(registry.resolve("ADMIN"), registry.decode(encoded, "USER"));
+    }
+
+    @Test
+    void decodeFallsBackToResolveWhenFingerprintDiffers() {
+        RoleRegistrySupport registry = registry("ADMIN");
+        long[] encoded = registry.encode("ADMIN,LATE");
+        //保存会话之后才注册的角色，指纹变化后按角色名重新编译
+        long[] late = registry.compile("LATE");
+        long[] bits = registry.decode(encoded, "ADMIN,LATE");
+        assertArrayEquals(registry.resolve("ADMIN,LATE"), bits);
+        assertTrue(RoleRegistrySupport.intersects(bits, late));
+        assertFalse(RoleRegistrySupport.intersects(registry.decode(null, "ADMIN"), late));
+        assertArrayEquals(registry.resolve("ADMIN"), registry.decode(new long[0], "ADMIN"));
+    }
+
+    @Test
+    void otherNodeEncodingIsNotTrusted() {
+        //编号顺序不同的节点，指纹不同，按角色名重新编译
+        RoleRegistrySupport node1 = registry("ADMIN", "USER");
+        RoleRegistrySupport node2 = registry("USER", "ADMIN");
+        long[] encoded = node1.encode("ADMIN");
+        assertNotEquals(encoded[0], node2.encode("ADMIN")[0]);
+        long[] bits = node2.decode(encoded, "ADMIN");
+        assertTrue(RoleRegistrySupport.intersects(bits, node2.compile("ADMIN")));
+        assertFalse(RoleRegistrySupport.intersects(bits, node2.compile("USER")));
+    }
+
+    @Test
+    void fingerprintSeparatesRoleNames() {
+        assertNotEquals(registry("AB", "C").encode("")[0], registry("A", "BC").encode("")[0]);
+    }
+
+    @Test
+    void unknownRolesAreIgnored() {
+        RoleRegistrySupport registry = registry("ADMIN", "USER");
+        assertArrayEquals(registry.resolve("ADMIN"), registry.resolve("GHOST,ADMIN,,"));
+        assertEquals(0, registry.resolve("GHOST").length);
+        assertEquals(0, registry.resolve(null).length);
+        //解析用户角色不会注册新角色，只有 compile、intern 会注册
+        assertEquals(2, registry.size());
+        registry.compile("GHOST");
+        assertEquals(3, registry.size());
+    }
+
+    @Test
+    void bitmapGrowsBeyondOneWord() {
+        RoleRegistrySupport registry = new RoleRegistrySupport(new AuthProperties());
+        for (int i = 0; i < 130; i++) registry.intern("ROLE_" + i);
+        long[] granted = registry.resolve("ROLE_1,ROLE_129");
+        assertEquals(3, granted.length);
+        assertTrue(RoleRegistrySupport.intersects(granted, registry.compile("ROLE_129")));
+        assertFalse(RoleRegistrySupport.intersects(granted, registry.compile("ROLE_64")));
+        assertFalse(RoleRegistrySupport.intersects(registry.resolve("ROLE_1"), registry.compile("ROLE_129")));
+    }
+}
@@ -0,0 +1,177 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.model.AuthRule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.RequestPath;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteRuleReloadSupportTest {
+    private static final AuthRule PUBLIC = new AuthRule(AuthRule.Type.PUBLIC, false, null, null, null,
+            "[GET] /api/admin/users", "UserController#list");
+
+    @TempDir
+    Path dir;
+
+    private static RouteRuleReloadSupport support(AuthProperties authProperties) {
+        RouteRuleReloadSupport support = new RouteRuleReloadSupport(authProperties, new RoleRegistrySupport(authProperties));
+        assertTrue(support.reload());
+        return support;
+    }
+
+    private static RouteRuleReloadSupport support(Path file) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getWhiteList().setFile(file.toString());
+        return support(authProperties);
+    }
+
+    private static boolean isWhiteList(RouteRuleReloadSupport support, String path) {
+        return support.current().isWhiteList(HttpMethod.GET, RequestPath.parse(path, null));
+    }
+
+    private static Set<String> roles(RouteRuleReloadSupport support, HttpMethod method, String path) {
+        return support.current().apply(PUBLIC, method, RequestPath.parse(path, null)).getRoles();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void reloadRecompilesChangedFile() throws IOException {
+        Path file = dir.resolve("rules.txt");
+        write(file, "# 注释\n/public/**\nGET /api/{id}/info\n");
+        RouteRuleReloadSupport support = support(file);
+        assertTrue(isWhiteList(support, "/public/a"));
+        assertTrue(isWhiteList(support, "/api/1/info"));
+        assertFalse(isWhiteList(support, "/open/a"));
+        assertFalse(support.changed());
+        write(file, "/open/**\n/api/admin/** = ADMIN\n");
+        assertTrue(support.changed());
+        assertTrue(support.reload());
+        assertFalse(support.changed());
+        assertFalse(isWhiteList(support, "/public/a"));
+        assertTrue(isWhiteList(support, "/open/a"));
+        assertEquals(Set.of("ADMIN"), roles(support, HttpMethod.GET, "/api/admin/users"));
+    }
+
+    @Test
+    void watcherReloadsChangedFile() throws Exception {
+        Path file = dir.resolve("rules.txt");
+        write(file, "/public/**\n");
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getWhiteList().setFile(file.toString());
+        RouteRuleReloadSupport support = new RouteRuleReloadSupport(authProperties, new RoleRegistrySupport(authProperties));
+        ReflectionTestUtils.invokeMethod(support, "init");
+        try {
+            assertTrue(isWhiteList(support, "/public/a"));
+            write(file, "/open/**\n");
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (!isWhiteList(support, "/open/a") && System.currentTimeMillis() < deadline) Thread.sleep(50L);
+            assertTrue(isWhiteList(support, "/open/a"));
+            assertFalse(isWhiteList(support, "/public/a"));
+        } finally {
+            ReflectionTestUtils.invokeMethod(support, "destroy");
+        }
+    }
+
+    @Test
+    void invalidFileKeepsPreviousRules() throws IOException {
+        Path file = dir.resolve("rules.txt");
+        write(file, "/public/**\n");
+        RouteRuleReloadSupport support = support(file);
+        RouteRuleReloadSupport.RouteRules previous = support.current();
+        //** 之后不能再有路由段，编译失败
+        write(file, "/open/**\n/api/**/users = ADMIN\n");
+        assertFalse(support.reload());
+        assertSame(previous, support.current());
+        assertTrue(isWhiteList(support, "/public/a"));
+        assertFalse(isWhiteList(support, "/open/a"));
+        //加载失败时不记录新版本，之后的文件事件会再次尝试加载
+        assertTrue(support.changed());
+    }
+
+    @Test
+    void missingFileUsesConfiguredRules() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getWhiteList().setFile(dir.resolve("missing.txt").toString());
+        authProperties.getWhiteList().setPaths(List.of("/public/**"));
+        RouteRuleReloadSupport support = support(authProperties);
+        assertTrue(isWhiteList(support, "/public/a"));
+        assertFalse(support.changed());
+    }
+
+    @Test
+    void configMapSymlinkSwapIsDetected() throws IOException {
+        //Kubernetes ConfigMap 的目录结构：rules.txt -> ..data/rules.txt，..data -> ..版本目录
+        Path first = Files.createDirectory(dir.resolve("..2024_01"));
+        Path second = Files.createDirectory(dir.resolve("..2024_02"));
+        //两个版本的文件大小相同，只有实际路径不同
+        write(first.resolve("rules.txt"), "/aaa/**\n");
+        write(second.resolve("rules.txt"), "/bbb/**\n");
+        Files.setLastModifiedTime(second.resolve("rules.txt"), Files.getLastModifiedTime(first.resolve("rules.txt")));
+        Path data = Files.createSymbolicLink(dir.resolve("..data"), first.getFileName());
+        Path file = Files.createSymbolicLink(dir.resolve("rules.txt"), data.getFileName().resolve("rules.txt"));
+        RouteRuleReloadSupport support = support(file);
+        assertTrue(isWhiteList(support, "/aaa/x"));
+        assertFalse(support.changed());
+        //原子替换 ..data 链接
+        Path swap = Files.createSymbolicLink(dir.resolve("..data_tmp"), second.getFileName());
+        Files.move(swap, data, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(support.changed());
+        assertTrue(support.reload());
+        assertFalse(isWhiteList(support, "/aaa/x"));
+        assertTrue(isWhiteList(support, "/bbb/x"));
+        assertFalse(support.changed());
+    }
+
+    @Test
+    void roleOverridesAreOrderedBySpecificity() {
+        AuthProperties authProperties = new AuthProperties();
+        //按从宽到窄的顺序配置，匹配时仍然是更具体的规则优先
+        Map<String, String> overrides = new LinkedHashMap<>();
+        overrides.put("/**", "USER");
+        overrides.put("/api/**", "STAFF");
+        overrides.put("/api/admin/**", "ADMIN, OPS");
+        overrides.put("GET /api/admin/**", "AUDITOR");
+        overrides.put("/api/admin/{id}", "OWNER");
+        authProperties.getWhiteList().setRoleOverrides(overrides);
+        RouteRuleReloadSupport support = support(authProperties);
+        assertEquals(Set.of("AUDITOR"), roles(support, HttpMethod.GET, "/api/admin/users/1"));
+        assertEquals(Set.of("ADMIN", "OPS"), roles(support, HttpMethod.POST, "/api/admin/users/1"));
+        assertEquals(Set.of("OWNER"), roles(support, HttpMethod.POST, "/api/admin/users"));
+        assertEquals(Set.of("STAFF"), roles(support, HttpMethod.GET, "/api/orders"));
+        assertEquals(Set.of("USER"), roles(support, HttpMethod.GET, "/orders"));
+        AuthRule rule = support.current().apply(PUBLIC, HttpMethod.GET, RequestPath.parse("/orders", null));
+        assertEquals(AuthRule.Type.ROLES_REQUIRED, rule.getType());
+        assertEquals(PUBLIC.getRoute(), rule.getRoute());
+        //同一个处理方法只生成一次覆盖后的规则
+        assertSame(rule, support.current().apply(PUBLIC, HttpMethod.GET, RequestPath.parse("/orders", null)));
+    }
+
+    @Test
+    void whiteListWinsOverRoleOverride() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getWhiteList().setPaths(List.of("/public/**"));
+        authProperties.getWhiteList().getRoleOverrides().put("/public/admin/**", "ADMIN");
+        RouteRuleReloadSupport support = support(authProperties);
+        assertTrue(isWhiteList(support, "/public/admin/x"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.TokenClaims;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenClaimsCacheSupportTest {
+    private static final long OVERDUE_SECONDS = 3600L;
+
+    private static AuthProperties authProperties() {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setOverdueTime(OVERDUE_SECONDS);
+        return authProperties;
+    }
+
+    private static TokenClaims claims(String token, long time) {
+        return new TokenClaims(TokenCodecSupport.VERSION_2, token, "u1", "USER", time, 0L, "u1,USER," + time);
+    }
+
+    private static TokenClaims stateless(String token, long expireAt) {
+        return new TokenClaims(TokenCodecSupport.VERSION_3, token, "u1", "USER", System.currentTimeMillis(), 0L,
+                "u1,USER,N" + token, "ADMIN", expireAt);
+    }
+
+    @Test
+    void hitAfterPut() {
+        TokenClaimsCacheSupport support = new TokenClaimsCacheSupport(authProperties());
+        TokenClaims claims = claims("t1", System.currentTimeMillis());
+        assertNull(support.get("t1"));
+        support.put(claims, 1000L);
+        assertSame(claims, support.get("t1"));
+        assertSame(claims, support.get("t1"));
+        assertEquals(2, support.hitCount());
+        assertEquals(1, support.missCount());
+        assertEquals(2D / 3, support.hitRate(), 1e-9);
+        assertEquals(2000L, support.savedDecodeNanos());
+        assertEquals(1, support.size());
+    }
+
+    @Test
+    void expiredClaimsAreNotReturned() {
+        TokenClaimsCacheSupport support = new TokenClaimsCacheSupport(authProperties());
+        long now = System.currentTimeMillis();
+        //生成时间已超过 overdueTime，缓存本身尚未过期
+        support.put(claims("old", now - OVERDUE_SECONDS * 1000L - 1), 0L);
+        support.put(claims("new", now - OVERDUE_SECONDS * 1000L + 60_000L), 0L);
+        assertEquals(2, support.size());
+        assertNull(support.get("old"));
+        assertEquals(1, support.size());
+        assertEquals("new", support.get("new").getToken());
+        //无状态令牌按令牌自身的过期时间
+        support.put(stateless("s-old", now - 1), 0L);
+        support.put(stateless("s-new", now + 60_000L), 0L);
+        assertNull(support.get("s-old"));
+        assertEquals("s-new", support.get("s-new").getToken());
+        assertEquals(2, support.missCount());
+    }
+
+    @Test
+    void invalidateRemovesClaims() {
+        TokenClaimsCacheSupport support = new TokenClaimsCacheSupport(authProperties());
+        support.invalidate("t1");
+        support.put(claims("t1", System.currentTimeMillis()), 0L);
+        support.invalidate(null);
+        support.invalidate("t1");
+        assertNull(support.get("t1"));
+        assertEquals(0, support.size());
+    }
+
+    @Test
+    void disabledCacheNeverStores() {
+        AuthProperties authProperties = authProperties();
+        authProperties.getClaimsCache().setEnable(false);
+        TokenClaimsCacheSupport support = new TokenClaimsCacheSupport(authProperties);
+        support.put(claims("t1", System.currentTimeMillis()), 1000L);
+        assertNull(support.get("t1"));
+        assertEquals(0, support.size());
+        assertEquals(0, support.missCount());
+        assertEquals(0L, support.savedDecodeNanos());
+    }
+
+    @Test
+    void maximumSizeBoundsEntries() {
+        AuthProperties authProperties = authProperties();
+        authProperties.getClaimsCache().setMaximumSize(16L);
+        TokenClaimsCacheSupport support = new TokenClaimsCacheSupport(authProperties);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) support.put(claims("t" + i, now), 0L);
+        assertTrue(support.size() <= 16, String.valueOf(support.size()));
+    }
+}
@@ -0,0 +1,215 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.RestStatus;
+import com.boot.auth.starter.common.TokenClaims;
+import com.boot.auth.starter.exception.AuthException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenCodecSupportTest {
+    private static final long TIME = 1_700_000_000_123L;
+
+    private static AuthProperties authProperties(int version, boolean exclude) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setDomain("test.com");
+        authProperties.setTokenVersion(version);
+        authProperties.setEnableExclude(exclude);
+        return authProperties;
+    }
+
+    private static void assertInvalid(TokenCodecSupport codec, String token, RestStatus status) {
+        AuthException e = assertThrows(AuthException.class, () -> codec.decode(token), token);
+        assertEquals(String.valueOf(status.value()), e.getCode());
+    }
+
+    @Test
+    void v1RoundTrip() {
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties(TokenCodecSupport.VERSION_1, false));
+        String token = codec.encode("u1", "USER", TIME, 0L);
+        assertTrue(token.matches("[0-9a-f]+"), token);
+        TokenClaims claims = codec.decode(token);
+        assertEquals(TokenCodecSupport.VERSION_1, claims.getVersion());
+        assertEquals(token, claims.getToken());
+        assertEquals("u1", claims.getUserNo());
+        assertEquals("USER", claims.getGroup());
+        assertEquals(TIME, claims.getTime());
+        assertEquals("u1,USER," + TIME, claims.getKey());
+    }
+
+    @Test
+    void v1RoundTripWithExclude() {
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties(TokenCodecSupport.VERSION_1, true));
+        TokenClaims claims = codec.decode(codec.encode("u1", "USER", TIME, 42L));
+        assertEquals(42L, claims.getExcludeSerial());
+        assertEquals("u1,USER," + TIME + ",E42", claims.getKey());
+    }
+
+    @Test
+    void v2RoundTrip() {
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties(TokenCodecSupport.VERSION_2, true));
+        String token = codec.encode("用户-1", "ADMIN", TIME, 7L);
+        //版本号 0x02 编码后的首字符为 A，base64url 无填充
+        assertEquals('A', token.charAt(0));
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        TokenClaims claims = codec.decode(token);
+        assertEquals(TokenCodecSupport.VERSION_2, claims.getVersion());
+        assertEquals("用户-1", claims.getUserNo());
+        assertEquals("ADMIN", claims.getGroup());
+        assertEquals(TIME, claims.getTime());
+        assertEquals(7L, claims.getExcludeSerial());
+        assertEquals("用户-1,ADMIN," + TIME + ",E7", claims.getKey());
+    }
+
+    @Test
+    void v2SharesCacheKeyWithV1() {
+        AuthProperties authProperties = authProperties(TokenCodecSupport.VERSION_1, true);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        String v1 = codec.encode("10000001", "USER", TIME, 3L);
+        authProperties.setTokenVersion(TokenCodecSupport.VERSION_2);
+        String v2 = codec.encode("10000001", "USER", TIME, 3L);
+        assertEquals(codec.decode(v1).getKey(), codec.decode(v2).getKey());
+    }
+
+    @Test
+    void switchingTokenVersionKeepsIssuedTokensValid() {
+        AuthProperties authProperties = authProperties(TokenCodecSupport.VERSION_1, false);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        String v1 = codec.encode("u1", "USER", TIME, 0L);
+        authProperties.setTokenVersion(TokenCodecSupport.VERSION_2);
+        String v2 = codec.encode("u1", "USER", TIME, 0L);
+        assertEquals(TokenCodecSupport.VERSION_1, codec.decode(v1).getVersion());
+        assertEquals(TokenCodecSupport.VERSION_2, codec.decode(v2).getVersion());
+        //切回 v1 后 v2 令牌仍然可以解析
+        authProperties.setTokenVersion(TokenCodecSupport.VERSION_1);
+        assertEquals(TokenCodecSupport.VERSION_2, codec.decode(v2).getVersion());
+        assertEquals("u1", codec.decode(v2).getUserNo());
+    }
+
+    @Test
+    void formatIsDetectedFromFirstCharacter() {
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties(TokenCodecSupport.VERSION_1, false));
+        assertNull(codec.decode(null));
+        assertNull(codec.decode(""));
+        //小写16进制字符按 v1 解密，失败时令牌无效
+        assertInvalid(codec, "0123456789abcdef", RestStatus.USER_TOKEN_INVALID);
+        assertInvalid(codec, "abcx", RestStatus.USER_TOKEN_INVALID);
+        //其他字符按 base64url 解析，版本号不是 2 或 3 时令牌无效
+        assertInvalid(codec, "ABCDEF", RestStatus.USER_TOKEN_INVALID);
+        assertInvalid(codec, Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[]{1, 2, 3, 4}),
+                RestStatus.USER_TOKEN_INVALID);
+    }
+
+    @Test
+    void malformedV2IsRejected() {
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties(TokenCodecSupport.VERSION_2, false));
+        String token = codec.encode("u1", "USER", TIME, 0L);
+        assertInvalid(codec, "A$$$", RestStatus.USER_TOKEN_INVALID);
+        assertInvalid(codec, "A", RestStatus.USER_TOKEN_INVALID);
+        assertInvalid(codec, "Ag", RestStatus.USER_TOKEN_INVALID);
+        //截断后密文不是完整的分组，或 base64url 长度不合法
+        assertInvalid(codec, token.substring(0, token.length() - 4), RestStatus.USER_TOKEN_INVALID);
+        assertInvalid(codec, token.substring(0, token.length() - 1), RestStatus.USER_TOKEN_INVALID);
+        //其他域名的秘钥无法解密
+        TokenCodecSupport other = new TokenCodecSupport(authProperties(TokenCodecSupport.VERSION_2, false));
+        other.authProperties.setDomain("other.com");
+        assertThrows(AuthException.class, () -> other.decode(token));
+    }
+
+    @Test
+    void excludeRequiresSerial() {
+        AuthProperties authProperties = authProperties(TokenCodecSupport.VERSION_2, false);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        String v2 = codec.encode("u1", "USER", TIME, 0L);
+        authProperties.setTokenVersion(TokenCodecSupport.VERSION_1);
+        String v1 = codec.encode("u1", "USER", TIME, 0L);
+        //开启排他后，未开启时签发的令牌没有排他序号
+        authProperties.setEnableExclude(true);
+        assertInvalid(codec, v2, RestStatus.SYSTEM_CACHE_KEY_ERROR);
+        assertInvalid(codec, v1, RestStatus.SYSTEM_CACHE_KEY_ERROR);
+    }
+
+    private static TokenCodecSupport stateless() {
+        AuthProperties authProperties = authProperties(TokenCodecSupport.VERSION_1, false);
+        authProperties.getStateless().setEnable(true);
+        authProperties.getStateless().setSecret("stateless-secret");
+        return new TokenCodecSupport(authProperties);
+    }
+
+    @Test
+    void v3RoundTrip() {
+        TokenCodecSupport codec = stateless();
+        long expireAt = TIME + 3_600_000L;
+        String token = codec.encodeStateless("u1", "USER", "ADMIN,OPS", TIME, expireAt);
+        TokenClaims claims = codec.decode(token);
+        assertEquals(TokenCodecSupport.VERSION_3, claims.getVersion());
+        assertTrue(claims.isStateless());
+        assertEquals("u1", claims.getUserNo());
+        assertEquals("USER", claims.getGroup());
+        assertEquals("ADMIN,OPS", claims.getRoles());
+        assertEquals(TIME, claims.getTime());
+        assertEquals(expireAt, claims.getExpireAt());
+        assertTrue(claims.getKey().startsWith("u1,USER," + TIME + ",N"), claims.getKey());
+        //同一毫秒生成的令牌 nonce 不同，key 也不同
+        TokenClaims other = codec.decode(codec.encodeStateless("u1", "USER", "ADMIN,OPS", TIME, expireAt));
+        assertNotEquals(claims.getKey(), other.getKey());
+    }
+
+    @Test
+    void v3TamperingIsRejected() {
+        TokenCodecSupport codec = stateless();
+        byte[] raw = Base64.getUrlDecoder().decode(codec.encodeStateless("u1", "USER", "ADMIN", TIME, TIME + 1000L));
+        for (int i = 1; i < raw.length; i++) {
+            byte[] tampered = raw.clone();
+            tampered[i] ^= 1;
+            assertInvalid(codec, Base64.getUrlEncoder().withoutPadding().encodeToString(tampered), RestStatus.USER_TOKEN_INVALID);
+        }
+        //截断认证标签
+        byte[] truncated = Arrays.copyOf(raw, raw.length - 1);
+        assertInvalid(codec, Base64.getUrlEncoder().withoutPadding().encodeToString(truncated), RestStatus.USER_TOKEN_INVALID);
+    }
+
+    @Test
+    void v3WithoutVersionAadIsRejected() throws Exception {
+        TokenCodecSupport codec = stateless();
+        byte[] payload = Base64.getUrlDecoder().decode(codec.encodeStateless("u1", "USER", "ADMIN", TIME, TIME + 1000L));
+        //用相同秘钥和 nonce 但不带版本号 AAD 加密同样的明文，认证必须失败
+        SecretKeySpec key = new SecretKeySpec(MessageDigest.getInstance("SHA-256")
+                .digest("stateless-secret".getBytes(StandardCharsets.UTF_8)), "AES");
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, payload, 1, 12));
+        cipher.updateAAD(payload, 0, 1);
+        byte[] plain = cipher.doFinal(payload, 13, payload.length - 13);
+        cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, new byte[12]));
+        byte[] encrypted = cipher.doFinal(plain);
+        byte[] raw = new byte[13 + encrypted.length];
+        raw[0] = TokenCodecSupport.VERSION_3;
+        System.arraycopy(encrypted, 0, raw, 13, encrypted.length);
+        assertInvalid(codec, Base64.getUrlEncoder().withoutPadding().encodeToString(raw), RestStatus.USER_TOKEN_INVALID);
+    }
+
+    @Test
+    void v3RejectedWithOtherSecretOrWhenStatelessDisabled() {
+        TokenCodecSupport codec = stateless();
+        String token = codec.encodeStateless("u1", "USER", "ADMIN", TIME, TIME + 1000L);
+        codec.authProperties.getStateless().setEnable(false);
+        assertInvalid(codec, token, RestStatus.USER_TOKEN_INVALID);
+        TokenCodecSupport other = stateless();
+        other.authProperties.getStateless().setSecret("other-secret");
+        assertInvalid(other, token, RestStatus.USER_TOKEN_INVALID);
+    }
+}
@@ -0,0 +1,90 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.common.TokenClaims;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenDenyListSupportTest {
+
+    private static AuthProperties authProperties(long maximumSize) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.setDomain("test.com");
+        authProperties.getStateless().setEnable(true);
+        authProperties.getStateless().setDenyListMaximumSize(maximumSize);
+        return authProperties;
+    }
+
+    private static TokenClaims claims(TokenCodecSupport codec, long time, long expireAt) {
+        return codec.decode(codec.encodeStateless("u1", "USER", "ADMIN", time, expireAt));
+    }
+
+    @Test
+    void schedulerStartsOnFirstDeny() {
+        AuthProperties authProperties = authProperties(0L);
+        TokenDenyListSupport support = new TokenDenyListSupport(authProperties);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        long now = System.currentTimeMillis();
+        assertFalse(support.isDenied(claims(codec, now, now + 60_000L)));
+        assertFalse(support.isStarted());
+        //已过期的令牌不需要记录
+        support.deny(claims(codec, now - 2000L, now - 1000L));
+        assertFalse(support.isStarted());
+        assertEquals(0, support.size());
+        support.deny(claims(codec, now, now + 60_000L));
+        assertTrue(support.isStarted());
+    }
+
+    @Test
+    void deniedUntilTokenExpires() throws InterruptedException {
+        AuthProperties authProperties = authProperties(0L);
+        TokenDenyListSupport support = new TokenDenyListSupport(authProperties);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        long now = System.currentTimeMillis();
+        TokenClaims denied = claims(codec, now, now + 200L);
+        TokenClaims other = claims(codec, now, now + 60_000L);
+        support.deny(denied);
+        assertTrue(support.isDenied(denied));
+        assertTrue(support.isDenied(codec.decode(denied.getToken())));
+        assertFalse(support.isDenied(other));
+        assertEquals(1, support.size());
+        Thread.sleep(300L);
+        assertFalse(support.isDenied(denied));
+    }
+
+    @Test
+    void failsClosedWhenFull() {
+        AuthProperties authProperties = authProperties(2L);
+        TokenDenyListSupport support = new TokenDenyListSupport(authProperties);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        long now = System.currentTimeMillis();
+        support.deny(claims(codec, now - 3000L, now + 60_000L));
+        support.deny(claims(codec, now - 2000L, now + 60_000L));
+        assertEquals(2, support.size());
+        TokenClaims overflow = claims(codec, now - 1000L, now + 30_000L);
+        TokenClaims older = claims(codec, now - 5000L, now + 60_000L);
+        TokenClaims newer = claims(codec, now, now + 60_000L);
+        support.deny(overflow);
+        assertEquals(2, support.size());
+        //生成时间不晚于未能记录的令牌全部拒绝，之后生成的不受影响
+        assertTrue(support.isDenied(overflow));
+        assertTrue(support.isDenied(older));
+        assertFalse(support.isDenied(newer));
+    }
+
+    @Test
+    void fullListStillAcceptsKnownKeys() {
+        AuthProperties authProperties = authProperties(1L);
+        TokenDenyListSupport support = new TokenDenyListSupport(authProperties);
+        TokenCodecSupport codec = new TokenCodecSupport(authProperties);
+        long now = System.currentTimeMillis();
+        TokenClaims denied = claims(codec, now - 1000L, now + 60_000L);
+        support.deny(denied);
+        support.deny(denied);
+        assertEquals(1, support.size());
+        assertFalse(support.isDenied(claims(codec, now - 2000L, now + 60_000L)));
+    }
+}
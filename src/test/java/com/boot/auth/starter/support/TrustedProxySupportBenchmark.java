@@ -0,0 +1,118 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.utils.IPUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可信代理基准测试，可信地址段数量不同时对比：
+ * trie：TrustedProxySupport 的前缀树；
+ * linearScan：InetAddress 解析后逐个地址段按掩码比较（InetAddress 遇到非地址格式的内容会查询 DNS，只适合在基准测试中对比）；
+ * 以及开启可信代理后 getClientIP 与原来 IPUtils.getClientIP 的开销
+ * 运行方式见 com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrustedProxySupportBenchmark {
+    private static final String[] ADDRESSES = {"10.1.2.3", "172.20.0.9", "8.8.8.8", "192.168.100.7",
+            "fd12:3456::1", "2001:db8::1", "::ffff:10.0.0.1", "203.0.113.50"};
+    @Param({"4", "64", "1024"})
+    public int ranges;
+    private TrustedProxySupport support;
+    private List<byte[][]> cidrs;
+    private ServerHttpRequest request;
+
+    @Setup
+    public void setup() throws UnknownHostException {
+        List<String> trusted = new ArrayList<>(List.of("10.0.0.0/8", "172.16.0.0/12", "fd00::/8", "::1"));
+        for (int i = trusted.size(); i < ranges; i++) trusted.add("100." + (i >> 8) + "." + (i & 255) + ".0/24");
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getRequestHeader().setTrustedProxies(trusted);
+        support = new TrustedProxySupport(authProperties);
+        cidrs = new ArrayList<>();
+        for (String cidr : trusted) {
+            int slash = cidr.indexOf('/');
+            byte[] address = InetAddress.getByName(slash < 0 ? cidr : cidr.substring(0, slash)).getAddress();
+            int prefix = slash < 0 ? address.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+            byte[] mask = new byte[address.length];
+            for (int bit = 0; bit < prefix; bit++) mask[bit >> 3] |= (byte) (0x80 >>> (bit & 7));
+            cidrs.add(new byte[][]{address, mask});
+        }
+        for (String address : ADDRESSES) {
+            if (support.isTrusted(address) != linearScan(address)) {
+                throw new IllegalStateException("两种实现的结果不一致 ip:" + address);
+            }
+        }
+        request = MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 8080))
+                .header("X-Forwarded-For", "203.0.113.50, 8.8.8.8, 172.16.0.2, 10.0.0.2")
+                .build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void trie(Blackhole blackhole) {
+        for (String address : ADDRESSES) blackhole.consume(support.isTrusted(address));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void linearScan(Blackhole blackhole) throws UnknownHostException {
+        for (String address : ADDRESSES) blackhole.consume(linearScan(address));
+    }
+
+    @Benchmark
+    public String getClientIP() {
+        return support.getClientIP(request, IPUtils.IP_HEADERS);
+    }
+
+    @Benchmark
+    public String ipUtils() {
+        return IPUtils.getClientIP(request, IPUtils.IP_HEADERS);
+    }
+
+    private boolean linearScan(String ip) throws UnknownHostException {
+        byte[] address = InetAddress.getByName(ip).getAddress();
+        for (byte[][] cidr : cidrs) {
+            if (cidr[0].length != address.length) continue;
+            boolean matched = true;
+            for (int i = 0; i < address.length && matched; i++) {
+                matched = (address[i] & cidr[1][i]) == (cidr[0][i] & cidr[1][i]);
+            }
+            if (matched) return true;
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TrustedProxySupportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,146 @@
+package com.boot.auth.starter.support;
+
+import com.boot.auth.starter.common.AuthProperties;
+import com.boot.auth.starter.utils.IPUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrustedProxySupportTest {
+
+    private static TrustedProxySupport support(String... proxies) {
+        AuthProperties authProperties = new AuthProperties();
+        authProperties.getRequestHeader().setTrustedProxies(List.of(proxies));
+        return new TrustedProxySupport(authProperties);
+    }
+
+    private static ServerHttpRequest request(String remote, String... forwardedFor) {
+        return MockServerHttpRequest.get("/")
+                .remoteAddress(new InetSocketAddress(remote, 8080))
+                .header("X-Forwarded-For", forwardedFor)
+                .build();
+    }
+
+    @Test
+    void ipv4Cidr() {
+        TrustedProxySupport support = support("10.0.0.0/8", "192.168.1.1", "172.16.0.0/12");
+        assertTrue(support.isTrusted("10.0.0.1"));
+        assertTrue(support.isTrusted("10.255.255.255"));
+        assertFalse(support.isTrusted("11.0.0.1"));
+        assertTrue(support.isTrusted("192.168.1.1"));
+        assertFalse(support.isTrusted("192.168.1.2"));
+        assertTrue(support.isTrusted("172.31.255.255"));
+        assertFalse(support.isTrusted("172.32.0.0"));
+    }
+
+    @Test
+    void zeroPrefixTrustsEverything() {
+        TrustedProxySupport support = support("0.0.0.0/0");
+        assertTrue(support.isTrusted("1.2.3.4"));
+        assertTrue(support.isTrusted("255.255.255.255"));
+        assertFalse(support.isTrusted("::1"));
+    }
+
+    @Test
+    void ipv6Cidr() {
+        TrustedProxySupport support = support("fd00::/8", "::1", "2001:db8::/32");
+        assertTrue(support.isTrusted("fd12:3456::1"));
+        assertFalse(support.isTrusted("fe80::1"));
+        assertTrue(support.isTrusted("::1"));
+        assertTrue(support.isTrusted("0:0:0:0:0:0:0:1"));
+        assertFalse(support.isTrusted("::2"));
+        assertTrue(support.isTrusted("2001:0db8:ffff::1"));
+        assertFalse(support.isTrusted("2001:db9::1"));
+        assertTrue(support.isTrusted("[::1]:8080"));
+        assertTrue(support.isTrusted("fd00::1%eth0"));
+    }
+
+    @Test
+    void ipv4MappedAddressMatchesIpv4Rules() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertTrue(support.isTrusted("::ffff:10.1.2.3"));
+        assertFalse(support.isTrusted("::ffff:11.1.2.3"));
+    }
+
+    @Test
+    void ipv4WithPort() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertTrue(support.isTrusted("10.1.2.3:443"));
+    }
+
+    @Test
+    void malformedAddressIsNotTrusted() {
+        TrustedProxySupport support = support("0.0.0.0/0", "::/0");
+        assertFalse(support.isTrusted(null));
+        assertFalse(support.isTrusted(""));
+        assertFalse(support.isTrusted("256.0.0.1"));
+        assertFalse(support.isTrusted("1.2.3"));
+        assertFalse(support.isTrusted("1.2.3.4.5"));
+        assertFalse(support.isTrusted("1..2.3"));
+        assertFalse(support.isTrusted("unknown"));
+        assertFalse(support.isTrusted("1:2:3:4:5:6:7"));
+        assertFalse(support.isTrusted("1::2::3"));
+        assertFalse(support.isTrusted("12345::1"));
+        assertFalse(support.isTrusted("1:2:3:4:5:6:7:8:9"));
+    }
+
+    @Test
+    void malformedConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> support("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> support("::/129"));
+        assertThrows(IllegalArgumentException.class, () -> support("10.0.0/8"));
+        assertThrows(IllegalArgumentException.class, () -> support("10.0.0.0/"));
+    }
+
+    @Test
+    void disabledFallsBackToIpUtils() {
+        TrustedProxySupport support = support();
+        assertFalse(support.isEnabled());
+        ServerHttpRequest request = request("10.0.0.1", "1.1.1.1, 2.2.2.2");
+        assertEquals(IPUtils.getClientIP(request, IPUtils.IP_HEADERS), support.getClientIP(request, IPUtils.IP_HEADERS));
+    }
+
+    @Test
+    void untrustedConnectionIgnoresForwardedFor() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertEquals("8.8.8.8", support.getClientIP(request("8.8.8.8", "1.1.1.1"), IPUtils.IP_HEADERS));
+    }
+
+    @Test
+    void skipsTrustedProxiesFromTheRight() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertEquals("2.2.2.2", support.getClientIP(request("10.0.0.1", "1.1.1.1, 2.2.2.2, 10.0.0.2"), IPUtils.IP_HEADERS));
+    }
+
+    @Test
+    void laterHeadersAreCloserToTheServer() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertEquals("2.2.2.2", support.getClientIP(request("10.0.0.1", "1.1.1.1, 2.2.2.2", "10.0.0.3"), IPUtils.IP_HEADERS));
+    }
+
+    @Test
+    void allTrustedUsesLeftmost() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertEquals("10.0.0.9", support.getClientIP(request("10.0.0.1", "10.0.0.9 , 10.0.0.2"), IPUtils.IP_HEADERS));
+    }
+
+    @Test
+    void unparsableHopStopsAtPreviousHop() {
+        TrustedProxySupport support = support("10.0.0.0/8");
+        assertEquals("10.0.0.2", support.getClientIP(request("10.0.0.1", "1.1.1.1, garbage, 10.0.0.2"), IPUtils.IP_HEADERS));
+    }
+
+    @Test
+    void loopbackIsNormalized() {
+        TrustedProxySupport support = support("::1");
+        assertEquals("127.0.0.1", support.getClientIP(request("::1", "::1"), IPUtils.IP_HEADERS));
+    }
+}
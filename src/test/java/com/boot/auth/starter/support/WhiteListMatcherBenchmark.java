@@ -0,0 +1,153 @@
+package com.boot.auth.starter.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 白名单匹配基准测试，规则数量不同时对比：
+ * trie：编译后的 WhiteListMatcher；
+ * legacy：原来的实现，规则的每级前缀放入 HashSet，匹配时逐级拼接路由查找（不含命中缓存）；
+ * linearScan：用 AntPathMatcher 逐条匹配规则
+ * 运行方式见 com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhiteListMatcherBenchmark {
+    private static final int PATHS = 64;
+    @Param({"10", "100", "1000"})
+    public int rules;
+    private WhiteListMatcher trie;
+    private LegacyMatcher legacy;
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private List<String> patterns;
+    private String[] paths;
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>(List.of("/actuator", "/static/**", "/public/**", "/webjars/**",
+                "/v3/api-docs/**", "**.css", "**.js", "**.jpg", "**.ico", "**.png"));
+        for (int i = list.size(); i < rules; i++) {
+            list.add(switch (i % 3) {
+                case 0 -> "/svc" + i + "/open/**";
+                case 1 -> "/api/v" + i + "/*/info";
+                default -> "/health/svc" + i;
+            });
+        }
+        String[] all = list.toArray(new String[0]);
+        trie = WhiteListMatcher.EMPTY.with(all);
+        legacy = new LegacyMatcher(all);
+        patterns = new ArrayList<>();
+        for (String rule : all) {
+            patterns.add(rule.startsWith("**") ? "/**/*" + rule.substring(2) : rule);
+        }
+        //一半命中一半不命中，命中的规则分布在整个规则列表中
+        paths = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            int rule = 10 + (i * 7919) % Math.max(1, rules - 10);
+            paths[i] = switch (i % 4) {
+                case 0 -> rule % 3 == 0 ? "/svc" + rule + "/open/a/b" : "/public/docs/" + i;
+                case 1 -> rule % 3 == 1 ? "/api/v" + rule + "/" + i + "/info" : "/static/js/app";
+                case 2 -> "/orders/" + i + "/detail";
+                default -> "/api/v" + rule + "/users/" + i + "/profile";
+            };
+            if (trie.matches(paths[i]) != legacy.matches(paths[i])) {
+                throw new IllegalStateException("trie 与原实现的匹配结果不一致 path:" + paths[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public void trie(Blackhole blackhole) {
+        for (String path : paths) blackhole.consume(trie.matches(path));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public void legacy(Blackhole blackhole) {
+        for (String path : paths) blackhole.consume(legacy.matches(path));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public void linearScan(Blackhole blackhole) {
+        for (String path : paths) {
+            boolean matched = false;
+            for (String pattern : patterns) {
+                if (antPathMatcher.match(pattern, path)) {
+                    matched = true;
+                    break;
+                }
+            }
+            blackhole.consume(matched);
+        }
+    }
+
+    /**
+     * 原来的白名单实现
+     */
+    private static final class LegacyMatcher {
+        private final Set<String> root = new HashSet<>();
+
+        private LegacyMatcher(String... paths) {
+            Arrays.stream(paths).filter(StringUtils::hasText).forEach(path -> {
+                StringBuilder routeKeyBuffer = new StringBuilder();
+                Arrays.stream(path.split("/")).filter(StringUtils::hasText).forEach(node -> {
+                    routeKeyBuffer.append("/").append(node);
+                    root.add(routeKeyBuffer.toString());
+                });
+            });
+        }
+
+        private boolean matches(String path) {
+            boolean fag = false;
+            int index = path.lastIndexOf(".");
+            if (index > 0) return root.contains("/**" + path.substring(index));
+            StringBuilder route = new StringBuilder();
+            for (String node : path.split("/")) {
+                if (!StringUtils.hasText(node)) continue;
+                if (root.contains(route + "/**")) return true;
+                if (root.contains(route + "/*")) {
+                    fag = true;
+                    route.append("/*");
+                } else {
+                    fag = root.contains(route + "/" + node);
+                    if (!fag) return false;
+                    route.append("/").append(node);
+                }
+            }
+            return fag;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WhiteListMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.boot.auth.starter.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.RequestPath;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WhiteListMatcherTest {
+
+    @Test
+    void doubleStarMatchesEverythingBelow() {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY.with("/public/**");
+        assertTrue(matcher.matches("/public/a/b/c"));
+        assertTrue(matcher.matches("public/a"));
+        assertTrue(matcher.matches("//public//a"));
+        assertFalse(matcher.matches("/publicx/a"));
+        assertFalse(matcher.matches("/other/public"));
+    }
+
+    @Test
+    void anyPrefixOfARuleMatches() {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY.with("/actuator", "/api/v1/users");
+        assertTrue(matcher.matches("/actuator"));
+        assertTrue(matcher.matches("/api"));
+        assertTrue(matcher.matches("/api/v1"));
+        assertTrue(matcher.matches("/api/v1/users"));
+        assertFalse(matcher.matches("/actuator/health"));
+        assertFalse(matcher.matches("/api/v2"));
+        assertFalse(matcher.matches("/"));
+        assertFalse(matcher.matches(""));
+    }
+
+    @Test
+    void starMatchesOneSegment() {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY.with("/api/*/info");
+        assertTrue(matcher.matches("/api/1/info"));
+        assertTrue(matcher.matches("/api/abc/info"));
+        assertFalse(matcher.matches("/api/1/detail"));
+        assertFalse(matcher.matches("/api/1/2/info"));
+    }
+
+    @Test
+    void suffixRules() {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY.with("**.css", "**.png");
+        assertTrue(matcher.matches("/static/a/b.css"));
+        assertTrue(matcher.matches("/x.png"));
+        assertFalse(matcher.matches("/x.js"));
+        assertFalse(matcher.matches("/public/x.css.map"));
+        //最后一个 . 之后的内容按后缀匹配，不再匹配路由规则
+        assertFalse(WhiteListMatcher.EMPTY.with("/public/**").matches("/public/x.js"));
+    }
+
+    @Test
+    void methodRules() {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY
+                .with("GET /wl/{id}/info")
+                .with(HttpMethod.PUT, "/wl/**")
+                .with((HttpMethod) null, "/any/*.txt");
+        assertTrue(matcher.matches(HttpMethod.GET, RequestPath.parse("/wl/1/info", null)));
+        assertFalse(matcher.matches(HttpMethod.POST, RequestPath.parse("/wl/1/info", null)));
+        assertTrue(matcher.matches(HttpMethod.PUT, RequestPath.parse("/wl/1/anything", null)));
+        assertTrue(matcher.matches(HttpMethod.DELETE, RequestPath.parse("/any/a.txt", null)));
+        assertFalse(matcher.matches(HttpMethod.GET, RequestPath.parse("/wl/1/other", null)));
+        assertFalse(matcher.matches("/wl/1/info"));
+    }
+
+    @Test
+    void methodRulesFallBackToPlainRules() {
+        WhiteListMatcher matcher = WhiteListMatcher.EMPTY.with("/public/**", "GET /api/{id}");
+        assertTrue(matcher.matches(HttpMethod.POST, RequestPath.parse("/public/a", null)));
+        assertFalse(matcher.matchesMethod(HttpMethod.POST, RequestPath.parse("/public/a", null)));
+    }
+
+    @Test
+    void withDoesNotModifyTheOriginal() {
+        WhiteListMatcher base = WhiteListMatcher.EMPTY.with("/a/**");
+        WhiteListMatcher extended = base.with("/b/**", "**.css", "GET /c");
+        assertTrue(WhiteListMatcher.EMPTY.isEmpty());
+        assertFalse(base.isEmpty());
+        assertFalse(base.matches("/b/x"));
+        assertFalse(base.matches("/x.css"));
+        assertFalse(base.matches(HttpMethod.GET, RequestPath.parse("/c", null)));
+        assertTrue(extended.matches("/a/x"));
+        assertTrue(extended.matches("/b/x"));
+        assertTrue(extended.matches("/x.css"));
+        assertTrue(extended.matches(HttpMethod.GET, RequestPath.parse("/c", null)));
+    }
+
+    @Test
+    void blankRulesAreIgnored() {
+        assertTrue(WhiteListMatcher.EMPTY.with("", " ", "/", null).isEmpty());
+        assertTrue(WhiteListMatcher.EMPTY.with(HttpMethod.GET, "", " ").isEmpty());
+        assertTrue(WhiteListMatcher.EMPTY.with((String[]) null).isEmpty());
+    }
+}
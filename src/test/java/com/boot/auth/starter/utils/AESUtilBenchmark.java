@@ -0,0 +1,91 @@
+package com.boot.auth.starter.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AESUtil 基准测试：缓存秘钥、线程内复用密码器，与每次调用都派生秘钥、创建密码器的原实现对比
+ * 在 IDE 中运行 main 方法，或者：
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.boot.auth.starter.utils.AESUtilBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AESUtilBenchmark {
+    private static final String AES_KEY = "benchmark.domain.com";
+    private static final IvParameterSpec IV = new IvParameterSpec("1234567890123456".getBytes(StandardCharsets.UTF_8));
+    private static final String CONTENT = "{\"group\":\"USER\",\"userNo\":\"10000001\",\"roles\":\"USER,ADMIN\",\"platform\":\"web\",\"version\":\"1.0\"}";
+    private String encrypted;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        encrypted = AESUtil.encrypt(CONTENT, AES_KEY);
+        //两种实现结果必须一致，对比才有意义
+        if (!Arrays.equals(AESUtil.hexToByteArray(encrypted), uncached(Cipher.ENCRYPT_MODE, CONTENT.getBytes(StandardCharsets.UTF_8)))) {
+            throw new IllegalStateException("未缓存的实现与 AESUtil 加密结果不一致");
+        }
+    }
+
+    @Benchmark
+    public String encryptCached() {
+        return AESUtil.encrypt(CONTENT, AES_KEY);
+    }
+
+    @Benchmark
+    public byte[] encryptUncached() throws GeneralSecurityException {
+        return uncached(Cipher.ENCRYPT_MODE, CONTENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String decryptCached() {
+        return AESUtil.decrypt(encrypted, AES_KEY);
+    }
+
+    @Benchmark
+    public byte[] decryptUncached() throws GeneralSecurityException {
+        return uncached(Cipher.DECRYPT_MODE, AESUtil.hexToByteArray(encrypted));
+    }
+
+    /**
+     * 原实现：每次调用都派生秘钥并创建、初始化密码器
+     */
+    private static byte[] uncached(int mode, byte[] content) throws GeneralSecurityException {
+        SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+        random.setSeed(AES_KEY.getBytes());
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(random);
+        SecretKeySpec key = new SecretKeySpec(keyGenerator.generateKey().getEncoded(), "AES");
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", "BC");
+        cipher.init(mode, key, IV);
+        return cipher.doFinal(content);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AESUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
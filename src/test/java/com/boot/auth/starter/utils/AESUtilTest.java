@@ -0,0 +1,87 @@
+package com.boot.auth.starter.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AESUtilTest {
+
+    @Test
+    void roundTrip() {
+        String encrypted = AESUtil.encrypt("token-内容", "domain-a");
+        assertEquals("token-内容", AESUtil.decrypt(encrypted, "domain-a"));
+        //固定 iv，同一个秘钥加密结果相同，已签发的令牌在升级后仍能解密
+        assertEquals(encrypted, AESUtil.encrypt("token-内容", "domain-a"));
+    }
+
+    @Test
+    void binaryRoundTripWithOffset() {
+        byte[] content = "binary".getBytes(StandardCharsets.UTF_8);
+        byte[] encrypted = AESUtil.encrypt(content, "domain-a");
+        byte[] framed = new byte[encrypted.length + 3];
+        System.arraycopy(encrypted, 0, framed, 2, encrypted.length);
+        assertArrayEquals(content, AESUtil.decrypt(framed, 2, encrypted.length, "domain-a"));
+    }
+
+    @Test
+    void keysAreIsolatedOnTheSameThread() {
+        String a = AESUtil.encrypt("same", "domain-a");
+        String b = AESUtil.encrypt("same", "domain-b");
+        assertNotEquals(a, b);
+        assertEquals("same", AESUtil.decrypt(a, "domain-a"));
+        assertEquals("same", AESUtil.decrypt(b, "domain-b"));
+        assertEquals("same", AESUtil.decrypt(a, "domain-a"));
+    }
+
+    @Test
+    void failedDecryptDoesNotBreakTheThreadCipher() {
+        String encrypted = AESUtil.encrypt("value", "domain-a");
+        assertNotEquals("value", AESUtil.decrypt(encrypted, "domain-b"));
+        assertNull(AESUtil.decrypt("abcd", "domain-a"));
+        assertEquals("value", AESUtil.decrypt(encrypted, "domain-a"));
+    }
+
+    @Test
+    void emptyInput() {
+        assertNull(AESUtil.encrypt("", "domain-a"));
+        assertNull(AESUtil.encrypt("value", ""));
+        assertNull(AESUtil.decrypt((String) null, "domain-a"));
+    }
+
+    @Test
+    void concurrentThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String key = "domain-" + (t & 1);
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String content = thread + ":" + i;
+                        assertEquals(content, AESUtil.decrypt(AESUtil.encrypt(content, key), key));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void hexToByteArray() {
+        assertArrayEquals(new byte[]{0x0a, (byte) 0xff}, AESUtil.hexToByteArray("0aFF"));
+        assertArrayEquals(new byte[]{0x0a, (byte) 0xff}, AESUtil.hexToByteArray("aff"));
+    }
+}